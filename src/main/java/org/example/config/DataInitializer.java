@@ -4,46 +4,96 @@ import org.example.domain.model.FileType;
 import org.example.domain.model.Folder;
 import org.example.domain.repository.FileTypeRepository;
 import org.example.domain.repository.FolderRepository;
+import org.example.services.FileTypeRegistry;
+import org.example.services.FolderHierarchyService;
+import org.example.services.FolderStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 @Configuration
 public class DataInitializer {
 
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
     private static final List<String> DEFAULT_FILE_TYPES = Arrays.asList(
             "pdf", "png", "txt", "docx", "jpg", "py"
     );
     @Bean
-    CommandLineRunner initRootFolder(FolderRepository folderRepository) {
+    @Order(0)
+    CommandLineRunner initRootFolder(FolderRepository folderRepository, FolderHierarchyService folderHierarchyService) {
         return args -> {
             // Create root folder if missing
             folderRepository.findByNameAndParent("root", null)
                     .orElseGet(() -> {
                         Folder root = new Folder();
                         root.setName("root");
+                        root.setPath("");
                         root.setCreatedAt(new Timestamp(System.currentTimeMillis()));
                         root.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                        return folderRepository.save(root);
+                        Folder saved = folderRepository.save(root);
+                        folderHierarchyService.addFolder(saved);
+                        return saved;
                     });
         };
     }
 
     @Bean
-    CommandLineRunner initFileTypes(FileTypeRepository fileTypeRepository) {
+    @Order(1)
+    CommandLineRunner backfillFolderPaths(FolderRepository folderRepository, TransactionTemplate transactionTemplate) {
+        // Folders created before the path column existed get it computed in one recursive statement
+        return args -> transactionTemplate.executeWithoutResult(status -> folderRepository.backfillPaths());
+    }
+
+    @Bean
+    @Order(1)
+    CommandLineRunner indexFolderPaths(FolderRepository folderRepository, TransactionTemplate transactionTemplate) {
+        return args -> transactionTemplate.executeWithoutResult(status -> {
+            folderRepository.createPathPatternIndex();
+            folderRepository.dropPlainPathIndex();
+            folderRepository.createTombstoneIndex();
+        });
+    }
+
+    @Bean
+    @Order(2)
+    CommandLineRunner repairFolderHierarchy(FolderHierarchyService folderHierarchyService) {
+        // Closure rows written before set-based maintenance lack self rows and may have wrong ancestors
+        return args -> folderHierarchyService.rebuildIfIncomplete();
+    }
+
+    @Bean
+    @Order(3)
+    CommandLineRunner initFolderStats(FolderStatsService folderStatsService) {
+        return args -> folderStatsService.reconcileIfEmpty();
+    }
+
+    @Bean
+    CommandLineRunner initFileTypes(FileTypeRepository fileTypeRepository, FileTypeRegistry fileTypeRegistry) {
         return args -> {
+            // One query loads the registry, only missing defaults are written
+            fileTypeRegistry.reload();
+            List<FileType> missing = new ArrayList<>();
             for (String type : DEFAULT_FILE_TYPES) {
-                if (fileTypeRepository.findByType(type).isEmpty()) {
+                if (!fileTypeRegistry.contains(type)) {
                     FileType fileType = new FileType();
                     fileType.setType(type);
-                    fileTypeRepository.save(fileType);
-                    System.out.println("Inserted file type: " + type); // Optional logging
+                    missing.add(fileType);
                 }
             }
+            for (FileType saved : fileTypeRepository.saveAll(missing)) {
+                fileTypeRegistry.register(saved);
+                log.info("Inserted file type: {}", saved.getType());
+            }
         };
     }
 }
\ No newline at end of file
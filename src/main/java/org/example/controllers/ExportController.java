@@ -0,0 +1,56 @@
+package org.example.controllers;
+
+import org.example.services.ExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/files")
+    public ResponseEntity<?> exportFiles(@RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            ExportService.Format exportFormat = ExportService.Format.from(format);
+            StreamingResponseBody body = out -> exportService.exportFiles(exportFormat, out);
+            return streamed("files", exportFormat, body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/folders")
+    public ResponseEntity<?> exportFolders(@RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            ExportService.Format exportFormat = ExportService.Format.from(format);
+            StreamingResponseBody body = out -> exportService.exportFolders(exportFormat, out);
+            return streamed("folders", exportFormat, body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamed(String name, ExportService.Format format,
+                                                           StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
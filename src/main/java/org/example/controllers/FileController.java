@@ -1,23 +1,33 @@
 package org.example.controllers;
 
-import org.example.domain.model.FileMetadata;
-import org.example.domain.model.FileType;
-import org.example.domain.model.Folder;
 import org.example.dto.request.*;
+import org.example.dto.response.CursorPage;
 import org.example.dto.response.FileResponse;
-import org.example.dto.response.FileTypeResponse;
+import org.example.services.FileBatchService;
+import org.example.services.FileContent;
 import org.example.services.FileService;
+import org.example.services.UploadSessionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/files")
@@ -25,10 +35,15 @@ import java.util.stream.Collectors;
 public class FileController {
 
     private final FileService fileService;
+    private final FileBatchService fileBatchService;
+    private final UploadSessionService uploadSessionService;
 
     @Autowired
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, FileBatchService fileBatchService,
+                          UploadSessionService uploadSessionService) {
         this.fileService = fileService;
+        this.fileBatchService = fileBatchService;
+        this.uploadSessionService = uploadSessionService;
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
@@ -37,13 +52,11 @@ public class FileController {
     }
 
     @GetMapping
-    public ResponseEntity<List<FileResponse>> getAllFiles() {
+    public ResponseEntity<?> getAllFiles(@ModelAttribute PageQuery pageQuery) {
         try {
-            List<FileMetadata> files = fileService.findAll();
-            List<FileResponse> response = files.stream()
-                    .map(this::mapToResponse)
-                    .collect(Collectors.toList());
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return new ResponseEntity<>(fileService.findAll(pageQuery), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -52,8 +65,34 @@ public class FileController {
     @PostMapping
     public ResponseEntity<?> createFile(@Valid @RequestBody CreateFileRequest request) {
         try {
-            FileMetadata createdFile = fileService.createFile(request);
-            return new ResponseEntity<>(mapToResponse(createdFile), HttpStatus.CREATED);
+            FileResponse createdFile = fileService.createFile(request);
+            return new ResponseEntity<>(createdFile, HttpStatus.CREATED);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error saving file: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadFile(@Valid @ModelAttribute UploadFileRequest request,
+                                        @RequestParam("file") MultipartFile file) {
+        try (InputStream content = file.getInputStream()) {
+            return new ResponseEntity<>(uploadSessionService.upload(request, content), HttpStatus.CREATED);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error saving file: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/upload", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadFileStream(@Valid @ModelAttribute UploadFileRequest request,
+                                              HttpServletRequest servletRequest) {
+        try (InputStream content = servletRequest.getInputStream()) {
+            return new ResponseEntity<>(uploadSessionService.upload(request, content), HttpStatus.CREATED);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error saving file: " + e.getMessage());
@@ -62,6 +101,34 @@ public class FileController {
         }
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createFiles(@RequestBody BatchCreateFilesRequest request) {
+        try {
+            List<FileBatchService.Item> items = new ArrayList<>();
+            if (request.getFiles() != null) {
+                request.getFiles().forEach(file -> items.add(FileBatchService.Item.of(file)));
+            }
+            return ResponseEntity.ok(fileBatchService.createAll(items));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Every "files" part is one file; its filename gives the name, type and an optional subfolder
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadFiles(@RequestParam(value = "folderPath", required = false) String folderPath,
+                                         @RequestParam("files") List<MultipartFile> files) {
+        try {
+            List<FileBatchService.Item> items = new ArrayList<>(files.size());
+            for (MultipartFile file : files) {
+                items.add(FileBatchService.Item.ofUpload(folderPath, file.getOriginalFilename(), file::getInputStream));
+            }
+            return ResponseEntity.ok(fileBatchService.createAll(items));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @DeleteMapping
     public ResponseEntity<?> deleteFile(@Valid @RequestBody DeleteFileRequest request) {
         try {
@@ -86,10 +153,39 @@ public class FileController {
         }
     }
 
+    @GetMapping("/{id}/content")
+    public ResponseEntity<?> getFileContent(@PathVariable UUID id) {
+        try {
+            FileContent content = fileService.getFileContent(id);
+            MediaType mediaType = MediaTypeFactory.getMediaType(content.getFileName())
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+            // Spring answers If-None-Match / If-Modified-Since with 304 and turns Range
+            // requests into ResourceRegions streamed straight from the file
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .contentType(mediaType)
+                    .lastModified(content.getLastModified())
+                    .cacheControl(CacheControl.noCache())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                            .filename(content.getFileName(), StandardCharsets.UTF_8)
+                            .build()
+                            .toString());
+            if (content.getContentHash() != null) {
+                builder.eTag(content.getContentHash());
+            }
+            return builder.body(new FileSystemResource(content.getPath()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error reading file content");
+        }
+    }
+
     @PostMapping("/folder-files")
-    public ResponseEntity<?> findFilesInFolder(@RequestBody FolderFilesRequest request) {
+    public ResponseEntity<?> findFilesInFolder(@RequestBody FolderFilesRequest request,
+                                               @ModelAttribute PageQuery pageQuery) {
         try {
-            List<FileResponse> files = fileService.findAllFilesInFolder(request);
+            CursorPage<FileResponse> files = fileService.findAllFilesInFolder(request, pageQuery);
             return ResponseEntity.ok(files);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -98,6 +194,16 @@ public class FileController {
         }
     }
 
+    @PostMapping("/query")
+    public ResponseEntity<?> queryFiles(@RequestBody FileQueryRequest request,
+                                        @ModelAttribute PageQuery pageQuery) {
+        try {
+            return ResponseEntity.ok(fileService.queryFiles(request, pageQuery));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PutMapping
     public ResponseEntity<?> updateFile(@RequestBody UpdateFileRequest request) {
         try {
@@ -111,11 +217,31 @@ public class FileController {
         }
     }
 
+    @DeleteMapping("/bulk")
+    public ResponseEntity<?> deleteFiles(@Valid @RequestBody BulkDeleteFilesRequest request) {
+        try {
+            return ResponseEntity.ok(fileBatchService.deleteAll(request.getFileIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Files that cannot move are reported and the rest still move
+    @PutMapping({"/bulk/move", "/move"})
+    public ResponseEntity<?> moveFiles(@Valid @RequestBody MoveFilesRequest request) {
+        try {
+            return ResponseEntity.ok(fileBatchService.moveAll(request.getFileIds(), request.getTargetFolderPath()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/by-type")
     public ResponseEntity<?> getFilesByType(
-            @Valid @RequestBody FileTypeRequest request) {
+            @Valid @RequestBody FileTypeRequest request,
+            @ModelAttribute PageQuery pageQuery) {
         try {
-            List<FileResponse> files = fileService.getAllFilesByFileType(request.getFileType());
+            CursorPage<FileResponse> files = fileService.getAllFilesByFileType(request.getFileType(), pageQuery);
             return ResponseEntity.ok(files);
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body(
@@ -126,9 +252,10 @@ public class FileController {
 
     @PostMapping("/folder-files-by-type")
     public ResponseEntity<?> findFilesInFolderByType(
-            @RequestBody FolderFilesByTypeRequest request) {
+            @RequestBody FolderFilesByTypeRequest request,
+            @ModelAttribute PageQuery pageQuery) {
         try {
-            List<FileResponse> files = fileService.findAllFilesInFolderByType(request);
+            CursorPage<FileResponse> files = fileService.findAllFilesInFolderByType(request, pageQuery);
             return ResponseEntity.ok(files);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -136,32 +263,4 @@ public class FileController {
             return ResponseEntity.internalServerError().body("Error searching files");
         }
     }
-
-    private FileResponse mapToResponse(FileMetadata file) {
-        FileResponse response = new FileResponse();
-        response.setId(file.getId());
-        response.setName(file.getName());
-        response.setFileType(mapFileTypeToResponse(file.getFileType()).getType());
-        response.setPath(constructFilePath(file.getFolder()));
-        response.setSize(file.getSize());
-        response.setCreatedAt(file.getCreatedAt());
-        response.setUpdatedAt(file.getUpdatedAt());
-        return response;
-    }
-
-    private FileTypeResponse mapFileTypeToResponse(FileType fileType) {
-        FileTypeResponse response = new FileTypeResponse();
-        response.setId(fileType.getId());
-        response.setType(fileType.getType());
-        return response;
-    }
-
-    private String constructFilePath(Folder folder) {
-        StringBuilder path = new StringBuilder();
-        while (folder != null) {
-            path.insert(0, "/" + folder.getName());
-            folder = folder.getParent();
-        }
-        return path.toString().replaceFirst("/root", "");
-    }
 }
\ No newline at end of file
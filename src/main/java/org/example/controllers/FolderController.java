@@ -1,19 +1,33 @@
 package org.example.controllers;
 
 import org.example.dto.request.CreateFolderRequest;
+import org.example.dto.request.MoveFolderRequest;
+import org.example.dto.request.PageQuery;
+import org.example.dto.response.CursorPage;
 import org.example.dto.request.RenameFolderRequest;
+import org.example.dto.response.ArchiveImportResponse;
+import org.example.dto.response.FolderDeletionResponse;
 import org.example.dto.response.FolderResponse;
+import org.example.services.ArchiveImportService;
+import org.example.services.ArchiveService;
+import org.example.services.FolderHierarchyService;
+import org.example.services.FolderPurgeService;
 import org.example.services.FolderService;
+import org.example.services.FolderStatsService;
+import org.example.services.FolderTreeService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.time.Instant;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -23,14 +37,36 @@ import java.util.UUID;
 public class FolderController {
 
     private final FolderService folderService;
+    private final FolderHierarchyService folderHierarchyService;
+    private final FolderPurgeService folderPurgeService;
+    private final FolderTreeService folderTreeService;
+    private final FolderStatsService folderStatsService;
+    private final ArchiveService archiveService;
+    private final ArchiveImportService archiveImportService;
 
-    public FolderController(FolderService folderService) {
+    public FolderController(FolderService folderService,
+                            FolderHierarchyService folderHierarchyService,
+                            FolderPurgeService folderPurgeService,
+                            FolderTreeService folderTreeService,
+                            FolderStatsService folderStatsService,
+                            ArchiveService archiveService,
+                            ArchiveImportService archiveImportService) {
         this.folderService = folderService;
+        this.folderHierarchyService = folderHierarchyService;
+        this.folderPurgeService = folderPurgeService;
+        this.folderTreeService = folderTreeService;
+        this.folderStatsService = folderStatsService;
+        this.archiveService = archiveService;
+        this.archiveImportService = archiveImportService;
     }
 
     @GetMapping
-    public List<FolderResponse> getAllFolders() {
-        return folderService.getAllFolders();
+    public ResponseEntity<?> getAllFolders(@ModelAttribute PageQuery pageQuery) {
+        try {
+            return ResponseEntity.ok(folderService.getAllFolders(pageQuery));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PostMapping
@@ -59,12 +95,27 @@ public class FolderController {
         }
     }
 
+    @PutMapping("/{folderId}/move")
+    public ResponseEntity<?> moveFolder(@PathVariable UUID folderId,
+                                        @Valid @RequestBody MoveFolderRequest request) {
+        try {
+            return ResponseEntity.ok(folderService.moveFolder(folderId, request.getTargetPath()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Filesystem operation failed: " + e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/{folderId}")
     public ResponseEntity<?> deleteFolder(@PathVariable UUID folderId) {
         try {
-            folderService.deleteFolder(folderId);
+            FolderDeletionResponse job = folderService.deleteFolder(folderId);
             // Return a response with a message for frontend consistency
-            return ResponseEntity.ok(Map.of("message", "Folder deleted successfully"));
+            return ResponseEntity.accepted().body(Map.of(
+                    "message", "Folder deleted successfully",
+                    "job", job));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Invalid folder ID"));
         } catch (IOException e) {
@@ -73,10 +124,99 @@ public class FolderController {
         }
     }
 
+    @GetMapping("/{folderId}/tree")
+    public ResponseEntity<?> getFolderTree(@PathVariable UUID folderId,
+                                           @RequestParam(required = false) Integer depth,
+                                           @RequestParam(defaultValue = "false") boolean includeFiles) {
+        try {
+            // Loaded inside the service transaction, serialized afterwards straight to the response
+            FolderTreeService.TreeNode tree = folderTreeService.loadTree(folderId, depth, includeFiles);
+            StreamingResponseBody body = out -> folderTreeService.writeTree(tree, includeFiles, out);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{folderId}/archive")
+    public ResponseEntity<?> downloadArchive(@PathVariable UUID folderId) {
+        try {
+            String fileName = archiveService.getArchiveName(folderId);
+            StreamingResponseBody body = out -> archiveService.writeArchive(folderId, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(fileName)
+                            .build()
+                            .toString())
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // The archive is the raw request body (ZIP, TAR or .tar.gz); pass importId to poll progress meanwhile
+    @PostMapping("/{folderId}/import")
+    public ResponseEntity<?> importArchive(@PathVariable UUID folderId,
+                                           @RequestParam(defaultValue = "false") boolean dryRun,
+                                           @RequestParam(required = false) UUID importId,
+                                           HttpServletRequest request) {
+        try {
+            ArchiveImportResponse response = archiveImportService.importArchive(
+                    folderId, request.getInputStream(), dryRun, importId);
+            return response.getLastError() == null
+                    ? ResponseEntity.ok(response)
+                    : ResponseEntity.badRequest().body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Could not read the archive: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/imports/{importId}")
+    public ResponseEntity<?> getImport(@PathVariable UUID importId) {
+        try {
+            return ResponseEntity.ok(archiveImportService.getProgress(importId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{folderId}/stats")
+    public ResponseEntity<?> getFolderStats(@PathVariable UUID folderId) {
+        try {
+            return ResponseEntity.ok(folderStatsService.getStats(folderId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/stats/reconcile")
+    public ResponseEntity<?> reconcileStats() {
+        folderStatsService.reconcile();
+        return ResponseEntity.ok(Map.of("message", "Folder stats rebuilt"));
+    }
+
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<?> getDeletionJob(@PathVariable UUID jobId) {
+        try {
+            return ResponseEntity.ok(folderPurgeService.getJob(jobId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/hierarchy/rebuild")
+    public ResponseEntity<?> rebuildHierarchy() {
+        return ResponseEntity.ok(Map.of("rows", folderHierarchyService.rebuild()));
+    }
+
     @GetMapping("/get-all-folders-of-specific-folder/{id}")
-    public ResponseEntity<?> getFoldersByParent(@PathVariable UUID id) {
+    public ResponseEntity<?> getFoldersByParent(@PathVariable UUID id, @ModelAttribute PageQuery pageQuery) {
         try {
-            List<FolderResponse> response = folderService.getFoldersByParent(id);
+            CursorPage<FolderResponse> response = folderService.getFoldersByParent(id, pageQuery);
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -0,0 +1,64 @@
+package org.example.controllers;
+
+import org.example.dto.request.FindFilesRequest;
+import org.example.services.ContentIndexService;
+import org.example.services.NameIndex;
+import org.example.services.SearchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "http://localhost:3000")
+public class SearchController {
+
+    private final SearchService searchService;
+    private final NameIndex nameIndex;
+    private final ContentIndexService contentIndexService;
+
+    public SearchController(SearchService searchService,
+                            NameIndex nameIndex,
+                            ContentIndexService contentIndexService) {
+        this.searchService = searchService;
+        this.nameIndex = nameIndex;
+        this.contentIndexService = contentIndexService;
+    }
+
+    @GetMapping("/names")
+    public ResponseEntity<?> searchNames(@ModelAttribute FindFilesRequest request) {
+        try {
+            return ResponseEntity.ok(searchService.searchNames(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/names/rebuild")
+    public ResponseEntity<?> rebuildNameIndex() {
+        return ResponseEntity.ok(Map.of("entries", nameIndex.rebuild()));
+    }
+
+    @GetMapping("/content")
+    public ResponseEntity<?> searchContent(@RequestParam String q,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(contentIndexService.search(q, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/content/rebuild")
+    public ResponseEntity<?> rebuildContentIndex() {
+        try {
+            contentIndexService.rebuild();
+            return ResponseEntity.accepted().body(Map.of("message", "Content index rebuild started"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
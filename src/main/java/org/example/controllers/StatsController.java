@@ -0,0 +1,57 @@
+package org.example.controllers;
+
+import org.example.services.ContentIndexService;
+import org.example.services.FileTypeRegistry;
+import org.example.services.FolderIndex;
+import org.example.services.NameIndex;
+import org.example.services.SecondLevelCacheStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "http://localhost:3000")
+public class StatsController {
+
+    private final FolderIndex folderIndex;
+    private final NameIndex nameIndex;
+    private final ContentIndexService contentIndexService;
+    private final FileTypeRegistry fileTypeRegistry;
+    private final SecondLevelCacheStats secondLevelCacheStats;
+
+    public StatsController(FolderIndex folderIndex, NameIndex nameIndex, ContentIndexService contentIndexService,
+                           FileTypeRegistry fileTypeRegistry, SecondLevelCacheStats secondLevelCacheStats) {
+        this.folderIndex = folderIndex;
+        this.nameIndex = nameIndex;
+        this.contentIndexService = contentIndexService;
+        this.fileTypeRegistry = fileTypeRegistry;
+        this.secondLevelCacheStats = secondLevelCacheStats;
+    }
+
+    @GetMapping("/folder-index")
+    public ResponseEntity<Map<String, Object>> getFolderIndexStats() {
+        return ResponseEntity.ok(folderIndex.getStats());
+    }
+
+    @GetMapping("/name-index")
+    public ResponseEntity<Map<String, Object>> getNameIndexStats() {
+        return ResponseEntity.ok(nameIndex.getStats());
+    }
+
+    @GetMapping("/content-index")
+    public ResponseEntity<Map<String, Object>> getContentIndexStats() {
+        return ResponseEntity.ok(contentIndexService.getStats());
+    }
+
+    @GetMapping("/file-types")
+    public ResponseEntity<Map<String, Object>> getFileTypeRegistryStats() {
+        return ResponseEntity.ok(fileTypeRegistry.getStats());
+    }
+
+    @GetMapping("/second-level-cache")
+    public ResponseEntity<Map<String, Object>> getSecondLevelCacheStats() {
+        return ResponseEntity.ok(secondLevelCacheStats.getStats());
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.controllers;
+
+import org.example.services.ReconciliationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/storage")
+@CrossOrigin(origins = "http://localhost:3000")
+public class StorageController {
+
+    private final ReconciliationService reconciliationService;
+
+    public StorageController(ReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    // Runs in the background, poll GET /reconcile for the report
+    @PostMapping("/reconcile")
+    public ResponseEntity<?> startReconciliation(@RequestParam(defaultValue = "false") boolean repair,
+                                                 @RequestParam(defaultValue = "false") boolean full) {
+        try {
+            return ResponseEntity.accepted().body(reconciliationService.start(repair, full));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/reconcile")
+    public ResponseEntity<?> getReconciliation() {
+        return reconciliationService.getLatest()
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "No reconciliation scan has run yet")));
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.domain.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+
+@Getter
+@Setter
+@Entity
+// The collector looks for released blobs past their grace period
+@Table(name = "content_blob", indexes = {
+        @Index(name = "idx_content_blob_released", columnList = "ref_count, released_at")
+})
+public class ContentBlob {
+
+    // Hex encoded SHA-256 of the content
+    @Id
+    @Column(name = "hash", length = 64, updatable = false, nullable = false)
+    private String hash;
+
+    @Column(nullable = false)
+    private Long size;
+
+    // Number of file rows pointing at this blob
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    @Column(name = "created_at", columnDefinition = "TIMESTAMP DEFAULT NOW()", nullable = false)
+    private Timestamp createdAt;
+
+    // Last time a reference was dropped; unreferenced blobs are collected a grace period after it
+    @Column(name = "released_at")
+    private Timestamp releasedAt;
+
+    public ContentBlob() {}
+}
@@ -14,6 +14,19 @@ import java.util.UUID;
 @Entity
 @Table(name = "file", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"folder_id", "name", "file_type_id"}) // Updated constraint
+}, indexes = {
+        // Keyset pagination runs on (sort key, id)
+        @Index(name = "idx_file_name_id", columnList = "name, id"),
+        @Index(name = "idx_file_size_id", columnList = "size, id"),
+        @Index(name = "idx_file_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_file_updated_at_id", columnList = "updated_at, id"),
+        @Index(name = "idx_file_type_name_id", columnList = "file_type_id, name, id"),
+        // Folder listings, optionally by type; id completes the keyset order
+        @Index(name = "idx_file_folder_type_name_id", columnList = "folder_id, file_type_id, name, id"),
+        @Index(name = "idx_file_folder_name_id", columnList = "folder_id, name, id"),
+        // Faceted query: type plus a size or update range without a folder scope
+        @Index(name = "idx_file_type_size_id", columnList = "file_type_id, size, id"),
+        @Index(name = "idx_file_type_updated_at_id", columnList = "file_type_id, updated_at, id")
 })
 public class FileMetadata {
 
@@ -50,10 +63,10 @@ public class FileMetadata {
     @Column(nullable = false)
     private Long size;
 
+    // SHA-256 of the content in the blob store, null only for rows not yet migrated
     @Setter
-    @Lob
-    @Column(name = "data", nullable = false)
-    private byte[] data;
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
 
     @Setter
     @Column(nullable = false)
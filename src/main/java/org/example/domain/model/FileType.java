@@ -2,6 +2,8 @@ package org.example.domain.model;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 import javax.persistence.*;
 import java.util.UUID;
@@ -9,6 +11,8 @@ import java.util.UUID;
 @Setter
 @Getter
 @Entity
+// A handful of rows that almost never change
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "file_type", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"type"})
 })
@@ -2,6 +2,8 @@ package org.example.domain.model;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
@@ -11,8 +13,17 @@ import java.util.UUID;
 @Setter
 @Getter
 @Entity
+// Read on every path walk and parent lookup, written rarely; region limits in ehcache.xml
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "folder", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"parent_id", "name"})
+}, indexes = {
+        // path is indexed with varchar_pattern_ops by DataInitializer, see FolderRepository.createPathPatternIndex
+        // Keyset pagination runs on (sort key, id)
+        @Index(name = "idx_folder_name_id", columnList = "name, id"),
+        @Index(name = "idx_folder_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_folder_updated_at_id", columnList = "updated_at, id"),
+        @Index(name = "idx_folder_parent_name_id", columnList = "parent_id, name, id")
 })
 public class Folder {
 
@@ -28,14 +39,19 @@ public class Folder {
     @JoinColumn(name = "parent_id")
     private Folder parent;
 
+    // Materialized path below root, e.g. "docs/2024"; empty for root itself
+    @Column(name = "path", length = 4096)
+    private String path;
+
     @Column(name = "created_at", columnDefinition = "TIMESTAMP DEFAULT NOW()")
     private Timestamp createdAt;
 
     @Column(name = "updated_at", columnDefinition = "TIMESTAMP DEFAULT NOW()")
     private Timestamp updatedAt;
 
-    public Folder() {}
+    // Set on the top folder of a subtree waiting for the purger; everything below it counts as deleted
+    @Column(name = "deleted_at")
+    private Timestamp deletedAt;
 
-    public void setPath(String s) {
-    }
+    public Folder() {}
 }
@@ -0,0 +1,67 @@
+package org.example.domain.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "folder_deletion_job")
+public class FolderDeletionJob {
+
+    public enum Status { PENDING, RUNNING, COMPLETED }
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    private UUID id;
+
+    // Tombstoned top folder of the subtree
+    @Column(name = "folder_id", nullable = false)
+    private UUID folderId;
+
+    @Column(name = "folder_name", nullable = false)
+    private String folderName;
+
+    @Column(name = "folder_path", length = 4096)
+    private String folderPath;
+
+    // Where the public/ directory was moved to, null when it had none
+    @Column(name = "trash_directory", length = 4096)
+    private String trashDirectory;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "folders_total")
+    private Long foldersTotal;
+
+    @Column(name = "folders_deleted", nullable = false)
+    private long foldersDeleted;
+
+    @Column(name = "files_total")
+    private Long filesTotal;
+
+    @Column(name = "files_deleted", nullable = false)
+    private long filesDeleted;
+
+    @Column(name = "last_error", length = 1024)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private Timestamp createdAt;
+
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+
+    @Column(name = "completed_at")
+    private Timestamp completedAt;
+
+    public FolderDeletionJob() {}
+}
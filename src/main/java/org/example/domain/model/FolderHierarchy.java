@@ -2,13 +2,22 @@ package org.example.domain.model;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Setter
 @Getter
 @Entity
-@Table(name = "folder_hierarchy")
+// Subtree membership checks load closure rows by id
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "folder_hierarchy", indexes = {
+        // The primary key leads with folder_id; subtree lookups go by ancestor
+        @Index(name = "idx_folder_hierarchy_ancestor", columnList = "ancestor_id, depth"),
+        // Covers the subtree semi-join of the faceted file query without touching the table
+        @Index(name = "idx_folder_hierarchy_ancestor_folder", columnList = "ancestor_id, folder_id")
+})
 public class FolderHierarchy {
 
     // Getters and Setters
@@ -0,0 +1,36 @@
+package org.example.domain.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.UUID;
+
+/**
+ * File count and byte rollups for one folder. Direct totals cover the folder's own files,
+ * the others everything below it. A folder without files may have no row at all.
+ */
+@Setter
+@Getter
+@Entity
+@Table(name = "folder_stats")
+public class FolderStats {
+
+    @Id
+    @Column(name = "folder_id")
+    private UUID folderId;
+
+    @Column(name = "direct_file_count", nullable = false)
+    private long directFileCount;
+
+    @Column(name = "direct_size", nullable = false)
+    private long directSize;
+
+    @Column(name = "total_file_count", nullable = false)
+    private long totalFileCount;
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    public FolderStats() {}
+}
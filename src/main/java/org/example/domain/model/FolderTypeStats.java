@@ -0,0 +1,25 @@
+package org.example.domain.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+// Per file type counts for one folder, direct and for the whole subtree
+@Setter
+@Getter
+@Entity
+@Table(name = "folder_type_stats")
+public class FolderTypeStats {
+
+    @EmbeddedId
+    private FolderTypeStatsId id;
+
+    @Column(name = "direct_count", nullable = false)
+    private long directCount;
+
+    @Column(name = "total_count", nullable = false)
+    private long totalCount;
+
+    public FolderTypeStats() {}
+}
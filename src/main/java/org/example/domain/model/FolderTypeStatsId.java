@@ -0,0 +1,45 @@
+package org.example.domain.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+@Setter
+@Getter
+@Embeddable
+public class FolderTypeStatsId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "folder_id")
+    private UUID folderId;
+
+    @Column(name = "file_type_id")
+    private UUID fileTypeId;
+
+    public FolderTypeStatsId() {}
+
+    public FolderTypeStatsId(UUID folderId, UUID fileTypeId) {
+        this.folderId = folderId;
+        this.fileTypeId = fileTypeId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FolderTypeStatsId)) return false;
+        FolderTypeStatsId that = (FolderTypeStatsId) o;
+        return Objects.equals(getFolderId(), that.getFolderId()) &&
+                Objects.equals(getFileTypeId(), that.getFileTypeId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getFolderId(), getFileTypeId());
+    }
+}
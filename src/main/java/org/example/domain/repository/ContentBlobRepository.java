@@ -0,0 +1,81 @@
+package org.example.domain.repository;
+
+import org.example.domain.model.ContentBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "content_blob"))
+    @Query(value = "INSERT INTO content_blob (hash, size, ref_count, created_at) " +
+            "VALUES (:hash, :size, 1, NOW()) " +
+            "ON CONFLICT (hash) DO UPDATE SET ref_count = content_blob.ref_count + 1",
+            nativeQuery = true)
+    void acquire(@Param("hash") String hash, @Param("size") long size);
+
+    // Same as acquire, for several new rows sharing one blob
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "content_blob"))
+    @Query(value = "INSERT INTO content_blob (hash, size, ref_count, created_at) " +
+            "VALUES (:hash, :size, :count, NOW()) " +
+            "ON CONFLICT (hash) DO UPDATE SET ref_count = content_blob.ref_count + :count",
+            nativeQuery = true)
+    void acquireMany(@Param("hash") String hash, @Param("size") long size, @Param("count") int count);
+
+    // Serializes acquire and collection of one hash until the calling transaction ends
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext(:hash))", nativeQuery = true)
+    Integer lock(@Param("hash") String hash);
+
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount - 1, b.releasedAt = CURRENT_TIMESTAMP " +
+            "WHERE b.hash = :hash")
+    void decrement(@Param("hash") String hash);
+
+    // One statement for every blob referenced by the given files
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "content_blob"))
+    @Query(value = "UPDATE content_blob b SET ref_count = b.ref_count - c.refs, released_at = NOW() " +
+            "FROM (SELECT content_hash, COUNT(*) AS refs FROM file " +
+            "      WHERE id IN (:fileIds) AND content_hash IS NOT NULL " +
+            "      GROUP BY content_hash) c " +
+            "WHERE b.hash = c.content_hash",
+            nativeQuery = true)
+    void decrementForFiles(@Param("fileIds") Collection<UUID> fileIds);
+
+    // A blob written for a transaction that rolled back, left for the collector
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "content_blob"))
+    @Query(value = "INSERT INTO content_blob (hash, size, ref_count, created_at, released_at) " +
+            "VALUES (:hash, :size, 0, NOW(), NOW()) ON CONFLICT (hash) DO NOTHING",
+            nativeQuery = true)
+    void registerReleased(@Param("hash") String hash, @Param("size") long size);
+
+    // Restarts the grace period of an unreferenced blob that is about to be reused
+    @Modifying
+    @Transactional
+    @Query("UPDATE ContentBlob b SET b.releasedAt = CURRENT_TIMESTAMP WHERE b.hash = :hash AND b.refCount <= 0")
+    int touchReleased(@Param("hash") String hash);
+
+    @Query("SELECT b.hash FROM ContentBlob b WHERE b.refCount <= 0 AND b.releasedAt < :cutoff " +
+            "ORDER BY b.releasedAt")
+    List<String> findReleasedBefore(@Param("cutoff") Timestamp cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ContentBlob b WHERE b.hash = :hash AND b.refCount <= 0 AND b.releasedAt < :cutoff")
+    int deleteReleasedBefore(@Param("hash") String hash, @Param("cutoff") Timestamp cutoff);
+}
@@ -0,0 +1,36 @@
+package org.example.domain.repository;
+
+import java.util.UUID;
+
+// Which files a listing page covers; unset fields do not filter. Folders are always
+// given by id, so a listing is a (folder_id, file_type_id, name) index range
+public final class FileListFilter {
+
+    private UUID folderId;
+    private UUID fileTypeId;
+
+    private FileListFilter() {}
+
+    public static FileListFilter all() {
+        return new FileListFilter();
+    }
+
+    public static FileListFilter inFolder(UUID folderId) {
+        FileListFilter filter = new FileListFilter();
+        filter.folderId = folderId;
+        return filter;
+    }
+
+    public FileListFilter withFileTypeId(UUID fileTypeId) {
+        this.fileTypeId = fileTypeId;
+        return this;
+    }
+
+    UUID getFolderId() {
+        return folderId;
+    }
+
+    UUID getFileTypeId() {
+        return fileTypeId;
+    }
+}
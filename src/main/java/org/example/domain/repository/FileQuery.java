@@ -0,0 +1,122 @@
+package org.example.domain.repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.UUID;
+
+// Filters of the faceted file query; unset fields do not filter. Ranges are inclusive at the
+// lower bound and exclusive at the upper one
+public final class FileQuery {
+
+    /** Fixed size ranges the size facet counts files in. */
+    public enum SizeBucket {
+        UNDER_1KB("<1KB", 0L, 1024L),
+        UNDER_1MB("1KB-1MB", 1024L, 1024L * 1024),
+        UNDER_100MB("1MB-100MB", 1024L * 1024, 100L * 1024 * 1024),
+        UNDER_1GB("100MB-1GB", 100L * 1024 * 1024, 1024L * 1024 * 1024),
+        OVER_1GB(">=1GB", 1024L * 1024 * 1024, null);
+
+        private final String label;
+        private final long minSize;
+        private final Long maxSize;
+
+        SizeBucket(String label, long minSize, Long maxSize) {
+            this.label = label;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getMinSize() {
+            return minSize;
+        }
+
+        // Null for the open-ended last bucket
+        public Long getMaxSize() {
+            return maxSize;
+        }
+    }
+
+    private UUID subtreeId;
+    private Collection<UUID> fileTypeIds;
+    private Long minSize;
+    private Long maxSize;
+    private Timestamp createdFrom;
+    private Timestamp createdTo;
+    private Timestamp updatedFrom;
+    private Timestamp updatedTo;
+    private String namePattern;
+
+    public FileQuery subtree(UUID folderId) {
+        this.subtreeId = folderId;
+        return this;
+    }
+
+    public FileQuery fileTypeIds(Collection<UUID> fileTypeIds) {
+        this.fileTypeIds = fileTypeIds;
+        return this;
+    }
+
+    public FileQuery size(Long min, Long max) {
+        this.minSize = min;
+        this.maxSize = max;
+        return this;
+    }
+
+    public FileQuery created(Timestamp from, Timestamp to) {
+        this.createdFrom = from;
+        this.createdTo = to;
+        return this;
+    }
+
+    public FileQuery updated(Timestamp from, Timestamp to) {
+        this.updatedFrom = from;
+        this.updatedTo = to;
+        return this;
+    }
+
+    // A LIKE pattern matched against the lower-cased name, already escaped by the caller
+    public FileQuery namePattern(String namePattern) {
+        this.namePattern = namePattern;
+        return this;
+    }
+
+    UUID getSubtreeId() {
+        return subtreeId;
+    }
+
+    Collection<UUID> getFileTypeIds() {
+        return fileTypeIds;
+    }
+
+    Long getMinSize() {
+        return minSize;
+    }
+
+    Long getMaxSize() {
+        return maxSize;
+    }
+
+    Timestamp getCreatedFrom() {
+        return createdFrom;
+    }
+
+    Timestamp getCreatedTo() {
+        return createdTo;
+    }
+
+    Timestamp getUpdatedFrom() {
+        return updatedFrom;
+    }
+
+    Timestamp getUpdatedTo() {
+        return updatedTo;
+    }
+
+    String getNamePattern() {
+        return namePattern;
+    }
+}
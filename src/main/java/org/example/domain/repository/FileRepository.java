@@ -3,47 +3,211 @@ package org.example.domain.repository;
 import org.example.domain.model.FileMetadata;
 import org.example.domain.model.FileType;
 import org.example.domain.model.Folder;
+import org.example.dto.response.FileResponse;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
-import javax.validation.constraints.NotNull;
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface FileRepository extends JpaRepository<FileMetadata, UUID>, FileRepositoryCustom {
+
+    interface SubtreeFile {
+        UUID getId();
+        UUID getFolderId();
+        String getName();
+        Long getSize();
+        String getFileType();
+        String getPath();
+        Timestamp getCreatedAt();
+        Timestamp getUpdatedAt();
+    }
+
+    interface ArchiveFile {
+        String getFolderPath();
+        String getName();
+        String getFileType();
+        String getContentHash();
+        Timestamp getUpdatedAt();
+    }
+
+    interface ReconcileFile {
+        UUID getId();
+        String getName();
+        String getFileType();
+        Long getSize();
+        String getContentHash();
+    }
+
+    interface NameEntry {
+        UUID getId();
+        UUID getFolderId();
+        String getName();
+        String getFileType();
+    }
+
+    interface NameKey {
+        UUID getFolderId();
+        String getName();
+        UUID getFileTypeId();
+    }
+
+    interface ContentSource {
+        UUID getId();
+        String getContentHash();
+        String getFileType();
+    }
+
+    interface ExportFile {
+        UUID getId();
+        UUID getFolderId();
+        String getName();
+        String getFileType();
+        Long getSize();
+        String getContentHash();
+        String getPath();
+        Timestamp getCreatedAt();
+        Timestamp getUpdatedAt();
+    }
+
+    // Listing projection: only the FileResponse columns, type name joined in the same statement
+    String FILE_RESPONSE_SELECT = "SELECT new org.example.dto.response.FileResponse(" +
+            "f.id, f.name, f.size, t.type, f.path, f.createdAt, f.updatedAt) " +
+            "FROM FileMetadata f JOIN f.fileType t ";
+
+    // Excludes files below a folder that has been deleted but not purged yet
+    String IN_LIVE_FOLDER = "NOT EXISTS (SELECT h FROM FolderHierarchy h " +
+            "WHERE h.folder = f.folder AND h.ancestor.deletedAt IS NOT NULL) ";
 
-public interface FileRepository extends JpaRepository<FileMetadata, UUID> {
     boolean existsByNameAndFolderAndFileType(String name, Folder folder, FileType fileType);
+
+    // Candidates for the batch duplicate check, matched on all three columns by the caller
+    @Query("SELECT f.folder.id AS folderId, f.name AS name, f.fileType.id AS fileTypeId FROM FileMetadata f " +
+            "WHERE f.folder.id IN :folderIds AND f.name IN :names")
+    List<NameKey> findNameKeys(@Param("folderIds") Collection<UUID> folderIds,
+                               @Param("names") Collection<String> names);
     Optional<FileMetadata> findByPathAndFileType(String path, FileType fileType);
 
-    List<FileMetadata> findAll();
-
-    List<FileMetadata> findByFolder(Folder folder);
-    @Query("SELECT f FROM FileMetadata f WHERE " +
-            "f.path LIKE CONCAT(:folderPath, '%') AND " +
-            "f.fileType.type = :fileType")
-    List<FileMetadata> findFileByFolderPathAndFileNameAndFileType(
-            @Param("folderPath") String folderPath,
-            @Param("fileType") String fileType
-    );
-
-    @Query("SELECT f FROM FileMetadata f WHERE " +
-            "f.path LIKE CONCAT(:folderPath, '/%') AND " +
-            "f.path NOT LIKE CONCAT(:folderPath, '/%/%')")
-    List<FileMetadata> findAllByFolderPath(@Param("folderPath") String folderPath);
-
-    @Query("SELECT f FROM FileMetadata f WHERE " +
-            "f.path LIKE CONCAT(:folderPath, '/%') AND " +
-            "f.path NOT LIKE CONCAT(:folderPath, '/%/%') AND " +
-            "f.fileType.type = :fileType")
-    List<FileMetadata> findAllByFolderPathAndFileType(
-            @Param("folderPath") String folderPath,
-            @Param("fileType") String fileType
-    );
-
-    List<FileMetadata> findByFolderAndFileTypeType(Folder folder, String fileType);
+    @Query(FILE_RESPONSE_SELECT + "WHERE f.id = :id AND " + IN_LIVE_FOLDER)
+    Optional<FileResponse> findResponseById(@Param("id") UUID id);
+
+    @Query("SELECT f FROM FileMetadata f WHERE f.id = :id AND " + IN_LIVE_FOLDER)
+    Optional<FileMetadata> findLiveById(@Param("id") UUID id);
+
+    // Recomputes file paths from their folder's materialized path, for every live folder under the given path
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "file"))
+    @Query(value = "UPDATE file f SET path = 'root/' || d.path || '/' || f.name " +
+            "FROM folder d WHERE f.folder_id = d.id AND (d.path = :folderPath OR d.path LIKE :folderPathPattern) " +
+            "AND NOT EXISTS (SELECT 1 FROM folder_hierarchy h JOIN folder a ON a.id = h.ancestor_id " +
+            "                WHERE h.folder_id = d.id AND a.deleted_at IS NOT NULL)",
+            nativeQuery = true)
+    int refreshPathsUnderFolderPath(@Param("folderPath") String folderPath,
+                                    @Param("folderPathPattern") String folderPathPattern);
 
     boolean existsByNameAndFolderAndFileTypeAndIdNot(String name, Folder folder, FileType fileType, UUID id);
-    List<FileMetadata> findByFileType(FileType fileType);
     void deleteAllByFolderIdIn(List<UUID> folderIds);
-}
\ No newline at end of file
+
+    @Query("SELECT f FROM FileMetadata f JOIN FETCH f.folder JOIN FETCH f.fileType WHERE f.id IN :ids")
+    List<FileMetadata> findAllWithFolderAndTypeByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // Files under a deleted folder are left out, to the caller they are already gone
+    @Query("SELECT f FROM FileMetadata f JOIN FETCH f.folder JOIN FETCH f.fileType " +
+            "WHERE f.id IN :ids AND " + IN_LIVE_FOLDER)
+    List<FileMetadata> findAllLiveWithFolderAndTypeByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // Moves the candidates that collide with nothing in the target, one per name and type when
+    // several share them, and returns the ids that moved. Not @Modifying so RETURNING comes back
+    @Query(value = "WITH candidates AS (" +
+            "  SELECT f.id, row_number() OVER (PARTITION BY f.name, f.file_type_id ORDER BY f.id) AS rn " +
+            "  FROM file f WHERE f.id IN (:ids) AND f.folder_id <> :targetId " +
+            "  AND NOT EXISTS (SELECT 1 FROM file o WHERE o.folder_id = :targetId " +
+            "                  AND o.name = f.name AND o.file_type_id = f.file_type_id)) " +
+            "UPDATE file f SET folder_id = :targetId, path = :pathPrefix || f.name, updated_at = :updatedAt " +
+            "FROM candidates c WHERE f.id = c.id AND c.rn = 1 RETURNING CAST(f.id AS varchar)",
+            nativeQuery = true)
+    List<String> moveWithoutCollisions(@Param("ids") Collection<UUID> ids,
+                                     @Param("targetId") UUID targetId,
+                                     @Param("pathPrefix") String pathPrefix,
+                                     @Param("updatedAt") Timestamp updatedAt);
+
+    // Files anywhere below the given folder, for the deletion purger
+    @Query("SELECT f.id FROM FileMetadata f, FolderHierarchy h WHERE h.folder = f.folder AND h.ancestor.id = :folderId")
+    List<UUID> findIdsInSubtree(@Param("folderId") UUID folderId, Pageable pageable);
+
+    @Query(value = "SELECT count(*) FROM file f JOIN folder_hierarchy h ON h.folder_id = f.folder_id " +
+            "WHERE h.ancestor_id = :folderId",
+            nativeQuery = true)
+    long countInSubtree(@Param("folderId") UUID folderId);
+
+    @Query("SELECT f.id AS id, f.folder.id AS folderId, f.name AS name, f.size AS size, t.type AS fileType, " +
+            "f.path AS path, f.createdAt AS createdAt, f.updatedAt AS updatedAt " +
+            "FROM FileMetadata f JOIN f.fileType t, FolderHierarchy h " +
+            "WHERE h.folder = f.folder AND h.ancestor.id = :folderId AND h.depth <= :maxDepth")
+    List<SubtreeFile> findInSubtree(@Param("folderId") UUID folderId, @Param("maxDepth") int maxDepth);
+
+    // Forward-only cursor over every live file; rows are projections, so nothing piles up in the session
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT f.id AS id, f.folder.id AS folderId, f.name AS name, t.type AS fileType, f.size AS size, " +
+            "f.contentHash AS contentHash, f.path AS path, f.createdAt AS createdAt, f.updatedAt AS updatedAt " +
+            "FROM FileMetadata f JOIN f.fileType t WHERE " + IN_LIVE_FOLDER)
+    Stream<ExportFile> streamAllForExport();
+
+    // Files below a folder for the ZIP export, unordered so rows flow before the scan completes
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT d.path AS folderPath, f.name AS name, t.type AS fileType, f.contentHash AS contentHash, " +
+            "f.updatedAt AS updatedAt " +
+            "FROM FileMetadata f JOIN f.fileType t JOIN f.folder d, FolderHierarchy s " +
+            "WHERE s.folder = d AND s.ancestor.id = :folderId AND " + IN_LIVE_FOLDER)
+    Stream<ArchiveFile> streamSubtreeForArchive(@Param("folderId") UUID folderId);
+
+    // Folders whose files were created or changed since the last reconciliation scan
+    @Query("SELECT DISTINCT f.folder.id FROM FileMetadata f WHERE f.updatedAt >= :since")
+    List<UUID> findFolderIdsChangedSince(@Param("since") Timestamp since);
+
+    @Query("SELECT f.id AS id, f.name AS name, t.type AS fileType, f.size AS size, f.contentHash AS contentHash " +
+            "FROM FileMetadata f JOIN f.fileType t WHERE f.folder.id = :folderId")
+    List<ReconcileFile> findForReconcile(@Param("folderId") UUID folderId);
+
+    // Read right before an orphan is moved aside, the row may have committed after the folder was compared
+    @Query("SELECT COUNT(f) > 0 FROM FileMetadata f " +
+            "WHERE f.folder.id = :folderId AND f.name = :name AND f.fileType.type = :fileType")
+    boolean existsInFolder(@Param("folderId") UUID folderId, @Param("name") String name,
+                           @Param("fileType") String fileType);
+
+    // Startup load of the filename search index
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT f.id AS id, f.folder.id AS folderId, f.name AS name, t.type AS fileType " +
+            "FROM FileMetadata f JOIN f.fileType t WHERE " + IN_LIVE_FOLDER)
+    Stream<NameEntry> streamNameEntries();
+
+    @Query("SELECT f.id AS id, f.contentHash AS contentHash, t.type AS fileType " +
+            "FROM FileMetadata f JOIN f.fileType t WHERE f.id = :id")
+    Optional<ContentSource> findContentSource(@Param("id") UUID id);
+
+    // Keyset walk over the files of the given types, for the content index backfill
+    @Query("SELECT f.id FROM FileMetadata f WHERE f.fileType.type IN :types AND f.id > :afterId ORDER BY f.id")
+    List<UUID> findIdsByFileTypeAfter(@Param("types") Collection<String> types,
+                                      @Param("afterId") UUID afterId,
+                                      Pageable pageable);
+
+    @Query("SELECT f.id FROM FileMetadata f WHERE f.fileType.type IN :types AND f.updatedAt >= :since")
+    List<UUID> findIdsByFileTypeUpdatedSince(@Param("types") Collection<String> types,
+                                             @Param("since") Timestamp since);
+
+    @Query("SELECT f.id FROM FileMetadata f WHERE f.id IN :ids AND " + IN_LIVE_FOLDER)
+    List<UUID> findLiveIdsIn(@Param("ids") Collection<UUID> ids);
+}
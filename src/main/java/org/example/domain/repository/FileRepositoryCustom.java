@@ -0,0 +1,17 @@
+package org.example.domain.repository;
+
+import org.example.dto.response.FileQueryFacets;
+import org.example.dto.response.FileResponse;
+
+import java.util.List;
+
+public interface FileRepositoryCustom {
+
+    // Up to page.getLimit() + 1 rows, the extra one only signals that more exist
+    List<FileResponse> findResponsePage(FileListFilter filter, KeysetPage page);
+
+    // Same contract as findResponsePage, for the faceted query
+    List<FileResponse> findQueryPage(FileQuery query, KeysetPage page);
+
+    FileQueryFacets findQueryFacets(FileQuery query);
+}
@@ -1,9 +1,189 @@
 package org.example.domain.repository;
 
+import org.example.dto.response.FacetCount;
+import org.example.dto.response.FileQueryFacets;
+import org.example.dto.response.FileResponse;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 @Repository
 @Transactional
-public class FileRepositoryImpl {
+public class FileRepositoryImpl implements FileRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public FileRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<FileResponse> findResponsePage(FileListFilter filter, KeysetPage page) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.getFolderId() != null) {
+            conditions.add("f.folder.id = :folderId");
+        } else {
+            // Folder ids come from the live index, every other listing has to skip tombstoned subtrees
+            conditions.add(FileRepository.IN_LIVE_FOLDER);
+        }
+        if (filter.getFileTypeId() != null) {
+            conditions.add("f.fileType.id = :fileTypeId");
+        }
+        String keyset = page.predicate("f");
+        if (!keyset.isEmpty()) {
+            conditions.add(keyset);
+        }
+
+        String jpql = FileRepository.FILE_RESPONSE_SELECT + "WHERE " + String.join(" AND ", conditions) +
+                page.orderBy("f");
+        TypedQuery<FileResponse> query = entityManager.createQuery(jpql, FileResponse.class);
+        if (filter.getFolderId() != null) {
+            query.setParameter("folderId", filter.getFolderId());
+        }
+        if (filter.getFileTypeId() != null) {
+            query.setParameter("fileTypeId", filter.getFileTypeId());
+        }
+        page.bind(query);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<FileResponse> findQueryPage(FileQuery fileQuery, KeysetPage page) {
+        List<String> conditions = queryConditions(fileQuery, false);
+        String keyset = page.predicate("f");
+        if (!keyset.isEmpty()) {
+            conditions.add(keyset);
+        }
+
+        String jpql = FileRepository.FILE_RESPONSE_SELECT + "WHERE " + String.join(" AND ", conditions) +
+                page.orderBy("f");
+        TypedQuery<FileResponse> query = entityManager.createQuery(jpql, FileResponse.class);
+        bindQuery(query, fileQuery);
+        page.bind(query);
+        return query.getResultList();
+    }
+
+    @Override
+    public FileQueryFacets findQueryFacets(FileQuery fileQuery) {
+        // One pass over the matches; GROUPING(type) tells the size bucket rows from the type rows
+        String sql = "SELECT m.type, m.bucket, GROUPING(m.type), count(*) FROM (" +
+                "SELECT t.type AS type, " + sizeBucketCase() + " AS bucket " +
+                "FROM file f JOIN file_type t ON t.id = f.file_type_id " +
+                "WHERE " + String.join(" AND ", queryConditions(fileQuery, true)) +
+                ") m GROUP BY GROUPING SETS ((m.type), (m.bucket))";
+        Query query = entityManager.createNativeQuery(sql);
+        bindQuery(query, fileQuery);
+
+        FileQuery.SizeBucket[] buckets = FileQuery.SizeBucket.values();
+        long[] bucketCounts = new long[buckets.length];
+        List<FacetCount> types = new ArrayList<>();
+        for (Object row : query.getResultList()) {
+            Object[] columns = (Object[]) row;
+            long count = ((Number) columns[3]).longValue();
+            if (((Number) columns[2]).intValue() == 1) {
+                bucketCounts[((Number) columns[1]).intValue()] = count;
+            } else {
+                types.add(new FacetCount((String) columns[0], count));
+            }
+        }
+        types.sort(Comparator.comparingLong(FacetCount::getCount).reversed()
+                .thenComparing(FacetCount::getValue));
+
+        // Every bucket is listed, empty ones with a zero count
+        List<FacetCount> sizes = new ArrayList<>(buckets.length);
+        for (FileQuery.SizeBucket bucket : buckets) {
+            sizes.add(new FacetCount(bucket.getLabel(), bucketCounts[bucket.ordinal()],
+                    bucket.getMinSize(), bucket.getMaxSize()));
+        }
+        return new FileQueryFacets(types, sizes);
+    }
+
+    // The same filters as JPQL for the page and as SQL for the facets, sharing parameter names
+    private static List<String> queryConditions(FileQuery fileQuery, boolean nativeSql) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add(nativeSql
+                ? "NOT EXISTS (SELECT 1 FROM folder_hierarchy h JOIN folder a ON a.id = h.ancestor_id " +
+                        "WHERE h.folder_id = f.folder_id AND a.deleted_at IS NOT NULL)"
+                : FileRepository.IN_LIVE_FOLDER);
+        if (fileQuery.getSubtreeId() != null) {
+            // Closure rows of the root include the root itself
+            conditions.add(nativeSql
+                    ? "f.folder_id IN (SELECT s.folder_id FROM folder_hierarchy s WHERE s.ancestor_id = :subtreeId)"
+                    : "f.folder.id IN (SELECT s.folder.id FROM FolderHierarchy s WHERE s.ancestor.id = :subtreeId)");
+        }
+        if (fileQuery.getFileTypeIds() != null) {
+            conditions.add(nativeSql ? "f.file_type_id IN (:fileTypeIds)" : "f.fileType.id IN :fileTypeIds");
+        }
+        if (fileQuery.getMinSize() != null) {
+            conditions.add("f.size >= :minSize");
+        }
+        if (fileQuery.getMaxSize() != null) {
+            conditions.add("f.size < :maxSize");
+        }
+        if (fileQuery.getCreatedFrom() != null) {
+            conditions.add(nativeSql ? "f.created_at >= :createdFrom" : "f.createdAt >= :createdFrom");
+        }
+        if (fileQuery.getCreatedTo() != null) {
+            conditions.add(nativeSql ? "f.created_at < :createdTo" : "f.createdAt < :createdTo");
+        }
+        if (fileQuery.getUpdatedFrom() != null) {
+            conditions.add(nativeSql ? "f.updated_at >= :updatedFrom" : "f.updatedAt >= :updatedFrom");
+        }
+        if (fileQuery.getUpdatedTo() != null) {
+            conditions.add(nativeSql ? "f.updated_at < :updatedTo" : "f.updatedAt < :updatedTo");
+        }
+        if (fileQuery.getNamePattern() != null) {
+            conditions.add("LOWER(f.name) LIKE :namePattern");
+        }
+        return conditions;
+    }
+
+    private static void bindQuery(Query query, FileQuery fileQuery) {
+        if (fileQuery.getSubtreeId() != null) {
+            query.setParameter("subtreeId", fileQuery.getSubtreeId());
+        }
+        if (fileQuery.getFileTypeIds() != null) {
+            query.setParameter("fileTypeIds", fileQuery.getFileTypeIds());
+        }
+        if (fileQuery.getMinSize() != null) {
+            query.setParameter("minSize", fileQuery.getMinSize());
+        }
+        if (fileQuery.getMaxSize() != null) {
+            query.setParameter("maxSize", fileQuery.getMaxSize());
+        }
+        if (fileQuery.getCreatedFrom() != null) {
+            query.setParameter("createdFrom", fileQuery.getCreatedFrom());
+        }
+        if (fileQuery.getCreatedTo() != null) {
+            query.setParameter("createdTo", fileQuery.getCreatedTo());
+        }
+        if (fileQuery.getUpdatedFrom() != null) {
+            query.setParameter("updatedFrom", fileQuery.getUpdatedFrom());
+        }
+        if (fileQuery.getUpdatedTo() != null) {
+            query.setParameter("updatedTo", fileQuery.getUpdatedTo());
+        }
+        if (fileQuery.getNamePattern() != null) {
+            query.setParameter("namePattern", fileQuery.getNamePattern());
+        }
+    }
+
+    // Bucket ordinal of f.size; the bounds are constants, not user input
+    private static String sizeBucketCase() {
+        StringBuilder sql = new StringBuilder("CASE");
+        for (FileQuery.SizeBucket bucket : FileQuery.SizeBucket.values()) {
+            if (bucket.getMaxSize() != null) {
+                sql.append(" WHEN f.size < ").append(bucket.getMaxSize()).append(" THEN ").append(bucket.ordinal());
+            } else {
+                sql.append(" ELSE ").append(bucket.ordinal());
+            }
+        }
+        return sql.append(" END").toString();
+    }
 }
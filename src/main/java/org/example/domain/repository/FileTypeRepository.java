@@ -4,12 +4,18 @@ import org.example.domain.model.FileMetadata;
 import org.example.domain.model.FileType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 public interface FileTypeRepository extends JpaRepository<FileType, UUID> {
+    // Registry misses land here; the query cache answers repeats without a round trip
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<FileType> findByType(String type);
     boolean existsByType(String type);
     @Query("SELECT f FROM FileMetadata f JOIN FETCH f.fileType WHERE f.id = :id")
@@ -0,0 +1,16 @@
+package org.example.domain.repository;
+
+import org.example.domain.model.FolderDeletionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface FolderDeletionJobRepository extends JpaRepository<FolderDeletionJob, UUID> {
+
+    @Query("SELECT j.id FROM FolderDeletionJob j WHERE j.status IN :statuses ORDER BY j.createdAt")
+    List<UUID> findIdsByStatusIn(@Param("statuses") Collection<FolderDeletionJob.Status> statuses);
+}
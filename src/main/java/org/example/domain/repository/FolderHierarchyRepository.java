@@ -2,14 +2,37 @@ package org.example.domain.repository;
 
 import org.example.domain.model.FolderHierarchy;
 import org.example.domain.model.FolderHierarchyId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+
 public interface FolderHierarchyRepository extends JpaRepository<FolderHierarchy, FolderHierarchyId> {
+
+    interface SubtreeFolder {
+        UUID getId();
+        UUID getParentId();
+        String getName();
+        String getPath();
+        int getDepth();
+        Timestamp getCreatedAt();
+        Timestamp getUpdatedAt();
+        long getDirectFileCount();
+        long getDirectSize();
+        long getTotalFileCount();
+        long getTotalSize();
+    }
+
     List<FolderHierarchy> findByFolderId(UUID folderId);
     @Query("SELECT fh FROM FolderHierarchy fh WHERE fh.ancestor.id = :ancestorId")
     List<FolderHierarchy> findDescendants(@Param("ancestorId") UUID ancestorId);
@@ -19,7 +42,100 @@ public interface FolderHierarchyRepository extends JpaRepository<FolderHierarchy
 
     List<FolderHierarchy> findByAncestorId(UUID id);
 
-    void deleteByFolderIdIn(List<UUID> allFolderIds);
+    // One statement each; the derived deletes would load and remove the rows one by one
+    @Modifying
+    @Query("DELETE FROM FolderHierarchy fh WHERE fh.folder.id IN :folderIds")
+    void deleteByFolderIdIn(@Param("folderIds") List<UUID> folderIds);
+
+    @Modifying
+    @Query("DELETE FROM FolderHierarchy fh WHERE fh.ancestor.id IN :ancestorIds")
+    void deleteByAncestorIdIn(@Param("ancestorIds") List<UUID> ancestorIds);
+
+    // The new folder inherits every ancestor row of its parent one level deeper, plus its self row
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_hierarchy"))
+    @Query(value = "INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) " +
+            "SELECT :folderId, ancestor_id, depth + 1 FROM folder_hierarchy WHERE folder_id = :parentId " +
+            "UNION ALL SELECT :folderId, :folderId, 0",
+            nativeQuery = true)
+    int insertClosure(@Param("folderId") UUID folderId, @Param("parentId") UUID parentId);
+
+    // Set-based form of insertClosure for folders whose parents already have their rows
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_hierarchy"))
+    @Query(value = "INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) " +
+            "SELECT f.id, h.ancestor_id, h.depth + 1 FROM folder f " +
+            "JOIN folder_hierarchy h ON h.folder_id = f.parent_id WHERE f.id IN (:folderIds) " +
+            "UNION ALL SELECT f.id, f.id, 0 FROM folder f WHERE f.id IN (:folderIds)",
+            nativeQuery = true)
+    int insertClosures(@Param("folderIds") Collection<UUID> folderIds);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_hierarchy"))
+    @Query(value = "INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) VALUES (:folderId, :folderId, 0)",
+            nativeQuery = true)
+    int insertSelf(@Param("folderId") UUID folderId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_hierarchy"))
+    @Query(value = "DELETE FROM folder_hierarchy", nativeQuery = true)
+    int deleteAllRows();
+
+    // Recomputes every (folder, ancestor, depth) row from folder.parent_id
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_hierarchy"))
+    @Query(value = "WITH RECURSIVE closure(folder_id, ancestor_id, depth) AS (" +
+            "  SELECT id, id, 0 FROM folder " +
+            "  UNION ALL " +
+            "  SELECT f.id, c.ancestor_id, c.depth + 1 FROM closure c JOIN folder f ON f.parent_id = c.folder_id" +
+            ") " +
+            "INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) " +
+            "SELECT folder_id, ancestor_id, depth FROM closure",
+            nativeQuery = true)
+    int insertAllFromParents();
+
+    // Folders without a self row, i.e. written before closure maintenance was set-based
+    @Query(value = "SELECT count(*) FROM folder f WHERE NOT EXISTS (" +
+            "SELECT 1 FROM folder_hierarchy h WHERE h.folder_id = f.id AND h.ancestor_id = f.id)",
+            nativeQuery = true)
+    long countFoldersWithoutSelfRow();
+
+    // Detaches a subtree: drops every row linking a node inside it to an ancestor outside it
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_hierarchy"))
+    @Query(value = "DELETE FROM folder_hierarchy " +
+            "WHERE folder_id IN (SELECT folder_id FROM folder_hierarchy WHERE ancestor_id = :folderId) " +
+            "AND ancestor_id NOT IN (SELECT folder_id FROM folder_hierarchy WHERE ancestor_id = :folderId)",
+            nativeQuery = true)
+    int detachSubtree(@Param("folderId") UUID folderId);
+
+    // Attaches a detached subtree below newParentId: every new ancestor times every subtree node
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_hierarchy"))
+    @Query(value = "INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) " +
+            "SELECT sub.folder_id, sup.ancestor_id, sup.depth + sub.depth + 1 " +
+            "FROM folder_hierarchy sup CROSS JOIN folder_hierarchy sub " +
+            "WHERE sup.folder_id = :newParentId AND sub.ancestor_id = :folderId",
+            nativeQuery = true)
+    int attachSubtree(@Param("folderId") UUID folderId, @Param("newParentId") UUID newParentId);
+
+    @Query("SELECT COUNT(h) > 0 FROM FolderHierarchy h WHERE h.folder.id = :folderId AND h.ancestor.deletedAt IS NOT NULL")
+    boolean isInDeletedSubtree(@Param("folderId") UUID folderId);
+
+    long countByAncestorId(UUID ancestorId);
+
+    // Deepest first, so every folder in a batch has its children in the same or an earlier batch
+    @Query("SELECT h.folder.id FROM FolderHierarchy h WHERE h.ancestor.id = :folderId ORDER BY h.depth DESC")
+    List<UUID> findDeepestInSubtree(@Param("folderId") UUID folderId, Pageable pageable);
 
-    void deleteByAncestorIdIn(List<UUID> allFolderIds);
+    // Shallowest first, so a folder always comes after its parent; tombstones drop out with their subtree
+    @Query("SELECT d.id AS id, p.id AS parentId, d.name AS name, d.path AS path, h.depth AS depth, " +
+            "d.createdAt AS createdAt, d.updatedAt AS updatedAt, " +
+            "COALESCE(s.directFileCount, 0) AS directFileCount, COALESCE(s.directSize, 0) AS directSize, " +
+            "COALESCE(s.totalFileCount, 0) AS totalFileCount, COALESCE(s.totalSize, 0) AS totalSize " +
+            "FROM FolderHierarchy h JOIN h.folder d LEFT JOIN d.parent p " +
+            "LEFT JOIN FolderStats s ON s.folderId = d.id " +
+            "WHERE h.ancestor.id = :folderId AND h.depth <= :maxDepth AND d.deletedAt IS NULL " +
+            "ORDER BY h.depth")
+    List<SubtreeFolder> findSubtree(@Param("folderId") UUID folderId, @Param("maxDepth") int maxDepth);
 }
\ No newline at end of file
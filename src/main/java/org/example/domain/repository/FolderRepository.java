@@ -4,27 +4,132 @@ import org.example.domain.model.Folder;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface FolderRepository extends JpaRepository<Folder, UUID>, FolderRepositoryCustom {
+
+    interface ReconcileFolder {
+        UUID getId();
+        String getPath();
+        Timestamp getUpdatedAt();
+        long getFileCount();
+    }
+
+    interface FolderNode {
+        UUID getId();
+        UUID getParentId();
+        String getName();
+    }
+
+    interface ExportFolder {
+        UUID getId();
+        UUID getParentId();
+        String getName();
+        String getPath();
+        Timestamp getCreatedAt();
+        Timestamp getUpdatedAt();
+    }
+
+    @Query("SELECT f.id AS id, p.id AS parentId, f.name AS name FROM Folder f LEFT JOIN f.parent p " +
+            "WHERE f.deletedAt IS NULL")
+    List<FolderNode> findAllNodes();
+
+    @Query("SELECT f.id FROM Folder f WHERE f.parent.id = :parentId AND f.name = :name AND f.deletedAt IS NULL")
+    Optional<UUID> findIdByParentIdAndName(@Param("parentId") UUID parentId, @Param("name") String name);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("SELECT f.id FROM Folder f WHERE f.parent IS NULL AND f.name = 'root'")
+    Optional<UUID> findIdOfRoot();
 
-public interface FolderRepository extends JpaRepository<Folder, UUID> {
     Optional<Folder> findByNameAndParent(String name, Folder parent);
     boolean existsByNameAndParent(String name, Folder parent);
+    // Any row, deleted ones included: their directories are the purge's to remove
+    boolean existsByPath(String path);
     List<Folder> findByParentId(UUID parentId);
 
     List<Folder> findByParent(Folder parent);
     @Query("SELECT fh.folder.id FROM FolderHierarchy fh WHERE fh.ancestor.id = :folderId")
     List<UUID> findDescendantIds(@Param("folderId") UUID folderId);
 
+    // Rewrites the renamed folder and every descendant in one statement; managed folders would be stale after it.
+    // Tombstoned subtrees keep their old paths, a live folder may since have taken the same name
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder"))
+    @Query(value = "UPDATE folder SET path = :newPath || substring(path FROM :oldPathLength + 1) " +
+            "WHERE (path = :oldPath OR path LIKE :oldPathPattern) " +
+            "AND NOT EXISTS (SELECT 1 FROM folder_hierarchy h JOIN folder a ON a.id = h.ancestor_id " +
+            "                WHERE h.folder_id = folder.id AND a.deleted_at IS NOT NULL)",
+            nativeQuery = true)
+    int replacePathPrefix(@Param("oldPath") String oldPath,
+                          @Param("oldPathLength") int oldPathLength,
+                          @Param("oldPathPattern") String oldPathPattern,
+                          @Param("newPath") String newPath);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder"))
+    @Query(value = "WITH RECURSIVE tree(id, path) AS (" +
+            "  SELECT id, CAST('' AS TEXT) FROM folder WHERE parent_id IS NULL AND name = 'root' " +
+            "  UNION ALL " +
+            "  SELECT c.id, CASE WHEN t.path = '' THEN CAST(c.name AS TEXT) ELSE t.path || '/' || c.name END " +
+            "  FROM folder c JOIN tree t ON c.parent_id = t.id" +
+            ") " +
+            "UPDATE folder f SET path = tree.path FROM tree WHERE f.id = tree.id AND f.path IS NULL",
+            nativeQuery = true)
+    int backfillPaths();
+
+    // The prefix LIKE of the subtree rewrites can only use a pattern_ops index under a non-C collation.
+    // Created here because JPA index annotations cannot name an operator class
+    @Modifying
+    @Query(value = "CREATE INDEX IF NOT EXISTS idx_folder_path_pattern ON folder (path varchar_pattern_ops)",
+            nativeQuery = true)
+    void createPathPatternIndex();
+
+    // Path rewrites skip tombstoned subtrees; tombstones are few and purged, so a partial index keeps that check small
     @Modifying
-    @Query("DELETE FROM FolderHierarchy fh WHERE fh.folder.id IN :folderIds")
-    void deleteByFolderIdIn(@Param("folderIds") List<UUID> folderIds);
+    @Query(value = "CREATE INDEX IF NOT EXISTS idx_folder_tombstone ON folder (id) WHERE deleted_at IS NOT NULL",
+            nativeQuery = true)
+    void createTombstoneIndex();
 
+    // The plain btree the index annotation used to create, superseded by the pattern one
     @Modifying
-    @Query("DELETE FROM FolderHierarchy fh WHERE fh.ancestor.id IN :ancestorIds")
-    void deleteByAncestorIdIn(@Param("ancestorIds") List<UUID> ancestorIds);
-}
\ No newline at end of file
+    @Query(value = "DROP INDEX IF EXISTS idx_folder_path", nativeQuery = true)
+    void dropPlainPathIndex();
+
+    // Live folders with the file count the stats say they hold directly
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT d.id AS id, d.path AS path, d.updatedAt AS updatedAt, " +
+            "COALESCE(s.directFileCount, 0) AS fileCount " +
+            "FROM Folder d LEFT JOIN FolderStats s ON s.folderId = d.id " +
+            "WHERE d.path IS NOT NULL AND NOT EXISTS (SELECT h FROM FolderHierarchy h " +
+            "WHERE h.folder = d AND h.ancestor.deletedAt IS NOT NULL)")
+    Stream<ReconcileFolder> streamLiveForReconcile();
+
+    // Paths of the live folders strictly below the given one, for the ZIP export's directory entries
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT d.path FROM FolderHierarchy s JOIN s.folder d " +
+            "WHERE s.ancestor.id = :folderId AND s.depth > 0 AND NOT EXISTS (SELECT h FROM FolderHierarchy h " +
+            "WHERE h.folder = d AND h.ancestor.deletedAt IS NOT NULL)")
+    Stream<String> streamSubtreePaths(@Param("folderId") UUID folderId);
+
+    // Forward-only cursor over every live folder, see FileRepository.streamAllForExport
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT f.id AS id, p.id AS parentId, f.name AS name, f.path AS path, " +
+            "f.createdAt AS createdAt, f.updatedAt AS updatedAt " +
+            "FROM Folder f LEFT JOIN f.parent p WHERE NOT EXISTS (SELECT h FROM FolderHierarchy h " +
+            "WHERE h.folder = f AND h.ancestor.deletedAt IS NOT NULL)")
+    Stream<ExportFolder> streamAllForExport();
+}
@@ -0,0 +1,15 @@
+package org.example.domain.repository;
+
+import org.example.domain.model.Folder;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface FolderRepositoryCustom {
+
+    // Every folder outside deleted subtrees; up to page.getLimit() + 1 rows
+    List<Folder> findLivePage(KeysetPage page);
+
+    // Children of parentId, or the top level when it is null; up to page.getLimit() + 1 rows
+    List<Folder> findChildrenPage(UUID parentId, KeysetPage page);
+}
@@ -0,0 +1,48 @@
+package org.example.domain.repository;
+
+import org.example.domain.model.Folder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@Transactional
+public class FolderRepositoryImpl implements FolderRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public FolderRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Folder> findLivePage(KeysetPage page) {
+        String jpql = "SELECT d FROM Folder d WHERE NOT EXISTS (SELECT h FROM FolderHierarchy h " +
+                "WHERE h.folder = d AND h.ancestor.deletedAt IS NOT NULL)" + and(page.predicate("d")) +
+                page.orderBy("d");
+        TypedQuery<Folder> query = entityManager.createQuery(jpql, Folder.class);
+        page.bind(query);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Folder> findChildrenPage(UUID parentId, KeysetPage page) {
+        String jpql = "SELECT d FROM Folder d WHERE " +
+                (parentId != null ? "d.parent.id = :parentId" : "d.parent IS NULL") +
+                " AND d.deletedAt IS NULL" + and(page.predicate("d")) + page.orderBy("d");
+        TypedQuery<Folder> query = entityManager.createQuery(jpql, Folder.class);
+        if (parentId != null) {
+            query.setParameter("parentId", parentId);
+        }
+        page.bind(query);
+        return query.getResultList();
+    }
+
+    private static String and(String condition) {
+        return condition.isEmpty() ? "" : " AND " + condition;
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.domain.repository;
+
+import java.util.UUID;
+
+// Net change to one folder's counts for one file type, applied to the folder and every ancestor
+public final class FolderStatsDelta {
+
+    private final UUID folderId;
+    private final UUID fileTypeId;
+    private final long countDelta;
+    private final long sizeDelta;
+
+    public FolderStatsDelta(UUID folderId, UUID fileTypeId, long countDelta, long sizeDelta) {
+        this.folderId = folderId;
+        this.fileTypeId = fileTypeId;
+        this.countDelta = countDelta;
+        this.sizeDelta = sizeDelta;
+    }
+
+    public UUID getFolderId() {
+        return folderId;
+    }
+
+    public UUID getFileTypeId() {
+        return fileTypeId;
+    }
+
+    public long getCountDelta() {
+        return countDelta;
+    }
+
+    public long getSizeDelta() {
+        return sizeDelta;
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.domain.repository;
+
+import org.example.domain.model.FolderStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.UUID;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+
+public interface FolderStatsRepository extends JpaRepository<FolderStats, UUID>, FolderStatsRepositoryCustom {
+
+    // Adds (sign 1) or removes (sign -1) a subtree's recursive totals on parentId and its ancestors,
+    // locking them in key order like applyDeltas
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_stats"))
+    @Query(value = "INSERT INTO folder_stats (folder_id, direct_file_count, direct_size, total_file_count, total_size) " +
+            "SELECT h.ancestor_id, 0, 0, :sign * s.total_file_count, :sign * s.total_size " +
+            "FROM folder_hierarchy h, folder_stats s WHERE h.folder_id = :parentId AND s.folder_id = :folderId " +
+            "ORDER BY h.ancestor_id " +
+            "ON CONFLICT (folder_id) DO UPDATE SET " +
+            "  total_file_count = folder_stats.total_file_count + EXCLUDED.total_file_count, " +
+            "  total_size = folder_stats.total_size + EXCLUDED.total_size",
+            nativeQuery = true)
+    int applySubtree(@Param("folderId") UUID folderId,
+                     @Param("parentId") UUID parentId,
+                     @Param("sign") long sign);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_stats"))
+    @Query(value = "LOCK TABLE folder_stats, folder_type_stats IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_stats"))
+    @Query(value = "DELETE FROM folder_stats", nativeQuery = true)
+    int deleteAllRows();
+
+    // Files below a tombstone are already subtracted from their live ancestors, so they stay out here too
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_stats"))
+    @Query(value = "INSERT INTO folder_stats (folder_id, direct_file_count, direct_size, total_file_count, total_size) " +
+            "SELECT h.ancestor_id, " +
+            "  COUNT(*) FILTER (WHERE h.depth = 0), " +
+            "  COALESCE(SUM(f.size) FILTER (WHERE h.depth = 0), 0), " +
+            "  COUNT(*), " +
+            "  COALESCE(SUM(f.size), 0) " +
+            "FROM folder_hierarchy h JOIN file f ON f.folder_id = h.folder_id " +
+            "WHERE NOT EXISTS (SELECT 1 FROM folder_hierarchy dh JOIN folder d ON d.id = dh.ancestor_id " +
+            "                  WHERE dh.folder_id = f.folder_id AND d.deleted_at IS NOT NULL) " +
+            "GROUP BY h.ancestor_id",
+            nativeQuery = true)
+    int insertAllFromFiles();
+
+    @Modifying
+    @Query("DELETE FROM FolderStats s WHERE s.folderId IN :folderIds")
+    int deleteByFolderIdIn(@Param("folderIds") Collection<UUID> folderIds);
+}
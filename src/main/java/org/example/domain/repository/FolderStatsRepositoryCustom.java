@@ -0,0 +1,10 @@
+package org.example.domain.repository;
+
+import java.util.Collection;
+
+public interface FolderStatsRepositoryCustom {
+
+    // Applies every delta to folder_stats and folder_type_stats, one statement per table that
+    // locks the ancestor rows in key order, so concurrent writers cannot deadlock on them
+    void applyDeltas(Collection<FolderStatsDelta> deltas);
+}
@@ -0,0 +1,95 @@
+package org.example.domain.repository;
+
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+
+@Repository
+@Transactional
+public class FolderStatsRepositoryImpl implements FolderStatsRepositoryCustom {
+
+    // Three or four bind parameters per delta, well below the driver's limit
+    private static final int CHUNK_SIZE = 5000;
+
+    private final EntityManager entityManager;
+
+    public FolderStatsRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void applyDeltas(Collection<FolderStatsDelta> deltas) {
+        // The ancestors come from closure rows that may still be pending in the session
+        entityManager.flush();
+        List<FolderStatsDelta> all = new ArrayList<>(deltas);
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            List<FolderStatsDelta> chunk = all.subList(from, Math.min(from + CHUNK_SIZE, all.size()));
+            applyFolderDeltas(chunk);
+            applyTypeDeltas(chunk.stream().filter(delta -> delta.getCountDelta() != 0).collect(Collectors.toList()));
+        }
+    }
+
+    // The same ancestor shows up once per delta below it, ON CONFLICT needs it once per statement
+    private void applyFolderDeltas(List<FolderStatsDelta> deltas) {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < deltas.size(); i++) {
+            rows.add("(CAST(:folder" + i + " AS uuid), CAST(:count" + i + " AS bigint), CAST(:size" + i + " AS bigint))");
+        }
+        String sql = "INSERT INTO folder_stats (folder_id, direct_file_count, direct_size, total_file_count, total_size) " +
+                "SELECT h.ancestor_id, " +
+                "  SUM(CASE WHEN h.depth = 0 THEN d.count_delta ELSE 0 END), " +
+                "  SUM(CASE WHEN h.depth = 0 THEN d.size_delta ELSE 0 END), " +
+                "  SUM(d.count_delta), SUM(d.size_delta) " +
+                "FROM (VALUES " + String.join(", ", rows) + ") AS d(folder_id, count_delta, size_delta) " +
+                "JOIN folder_hierarchy h ON h.folder_id = d.folder_id " +
+                "GROUP BY h.ancestor_id ORDER BY h.ancestor_id " +
+                "ON CONFLICT (folder_id) DO UPDATE SET " +
+                "  direct_file_count = folder_stats.direct_file_count + EXCLUDED.direct_file_count, " +
+                "  direct_size = folder_stats.direct_size + EXCLUDED.direct_size, " +
+                "  total_file_count = folder_stats.total_file_count + EXCLUDED.total_file_count, " +
+                "  total_size = folder_stats.total_size + EXCLUDED.total_size";
+        Query query = entityManager.createNativeQuery(sql).setHint(HINT_NATIVE_SPACES, "folder_stats");
+        for (int i = 0; i < deltas.size(); i++) {
+            FolderStatsDelta delta = deltas.get(i);
+            query.setParameter("folder" + i, delta.getFolderId());
+            query.setParameter("count" + i, delta.getCountDelta());
+            query.setParameter("size" + i, delta.getSizeDelta());
+        }
+        query.executeUpdate();
+    }
+
+    private void applyTypeDeltas(List<FolderStatsDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < deltas.size(); i++) {
+            rows.add("(CAST(:folder" + i + " AS uuid), CAST(:type" + i + " AS uuid), CAST(:count" + i + " AS bigint))");
+        }
+        String sql = "INSERT INTO folder_type_stats (folder_id, file_type_id, direct_count, total_count) " +
+                "SELECT h.ancestor_id, d.file_type_id, " +
+                "  SUM(CASE WHEN h.depth = 0 THEN d.count_delta ELSE 0 END), SUM(d.count_delta) " +
+                "FROM (VALUES " + String.join(", ", rows) + ") AS d(folder_id, file_type_id, count_delta) " +
+                "JOIN folder_hierarchy h ON h.folder_id = d.folder_id " +
+                "GROUP BY h.ancestor_id, d.file_type_id ORDER BY h.ancestor_id, d.file_type_id " +
+                "ON CONFLICT (folder_id, file_type_id) DO UPDATE SET " +
+                "  direct_count = folder_type_stats.direct_count + EXCLUDED.direct_count, " +
+                "  total_count = folder_type_stats.total_count + EXCLUDED.total_count";
+        Query query = entityManager.createNativeQuery(sql).setHint(HINT_NATIVE_SPACES, "folder_type_stats");
+        for (int i = 0; i < deltas.size(); i++) {
+            FolderStatsDelta delta = deltas.get(i);
+            query.setParameter("folder" + i, delta.getFolderId());
+            query.setParameter("type" + i, delta.getFileTypeId());
+            query.setParameter("count" + i, delta.getCountDelta());
+        }
+        query.executeUpdate();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.domain.repository;
+
+import org.example.domain.model.FolderTypeStats;
+import org.example.domain.model.FolderTypeStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_SPACES;
+
+public interface FolderTypeStatsRepository extends JpaRepository<FolderTypeStats, FolderTypeStatsId> {
+
+    interface TypeCount {
+        String getType();
+        long getDirectCount();
+        long getTotalCount();
+    }
+
+    @Query("SELECT t.type AS type, s.directCount AS directCount, s.totalCount AS totalCount " +
+            "FROM FolderTypeStats s, FileType t " +
+            "WHERE t.id = s.id.fileTypeId AND s.id.folderId = :folderId AND s.totalCount > 0 " +
+            "ORDER BY t.type")
+    List<TypeCount> findTypeCounts(@Param("folderId") UUID folderId);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_type_stats"))
+    @Query(value = "INSERT INTO folder_type_stats (folder_id, file_type_id, direct_count, total_count) " +
+            "SELECT h.ancestor_id, s.file_type_id, 0, :sign * s.total_count " +
+            "FROM folder_hierarchy h, folder_type_stats s WHERE h.folder_id = :parentId AND s.folder_id = :folderId " +
+            "ORDER BY h.ancestor_id, s.file_type_id " +
+            "ON CONFLICT (folder_id, file_type_id) DO UPDATE SET " +
+            "  total_count = folder_type_stats.total_count + EXCLUDED.total_count",
+            nativeQuery = true)
+    int applySubtree(@Param("folderId") UUID folderId,
+                     @Param("parentId") UUID parentId,
+                     @Param("sign") long sign);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_type_stats"))
+    @Query(value = "DELETE FROM folder_type_stats", nativeQuery = true)
+    int deleteAllRows();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "folder_type_stats"))
+    @Query(value = "INSERT INTO folder_type_stats (folder_id, file_type_id, direct_count, total_count) " +
+            "SELECT h.ancestor_id, f.file_type_id, COUNT(*) FILTER (WHERE h.depth = 0), COUNT(*) " +
+            "FROM folder_hierarchy h JOIN file f ON f.folder_id = h.folder_id " +
+            "WHERE NOT EXISTS (SELECT 1 FROM folder_hierarchy dh JOIN folder d ON d.id = dh.ancestor_id " +
+            "                  WHERE dh.folder_id = f.folder_id AND d.deleted_at IS NOT NULL) " +
+            "GROUP BY h.ancestor_id, f.file_type_id",
+            nativeQuery = true)
+    int insertAllFromFiles();
+
+    @Modifying
+    @Query("DELETE FROM FolderTypeStats s WHERE s.id.folderId IN :folderIds")
+    int deleteByFolderIdIn(@Param("folderIds") Collection<UUID> folderIds);
+}
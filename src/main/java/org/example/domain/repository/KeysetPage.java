@@ -0,0 +1,88 @@
+package org.example.domain.repository;
+
+import javax.persistence.TypedQuery;
+import java.util.UUID;
+
+/**
+ * One page of a keyset scan ordered by (sort key, id). The first page has no position;
+ * later pages start strictly after the (value, id) of the previous page's last row, so every
+ * page is an index range scan no matter how deep the client has paged.
+ */
+public final class KeysetPage {
+
+    public enum SortKey {
+        NAME("name"),
+        SIZE("size"),
+        CREATED_AT("createdAt"),
+        UPDATED_AT("updatedAt");
+
+        private final String property;
+
+        SortKey(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+    }
+
+    private final SortKey sortKey;
+    private final boolean ascending;
+    private final int limit;
+    private final Object afterValue;
+    private final UUID afterId;
+
+    public KeysetPage(SortKey sortKey, boolean ascending, int limit, Object afterValue, UUID afterId) {
+        this.sortKey = sortKey;
+        this.ascending = ascending;
+        this.limit = limit;
+        this.afterValue = afterValue;
+        this.afterId = afterId;
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // Both null on the first page
+    public Object getAfterValue() {
+        return afterValue;
+    }
+
+    public UUID getAfterId() {
+        return afterId;
+    }
+
+    // Empty on the first page. A row comparison, not the OR expansion, so Postgres can start an
+    // index range on (..., sort key, id) at the position instead of collecting and sorting the rest
+    String predicate(String alias) {
+        if (afterId == null) {
+            return "";
+        }
+        String op = ascending ? ">" : "<";
+        return "(" + alias + "." + sortKey.getProperty() + ", " + alias + ".id) " + op + " (:afterValue, :afterId)";
+    }
+
+    String orderBy(String alias) {
+        String direction = ascending ? " ASC" : " DESC";
+        return " ORDER BY " + alias + "." + sortKey.getProperty() + direction + ", " + alias + ".id" + direction;
+    }
+
+    // One row past the limit tells the caller whether another page exists
+    void bind(TypedQuery<?> query) {
+        if (afterId != null) {
+            query.setParameter("afterValue", afterValue);
+            query.setParameter("afterId", afterId);
+        }
+        query.setMaxResults(limit + 1);
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// Many files in one request, each shaped like a single POST /api/files body
+@Getter
+@Setter
+public class BatchCreateFilesRequest {
+    private List<CreateFileRequest> files;
+}
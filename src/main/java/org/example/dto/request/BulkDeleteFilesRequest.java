@@ -0,0 +1,15 @@
+package org.example.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+import java.util.UUID;
+
+@Setter
+@Getter
+public class BulkDeleteFilesRequest {
+    @NotEmpty(message = "File IDs are required")
+    private List<UUID> fileIds;
+}
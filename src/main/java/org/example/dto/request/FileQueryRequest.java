@@ -0,0 +1,35 @@
+package org.example.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+// Filters of the faceted file query, all optional and combined with AND
+@Getter
+@Setter
+public class FileQueryRequest {
+    // Only files in this folder or below it
+    private UUID folderId;
+
+    // File type names, e.g. ["pdf", "txt"]; any of them matches
+    private List<String> types;
+
+    // Size range in bytes, min inclusive and max exclusive
+    private Long minSize;
+    private Long maxSize;
+
+    // Timestamp ranges, after inclusive and before exclusive
+    private Instant createdAfter;
+    private Instant createdBefore;
+    private Instant updatedAfter;
+    private Instant updatedBefore;
+
+    // Case-insensitive name pattern, * matches any run of characters and ? a single one
+    private String name;
+
+    // Facet counts cost an extra aggregate over the matches; skip them when not needed
+    private boolean facets = true;
+}
@@ -5,8 +5,24 @@ import lombok.Setter;
 
 import java.util.UUID;
 
+// Query parameters of the filename search
 @Getter
 @Setter
 public class FindFilesRequest {
-    private UUID id;    // e.g., "txt"
-}
\ No newline at end of file
+    // Part of a file or folder name, e.g. "report" or "rep"
+    private String q;
+
+    // Only search below this folder, the whole tree when empty
+    private UUID folderId;
+
+    // file or folder, both when empty
+    private String kind;
+
+    // Fall back to names one or two typos away when few names contain the query
+    private boolean fuzzy = true;
+
+    // Opaque value from the previous page's nextCursor
+    private String cursor;
+
+    private Integer limit;
+}
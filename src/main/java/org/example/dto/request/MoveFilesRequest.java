@@ -0,0 +1,19 @@
+package org.example.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.UUID;
+
+@Setter
+@Getter
+public class MoveFilesRequest {
+    @NotEmpty(message = "File IDs are required")
+    private List<UUID> fileIds;
+
+    @NotNull(message = "Target folder path is required")
+    private String targetFolderPath;
+}
@@ -0,0 +1,14 @@
+package org.example.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.NotNull;
+
+@Setter
+@Getter
+public class MoveFolderRequest {
+    // Path of the new parent below root, "" or "/" for root itself
+    @NotNull(message = "Target path is required")
+    private String targetPath;
+}
@@ -0,0 +1,26 @@
+package org.example.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+
+@Setter
+@Getter
+public class OpenUploadSessionRequest {
+    @NotBlank(message = "Name is mandatory")
+    private String name;
+
+    private String folderPath;
+
+    @NotBlank(message = "File type is mandatory")
+    private String fileType;
+
+    @NotNull(message = "Total size is mandatory")
+    @PositiveOrZero(message = "Total size must not be negative")
+    private Long totalSize;
+
+    private Integer chunkSize;  // optional, server default when missing
+}
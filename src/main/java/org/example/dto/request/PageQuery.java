@@ -0,0 +1,20 @@
+package org.example.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Query parameters shared by the paged list endpoints
+@Setter
+@Getter
+public class PageQuery {
+    // Opaque value from the previous page's nextCursor
+    private String cursor;
+
+    private Integer limit;
+
+    // name, size, createdAt or updatedAt
+    private String sort;
+
+    // asc or desc
+    private String direction;
+}
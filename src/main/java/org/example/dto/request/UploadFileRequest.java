@@ -0,0 +1,18 @@
+package org.example.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.validation.constraints.NotBlank;
+
+@Setter
+@Getter
+public class UploadFileRequest {
+    @NotBlank(message = "Name is mandatory")
+    private String name;
+
+    private String folderPath;
+
+    @NotBlank(message = "File type is mandatory")
+    private String fileType;
+}
@@ -0,0 +1,33 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class ArchiveImportResponse {
+
+    private UUID id;
+    private UUID folderId;
+    // Nothing is written; the counts say what an import would do
+    private boolean dryRun;
+    // running, completed or failed
+    private String status;
+    private long entries;
+    // Archive bytes received so far
+    private long bytesRead;
+    private long foldersCreated;
+    private long filesCreated;
+    private long failed;
+    private List<String> newFileTypes;
+    // The first failures only, failed holds the full count; index is the entry's position in the archive
+    private List<BatchItemResult> failures;
+    private String lastError;
+    private Timestamp startedAt;
+    private Timestamp completedAt;
+
+}
@@ -0,0 +1,24 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchCreateResponse {
+
+    private int created;
+    private int failed;
+    // In request order
+    private List<BatchItemResult> items;
+
+    public BatchCreateResponse() {}
+
+    public BatchCreateResponse(int created, int failed, List<BatchItemResult> items) {
+        this.created = created;
+        this.failed = failed;
+        this.items = items;
+    }
+}
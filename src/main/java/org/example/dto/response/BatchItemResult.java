@@ -0,0 +1,24 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+public class BatchItemResult {
+
+    // Position of the item in the request
+    private int index;
+    private String folderPath;
+    private String name;
+    private String fileType;
+    // created or failed
+    private String status;
+    // Set when created
+    private UUID id;
+    // Set when failed
+    private String error;
+
+}
@@ -0,0 +1,25 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+public class BulkItemResult {
+
+    private UUID id;
+    // deleted, moved, unchanged, not_found, conflict or failed
+    private String status;
+    // Set unless the file was deleted, moved or already in place
+    private String error;
+
+    public BulkItemResult() {}
+
+    public BulkItemResult(UUID id, String status, String error) {
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkOperationResponse {
+
+    private int succeeded;
+    private int failed;
+    // One per distinct requested id, in request order
+    private List<BulkItemResult> items;
+
+    public BulkOperationResponse() {}
+
+    public BulkOperationResponse(int succeeded, int failed, List<BulkItemResult> items) {
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.items = items;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+public class ContentSearchResult {
+
+    private UUID id;
+    private String name;
+    private String fileType;
+    private String path;
+    private double score;
+    // Text around the first match; highlightStart/End mark the match inside it
+    private String snippet;
+    private int highlightStart;
+    private int highlightEnd;
+
+}
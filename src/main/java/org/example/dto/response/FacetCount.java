@@ -0,0 +1,30 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class FacetCount {
+
+    private String value;
+    private long count;
+    // Bounds of a size bucket in bytes, min inclusive and max exclusive; null for type facets
+    // and for the open end of the last bucket
+    private Long minSize;
+    private Long maxSize;
+
+    public FacetCount() {}
+
+    public FacetCount(String value, long count) {
+        this.value = value;
+        this.count = count;
+    }
+
+    public FacetCount(String value, long count, Long minSize, Long maxSize) {
+        this.value = value;
+        this.count = count;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+    }
+}
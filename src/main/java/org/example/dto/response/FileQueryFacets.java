@@ -0,0 +1,22 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// Counts over every file the query matches, not just the returned page
+@Getter
+@Setter
+public class FileQueryFacets {
+
+    private List<FacetCount> types;
+    private List<FacetCount> sizes;
+
+    public FileQueryFacets() {}
+
+    public FileQueryFacets(List<FacetCount> types, List<FacetCount> sizes) {
+        this.types = types;
+        this.sizes = sizes;
+    }
+}
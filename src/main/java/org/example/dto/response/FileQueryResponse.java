@@ -0,0 +1,19 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class FileQueryResponse extends CursorPage<FileResponse> {
+
+    // Only on the first page, later pages match the same files
+    private FileQueryFacets facets;
+
+    public FileQueryResponse() {}
+
+    public FileQueryResponse(CursorPage<FileResponse> page, FileQueryFacets facets) {
+        super(page.getItems(), page.getNextCursor(), page.getLimit());
+        this.facets = facets;
+    }
+}
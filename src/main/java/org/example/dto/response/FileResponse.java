@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.UUID;
 
 @Setter
@@ -19,14 +20,22 @@ public class FileResponse {
 
     // Constructor
     public  FileResponse() {}
-    public FileResponse(UUID id, String name, Long size, String fileType, String path, Timestamp createdAt, Timestamp updatedAt) {
+    // Hibernate hands timestamp columns to JPQL constructor expressions as java.util.Date
+    public FileResponse(UUID id, String name, Long size, String fileType, String path, Date createdAt, Date updatedAt) {
         this.id = id;
         this.name = name;
         this.size = size;
         this.fileType = fileType;
         this.path = path;
-        this.createdAt = createdAt;
-        this.updatedAt = updatedAt;
+        this.createdAt = toTimestamp(createdAt);
+        this.updatedAt = toTimestamp(updatedAt);
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        if (date == null || date instanceof Timestamp) {
+            return (Timestamp) date;
+        }
+        return new Timestamp(date.getTime());
     }
 
 }
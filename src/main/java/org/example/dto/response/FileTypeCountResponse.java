@@ -0,0 +1,21 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class FileTypeCountResponse {
+
+    private String type;
+    private long directCount;
+    private long totalCount;
+
+    public FileTypeCountResponse() {}
+
+    public FileTypeCountResponse(String type, long directCount, long totalCount) {
+        this.type = type;
+        this.directCount = directCount;
+        this.totalCount = totalCount;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class FolderDeletionResponse {
+
+    private UUID id;
+    private UUID folderId;
+    private String folderName;
+    private String folderPath;
+    private String status;
+    private Long foldersTotal;
+    private long foldersDeleted;
+    private Long filesTotal;
+    private long filesDeleted;
+    private String lastError;
+    private Timestamp createdAt;
+    private Timestamp completedAt;
+
+}
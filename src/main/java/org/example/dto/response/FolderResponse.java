@@ -16,5 +16,9 @@ public class FolderResponse {
     private String parentId;
     private Timestamp createdAt;
     private Timestamp updatedAt;
+    private long directFileCount;
+    private long directSize;
+    private long totalFileCount;
+    private long totalSize;
 
 }
\ No newline at end of file
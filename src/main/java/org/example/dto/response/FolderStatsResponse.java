@@ -0,0 +1,20 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class FolderStatsResponse {
+
+    private UUID folderId;
+    private long directFileCount;
+    private long directSize;
+    private long totalFileCount;
+    private long totalSize;
+    private List<FileTypeCountResponse> types;
+
+}
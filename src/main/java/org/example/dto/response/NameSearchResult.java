@@ -0,0 +1,24 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+public class NameSearchResult {
+
+    private UUID id;
+    // file or folder
+    private String kind;
+    private String name;
+    // Null for folders
+    private String fileType;
+    private String path;
+    private UUID parentFolderId;
+    // exact, prefix, word, substring or fuzzy
+    private String match;
+    private int score;
+
+}
@@ -0,0 +1,24 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+public class ReconciliationIssue {
+
+    // orphan_file, missing_file, size_mismatch, orphan_directory or missing_directory
+    private String kind;
+    // Relative to public/
+    private String path;
+    private UUID folderId;
+    private UUID fileId;
+    private Long expectedSize;
+    private Long actualSize;
+    // reported, repaired, skipped (consistent again on a second look) or failed
+    private String action;
+    private String detail;
+
+}
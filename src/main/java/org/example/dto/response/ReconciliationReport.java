@@ -0,0 +1,36 @@
+package org.example.dto.response;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class ReconciliationReport {
+
+    private UUID id;
+    // running, completed or failed
+    private String status;
+    private boolean repair;
+    // Every directory listed, ignoring what earlier scans found unchanged
+    private boolean full;
+    private long directoriesScanned;
+    private long directoriesSkipped;
+    private long filesChecked;
+    private long orphanFiles;
+    private long missingFiles;
+    private long sizeMismatches;
+    private long orphanDirectories;
+    private long missingDirectories;
+    private long repaired;
+    private long repairsFailed;
+    // The first issues only, the counters above are complete
+    private List<ReconciliationIssue> issues;
+    private String lastError;
+    private Timestamp startedAt;
+    private Timestamp completedAt;
+
+}
@@ -0,0 +1,57 @@
+package org.example.events;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published inside the file write transactions, the file counterpart of {@link FolderChangedEvent}.
+ * Bulk moves carry every moved id in one event.
+ */
+@Getter
+public class FileChangedEvent {
+
+    public enum Kind { CREATED, UPDATED, MOVED, DELETED }
+
+    private final Kind kind;
+    private final List<UUID> fileIds;
+    private final UUID folderId;
+    private final String name;
+    private final String fileType;
+
+    private FileChangedEvent(Kind kind, List<UUID> fileIds, UUID folderId, String name, String fileType) {
+        this.kind = kind;
+        this.fileIds = fileIds;
+        this.folderId = folderId;
+        this.name = name;
+        this.fileType = fileType;
+    }
+
+    public UUID getFileId() {
+        return fileIds.get(0);
+    }
+
+    public static FileChangedEvent created(UUID fileId, UUID folderId, String name, String fileType) {
+        return new FileChangedEvent(Kind.CREATED, Collections.singletonList(fileId), folderId, name, fileType);
+    }
+
+    // Name, type and folder as they are after the update
+    public static FileChangedEvent updated(UUID fileId, UUID folderId, String name, String fileType) {
+        return new FileChangedEvent(Kind.UPDATED, Collections.singletonList(fileId), folderId, name, fileType);
+    }
+
+    public static FileChangedEvent moved(List<UUID> fileIds, UUID folderId) {
+        return new FileChangedEvent(Kind.MOVED, fileIds, folderId, null, null);
+    }
+
+    public static FileChangedEvent deleted(UUID fileId, UUID folderId) {
+        return new FileChangedEvent(Kind.DELETED, Collections.singletonList(fileId), folderId, null, null);
+    }
+
+    // Files purged below a deleted folder, or removed in bulk
+    public static FileChangedEvent deleted(List<UUID> fileIds) {
+        return new FileChangedEvent(Kind.DELETED, fileIds, null, null, null);
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.events;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published inside the folder write transactions; listeners that keep in-memory
+ * state use {@code @TransactionalEventListener} so they only see committed changes.
+ */
+@Getter
+public class FolderChangedEvent {
+
+    public enum Kind { CREATED, RENAMED, MOVED, DELETED }
+
+    private final Kind kind;
+    private final UUID folderId;
+    private final UUID parentId;
+    private final String name;
+    private final String previousName;
+    private final UUID previousParentId;
+    private final List<UUID> removedIds;
+
+    private FolderChangedEvent(Kind kind, UUID folderId, UUID parentId, String name,
+                               String previousName, UUID previousParentId, List<UUID> removedIds) {
+        this.kind = kind;
+        this.folderId = folderId;
+        this.parentId = parentId;
+        this.name = name;
+        this.previousName = previousName;
+        this.previousParentId = previousParentId;
+        this.removedIds = removedIds;
+    }
+
+    public static FolderChangedEvent created(UUID folderId, UUID parentId, String name) {
+        return new FolderChangedEvent(Kind.CREATED, folderId, parentId, name, null, null, Collections.emptyList());
+    }
+
+    public static FolderChangedEvent renamed(UUID folderId, UUID parentId, String previousName, String name) {
+        return new FolderChangedEvent(Kind.RENAMED, folderId, parentId, name, previousName, null, Collections.emptyList());
+    }
+
+    public static FolderChangedEvent moved(UUID folderId, UUID previousParentId, UUID parentId, String name) {
+        return new FolderChangedEvent(Kind.MOVED, folderId, parentId, name, name, previousParentId, Collections.emptyList());
+    }
+
+    // removedIds covers the whole subtree, folderId included
+    public static FolderChangedEvent deleted(UUID folderId, UUID parentId, List<UUID> removedIds) {
+        return new FolderChangedEvent(Kind.DELETED, folderId, parentId, null, null, null, removedIds);
+    }
+}
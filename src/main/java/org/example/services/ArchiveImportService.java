@@ -0,0 +1,606 @@
+package org.example.services;
+
+import org.example.domain.model.FileType;
+import org.example.domain.model.Folder;
+import org.example.domain.repository.FileRepository;
+import org.example.dto.response.ArchiveImportResponse;
+import org.example.dto.response.BatchCreateResponse;
+import org.example.dto.response.BatchItemResult;
+import org.example.events.FolderChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unpacks a ZIP or TAR stream below a folder in one pass. Entries are collected into chunks;
+ * per chunk the missing folders are inserted level by level with one closure statement per
+ * level, unknown extensions become file types, and the files go through
+ * {@link FileBatchService} as JDBC batches. Small entries are hashed into the blob store on a
+ * pool of writers while the archive keeps streaming, larger ones straight from the stream.
+ * A failed import keeps the chunks it already committed.
+ */
+@Service
+public class ArchiveImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveImportService.class);
+
+    // Keeps the duplicate check's IN lists well below the driver's bind parameter limit
+    private static final int MAX_CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_FAILURES = 1000;
+    private static final int MAX_TYPE_LENGTH = 255;
+    private static final long RETAIN_FINISHED_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final FileRepository fileRepository;
+    private final FolderHierarchyService folderHierarchyService;
+    private final FolderIndex folderIndex;
+    private final FileTypeRegistry fileTypeRegistry;
+    private final FileTypeService fileTypeService;
+    private final FileBatchService fileBatchService;
+    private final BlobStore blobStore;
+    private final StorageService storageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+    private final int bufferEntryBytes;
+    private final ThreadPoolExecutor writers;
+
+    private final Map<UUID, Progress> imports = new ConcurrentHashMap<>();
+
+    public ArchiveImportService(FileRepository fileRepository,
+                                FolderHierarchyService folderHierarchyService,
+                                FolderIndex folderIndex,
+                                FileTypeRegistry fileTypeRegistry,
+                                FileTypeService fileTypeService,
+                                FileBatchService fileBatchService,
+                                BlobStore blobStore,
+                                StorageService storageService,
+                                ApplicationEventPublisher eventPublisher,
+                                TransactionTemplate transactionTemplate,
+                                EntityManager entityManager,
+                                @Value("${files.import.chunk-size:1000}") int chunkSize,
+                                @Value("${files.import.buffer-entry-bytes:65536}") int bufferEntryBytes,
+                                @Value("${files.import.writer-threads:8}") int writerThreads,
+                                @Value("${files.import.writer-queue:256}") int writerQueue) {
+        this.fileRepository = fileRepository;
+        this.folderHierarchyService = folderHierarchyService;
+        this.folderIndex = folderIndex;
+        this.fileTypeRegistry = fileTypeRegistry;
+        this.fileTypeService = fileTypeService;
+        this.fileBatchService = fileBatchService;
+        this.blobStore = blobStore;
+        this.storageService = storageService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE));
+        this.bufferEntryBytes = bufferEntryBytes;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // A full queue makes the reading request write the entry itself, which bounds the buffered bytes
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(writerQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "archive-import-writer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.writers.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
+    /**
+     * Reads the archive to its end and returns the final counts. The same counts are
+     * available from {@link #getProgress(UUID)} while the import runs.
+     */
+    public ArchiveImportResponse importArchive(UUID folderId, InputStream body, boolean dryRun, UUID importId) {
+        Folder target = folderHierarchyService.requireLive(folderId);
+        Progress progress = register(importId, folderId, dryRun);
+        Run run = new Run(target, dryRun, progress, bufferEntryBytes);
+
+        try (ArchiveReader reader = ArchiveReader.open(new CountingInputStream(body, progress.bytesRead))) {
+            ArchiveReader.Entry entry;
+            int index = 0;
+            while ((entry = reader.next()) != null) {
+                read(run, index++, entry, reader.content());
+                if (run.pending.size() >= chunkSize) {
+                    flush(run);
+                }
+            }
+            flush(run);
+            progress.finish(null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Import {} into folder {} stopped after {} entries", progress.id, folderId,
+                    progress.entries.get(), e);
+            discardPending(run);
+            progress.finish(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        return progress.toResponse();
+    }
+
+    public ArchiveImportResponse getProgress(UUID importId) {
+        Progress progress = imports.get(importId);
+        if (progress == null) {
+            throw new IllegalArgumentException("Import not found: " + importId);
+        }
+        return progress.toResponse();
+    }
+
+    private void read(Run run, int index, ArchiveReader.Entry entry, InputStream content) throws IOException {
+        run.progress.entries.incrementAndGet();
+        String path = normalize(entry.name);
+        if (path == null) {
+            fail(run, index, null, entry.name, null, "Unsafe entry path");
+            return;
+        }
+        if (entry.directory) {
+            addFolder(run, path);
+            return;
+        }
+
+        int slash = path.lastIndexOf('/');
+        String folderPath = slash >= 0 ? path.substring(0, slash) : "";
+        String fileName = path.substring(slash + 1);
+        int dot = fileName.lastIndexOf('.');
+        if (fileName.isEmpty() || dot == 0) {
+            fail(run, index, folderPath, fileName, null, "Invalid file name");
+            return;
+        }
+        if (dot < 0 || dot == fileName.length() - 1 || fileName.length() - dot - 1 > MAX_TYPE_LENGTH) {
+            fail(run, index, folderPath, fileName, null, "File type is mandatory");
+            return;
+        }
+        addFolder(run, folderPath);
+        PendingFile file = new PendingFile(index, folderPath, fileName.substring(0, dot),
+                fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+        if (!run.dryRun) {
+            file.blob = store(run, content);
+        }
+        run.pending.add(file);
+    }
+
+    // Entries that fit the buffer are written by the pool, larger ones from the stream on this thread
+    private Future<StoredBlob> store(Run run, InputStream content) throws IOException {
+        byte[] buffer = run.buffer;
+        int length = content.readNBytes(buffer, 0, buffer.length);
+        if (length < buffer.length) {
+            byte[] bytes = Arrays.copyOf(buffer, length);
+            return writers.submit(() -> blobStore.write(new ByteArrayInputStream(bytes)));
+        }
+        InputStream whole = new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length), content);
+        return CompletableFuture.completedFuture(blobStore.write(whole));
+    }
+
+    private void flush(Run run) throws IOException {
+        if (run.pending.isEmpty() && run.pendingFolders.isEmpty()) {
+            return;
+        }
+        createFolders(run);
+        Map<String, FileType> types = resolveTypes(run);
+        if (run.dryRun) {
+            checkFiles(run, types);
+        } else {
+            insertFiles(run);
+        }
+        run.pending.clear();
+    }
+
+    // Every prefix not yet known is queued, so parents are always created before their children
+    private static void addFolder(Run run, String path) {
+        for (String current = path; !current.isEmpty() && !run.folderIds.containsKey(current)
+                && run.pendingFolders.add(current); current = parentOf(current)) {
+            // Walks up until a known or already queued folder
+        }
+    }
+
+    private void createFolders(Run run) throws IOException {
+        if (run.pendingFolders.isEmpty()) {
+            return;
+        }
+        List<String> paths = new ArrayList<>(run.pendingFolders);
+        run.pendingFolders.clear();
+        paths.sort(Comparator.comparingInt(ArchiveImportService::depth).thenComparing(Comparator.naturalOrder()));
+
+        List<String> missing = new ArrayList<>();
+        for (String path : paths) {
+            // Nothing can exist yet below a folder this import creates, only other parents need a lookup
+            if (!run.createdFolders.contains(parentOf(path))) {
+                Optional<UUID> existing = folderIndex.resolve(Arrays.asList(run.absolutePath(path).split("/")));
+                if (existing.isPresent()) {
+                    run.folderIds.put(path, existing.get());
+                    continue;
+                }
+            }
+            missing.add(path);
+            run.createdFolders.add(path);
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        if (run.dryRun) {
+            missing.forEach(path -> run.folderIds.put(path, null));
+        } else {
+            run.folderIds.putAll(transactionTemplate.execute(status -> insertFolders(run, missing)));
+            // Empty folders get their directory here, files create theirs when linked
+            for (String path : missing) {
+                Files.createDirectories(storageService.getPublicRoot().resolve(run.absolutePath(path)));
+            }
+        }
+        run.progress.foldersCreated.addAndGet(missing.size());
+    }
+
+    // Rows go out as JDBC batches, closure rows with one statement per level of depth
+    private Map<String, UUID> insertFolders(Run run, List<String> missing) {
+        Map<String, UUID> created = new HashMap<>();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<UUID> level = new ArrayList<>();
+        int levelDepth = -1;
+        for (String path : missing) {
+            int depth = depth(path);
+            if (depth != levelDepth && !level.isEmpty()) {
+                // A level's closure rows are built from its parents' rows, inserted just before
+                folderHierarchyService.addFolders(level);
+                level = new ArrayList<>();
+            }
+            levelDepth = depth;
+
+            String parentPath = parentOf(path);
+            UUID parentId = created.containsKey(parentPath) ? created.get(parentPath) : run.folderIds.get(parentPath);
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            Folder folder = new Folder();
+            folder.setName(name);
+            folder.setParent(entityManager.getReference(Folder.class, parentId));
+            folder.setPath(run.absolutePath(path));
+            folder.setCreatedAt(now);
+            folder.setUpdatedAt(now);
+            entityManager.persist(folder);
+            created.put(path, folder.getId());
+            level.add(folder.getId());
+            eventPublisher.publishEvent(FolderChangedEvent.created(folder.getId(), parentId, name));
+        }
+        folderHierarchyService.addFolders(level);
+        entityManager.clear();
+        return created;
+    }
+
+    // Unknown types are created on the spot, a dry run only notes them and maps them to null
+    private Map<String, FileType> resolveTypes(Run run) {
+        Map<String, FileType> types = new HashMap<>();
+        for (PendingFile file : run.pending) {
+            if (types.containsKey(file.fileType)) {
+                continue;
+            }
+            Optional<FileType> known = fileTypeRegistry.findByType(file.fileType);
+            if (known.isPresent()) {
+                types.put(file.fileType, known.get());
+                continue;
+            }
+            run.progress.newFileTypes.add(file.fileType);
+            types.put(file.fileType, run.dryRun ? null : fileTypeService.findOrCreate(file.fileType));
+        }
+        return types;
+    }
+
+    private void insertFiles(Run run) {
+        List<FileBatchService.Item> items = new ArrayList<>(run.pending.size());
+        List<PendingFile> submitted = new ArrayList<>(run.pending.size());
+        List<StoredBlob> blobs = new ArrayList<>(run.pending.size());
+        for (PendingFile file : run.pending) {
+            StoredBlob blob;
+            try {
+                blob = file.blob.get();
+            } catch (ExecutionException e) {
+                fail(run, file, "Error saving file: " + e.getCause().getMessage());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrupted");
+            }
+            items.add(FileBatchService.Item.ofBlob(run.absolutePath(file.folderPath), file.name, file.fileType, blob));
+            submitted.add(file);
+            blobs.add(blob);
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+
+        BatchCreateResponse response = fileBatchService.createAll(items);
+        for (BatchItemResult result : response.getItems()) {
+            if ("created".equals(result.getStatus())) {
+                run.progress.filesCreated.incrementAndGet();
+            } else {
+                fail(run, submitted.get(result.getIndex()), result.getError());
+                // Written before the batch checked the item, nothing else will reference it
+                blobStore.discard(blobs.get(result.getIndex()).getHash());
+            }
+        }
+    }
+
+    // The writers may still be busy with the chunk; every blob they finish goes to the collector
+    private void discardPending(Run run) {
+        boolean interrupted = Thread.interrupted();
+        for (PendingFile file : run.pending) {
+            if (file.blob == null) {
+                continue;
+            }
+            while (true) {
+                try {
+                    blobStore.discard(file.blob.get().getHash());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // Nothing was stored
+                    break;
+                }
+            }
+        }
+        run.pending.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The same checks the import makes, against the rows of folders that already exist
+    private void checkFiles(Run run, Map<String, FileType> types) {
+        Set<UUID> folderIds = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (PendingFile file : run.pending) {
+            UUID folderId = run.folderIds.get(file.folderPath);
+            if (folderId != null && types.get(file.fileType) != null) {
+                folderIds.add(folderId);
+                names.add(file.name);
+            }
+        }
+        Set<List<Object>> existing = new HashSet<>();
+        if (!folderIds.isEmpty()) {
+            for (FileRepository.NameKey key : fileRepository.findNameKeys(folderIds, names)) {
+                existing.add(Arrays.asList(key.getFolderId(), key.getName(), key.getFileTypeId()));
+            }
+        }
+
+        for (PendingFile file : run.pending) {
+            UUID folderId = run.folderIds.get(file.folderPath);
+            FileType fileType = types.get(file.fileType);
+            boolean exists = folderId != null && fileType != null
+                    && existing.contains(Arrays.asList(folderId, file.name, fileType.getId()));
+            if (exists || !run.seenFiles.add(file.folderPath + "/" + file.name + "." + file.fileType)) {
+                fail(run, file, "File '" + file.name + "." + file.fileType + "' already exists in this folder");
+            } else {
+                run.progress.filesCreated.incrementAndGet();
+            }
+        }
+    }
+
+    private Progress register(UUID importId, UUID folderId, boolean dryRun) {
+        long cutoff = System.currentTimeMillis() - RETAIN_FINISHED_MS;
+        imports.values().removeIf(progress -> progress.completedAt != null
+                && progress.completedAt.getTime() < cutoff);
+        UUID id = importId != null ? importId : UUID.randomUUID();
+        Progress progress = new Progress(id, folderId, dryRun);
+        if (imports.putIfAbsent(id, progress) != null) {
+            throw new IllegalArgumentException("Import " + id + " already exists");
+        }
+        return progress;
+    }
+
+    private static void fail(Run run, PendingFile file, String error) {
+        fail(run, file.index, file.folderPath, file.name, file.fileType, error);
+    }
+
+    private static void fail(Run run, int index, String folderPath, String name, String fileType, String error) {
+        Progress progress = run.progress;
+        progress.failed.incrementAndGet();
+        if (progress.failures.size() < MAX_REPORTED_FAILURES) {
+            BatchItemResult result = new BatchItemResult();
+            result.setIndex(index);
+            result.setFolderPath(folderPath != null ? run.absolutePath(folderPath) : null);
+            result.setName(name);
+            result.setFileType(fileType);
+            result.setStatus("failed");
+            result.setError(error);
+            progress.failures.add(result);
+        }
+    }
+
+    // Relative path with empty and "." segments dropped; null for absolute paths and ".." (zip slip)
+    private static String normalize(String entryName) {
+        String path = entryName.replace('\\', '/');
+        if (path.startsWith("/") || path.matches("^[A-Za-z]:.*")) {
+            return null;
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                return null;
+            }
+            segments.add(segment);
+        }
+        return String.join("/", segments);
+    }
+
+    private static String parentOf(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(0, slash) : "";
+    }
+
+    private static int depth(String path) {
+        int depth = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    private static final class Run {
+        final boolean dryRun;
+        final Progress progress;
+        final String targetPath;
+        final byte[] buffer;
+        // Archive-relative folder path to id; a dry run maps the folders it would create to null
+        final Map<String, UUID> folderIds = new HashMap<>();
+        final Set<String> pendingFolders = new HashSet<>();
+        final Set<String> createdFolders = new HashSet<>();
+        final List<PendingFile> pending = new ArrayList<>();
+        // Dry runs only, the real import leaves repeats to the batch duplicate check
+        final Set<String> seenFiles = new HashSet<>();
+
+        Run(Folder target, boolean dryRun, Progress progress, int bufferSize) {
+            this.dryRun = dryRun;
+            this.progress = progress;
+            this.targetPath = target.getPath() != null ? target.getPath() : "";
+            this.buffer = new byte[bufferSize];
+            folderIds.put("", target.getId());
+        }
+
+        String absolutePath(String relativePath) {
+            if (targetPath.isEmpty()) {
+                return relativePath;
+            }
+            return relativePath.isEmpty() ? targetPath : targetPath + "/" + relativePath;
+        }
+    }
+
+    private static final class PendingFile {
+        final int index;
+        final String folderPath;
+        final String name;
+        final String fileType;
+        Future<StoredBlob> blob;
+
+        PendingFile(int index, String folderPath, String name, String fileType) {
+            this.index = index;
+            this.folderPath = folderPath;
+            this.name = name;
+            this.fileType = fileType;
+        }
+    }
+
+    private static final class Progress {
+        final UUID id;
+        final UUID folderId;
+        final boolean dryRun;
+        final Timestamp startedAt = new Timestamp(System.currentTimeMillis());
+        final AtomicLong entries = new AtomicLong();
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong foldersCreated = new AtomicLong();
+        final AtomicLong filesCreated = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final Set<String> newFileTypes = ConcurrentHashMap.newKeySet();
+        final List<BatchItemResult> failures = Collections.synchronizedList(new ArrayList<>());
+        volatile String status = "running";
+        volatile String lastError;
+        volatile Timestamp completedAt;
+
+        Progress(UUID id, UUID folderId, boolean dryRun) {
+            this.id = id;
+            this.folderId = folderId;
+            this.dryRun = dryRun;
+        }
+
+        void finish(String error) {
+            lastError = error;
+            completedAt = new Timestamp(System.currentTimeMillis());
+            status = error == null ? "completed" : "failed";
+        }
+
+        ArchiveImportResponse toResponse() {
+            ArchiveImportResponse response = new ArchiveImportResponse();
+            response.setId(id);
+            response.setFolderId(folderId);
+            response.setDryRun(dryRun);
+            response.setStatus(status);
+            response.setEntries(entries.get());
+            response.setBytesRead(bytesRead.get());
+            response.setFoldersCreated(foldersCreated.get());
+            response.setFilesCreated(filesCreated.get());
+            response.setFailed(failed.get());
+            List<String> types = new ArrayList<>(newFileTypes);
+            Collections.sort(types);
+            response.setNewFileTypes(types);
+            synchronized (failures) {
+                response.setFailures(new ArrayList<>(failures));
+            }
+            response.setLastError(lastError);
+            response.setStartedAt(startedAt);
+            response.setCompletedAt(completedAt);
+            return response;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count;
+
+        CountingInputStream(InputStream in, AtomicLong count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count.addAndGet(skipped);
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package org.example.services;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Forward-only reader over a ZIP, TAR or gzipped TAR stream, detected from the first bytes.
+ * Entries are handed out one at a time and their bytes are read straight from the stream, so
+ * nothing is buffered beyond the current block.
+ */
+abstract class ArchiveReader implements Closeable {
+
+    static final class Entry {
+        final String name;
+        final boolean directory;
+
+        Entry(String name, boolean directory) {
+            this.name = name;
+            this.directory = directory;
+        }
+    }
+
+    /** The next entry, skipping whatever is left of the current one; null at the end. */
+    abstract Entry next() throws IOException;
+
+    /** Bytes of the current entry; closing it does not close the archive. */
+    abstract InputStream content();
+
+    static ArchiveReader open(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, TarReader.BLOCK_SIZE * 16);
+        buffered.mark(4);
+        int b0 = buffered.read();
+        int b1 = buffered.read();
+        int b2 = buffered.read();
+        int b3 = buffered.read();
+        buffered.reset();
+        if (b0 == 'P' && b1 == 'K' && (b2 == 3 && b3 == 4 || b2 == 5 && b3 == 6)) {
+            return new ZipReader(buffered);
+        }
+        if (b0 == 0x1f && b1 == 0x8b) {
+            return new TarReader(new BufferedInputStream(new GZIPInputStream(buffered, 64 * 1024), 64 * 1024));
+        }
+        if (b0 < 0) {
+            throw new IOException("Archive is empty");
+        }
+        return new TarReader(buffered);
+    }
+
+    private static final class ZipReader extends ArchiveReader {
+
+        private final ZipInputStream zip;
+        private final InputStream content;
+
+        ZipReader(InputStream in) {
+            this.zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+            this.content = new FilterInputStream(zip) {
+                @Override
+                public void close() {
+                    // The entry ends at the next getNextEntry
+                }
+            };
+        }
+
+        @Override
+        Entry next() throws IOException {
+            ZipEntry entry = zip.getNextEntry();
+            return entry == null ? null : new Entry(entry.getName(), entry.isDirectory());
+        }
+
+        @Override
+        InputStream content() {
+            return content;
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    // ustar with the GNU long name and pax path extensions; links and special files are skipped
+    private static final class TarReader extends ArchiveReader {
+
+        static final int BLOCK_SIZE = 512;
+
+        private final InputStream in;
+        private final byte[] header = new byte[BLOCK_SIZE];
+        private long remaining;
+        private long padding;
+        private boolean finished;
+        private boolean started;
+
+        private final InputStream content = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated TAR entry");
+                }
+                remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Truncated TAR entry");
+                }
+                remaining -= read;
+                return read;
+            }
+
+            @Override
+            public void close() {
+                // The rest of the entry is skipped by the next call to next()
+            }
+        };
+
+        TarReader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        Entry next() throws IOException {
+            String longName = null;
+            while (!finished) {
+                skipFully(remaining + padding);
+                remaining = 0;
+                padding = 0;
+                if (!readBlock()) {
+                    finished = true;
+                    break;
+                }
+                if (isZeroBlock()) {
+                    // End of archive marker
+                    finished = true;
+                    break;
+                }
+                if (!checksumMatches()) {
+                    throw new IOException(started ? "Corrupt TAR header" : "Not a ZIP or TAR archive");
+                }
+                started = true;
+
+                long size = parseSize();
+                remaining = size;
+                padding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+                char type = (char) header[156];
+                if (type == 'L') {
+                    longName = trimNul(readString(size));
+                    continue;
+                }
+                if (type == 'x') {
+                    String path = paxPath(readString(size));
+                    if (path != null) {
+                        longName = path;
+                    }
+                    continue;
+                }
+                String name = longName != null ? longName : headerName();
+                longName = null;
+                if (type == '5') {
+                    return new Entry(name.endsWith("/") ? name : name + "/", true);
+                }
+                if (type == '0' || type == '\0' || type == '7') {
+                    return new Entry(name, false);
+                }
+                // Links, devices, global pax headers and the like carry nothing to import
+            }
+            return null;
+        }
+
+        @Override
+        InputStream content() {
+            return content;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private boolean readBlock() throws IOException {
+            int offset = 0;
+            while (offset < BLOCK_SIZE) {
+                int read = in.read(header, offset, BLOCK_SIZE - offset);
+                if (read < 0) {
+                    if (offset == 0) {
+                        return false;
+                    }
+                    throw new EOFException(started ? "Truncated TAR header" : "Not a ZIP or TAR archive");
+                }
+                offset += read;
+            }
+            return true;
+        }
+
+        private boolean isZeroBlock() {
+            for (byte b : header) {
+                if (b != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // The checksum field counts as eight spaces
+        private boolean checksumMatches() {
+            long expected = parseOctal(148, 8);
+            long sum = 0;
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                sum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+            }
+            return sum == expected;
+        }
+
+        private long parseSize() {
+            // GNU base-256 for entries of 8GB and more
+            if ((header[124] & 0x80) != 0) {
+                long size = 0;
+                for (int i = 125; i < 136; i++) {
+                    size = (size << 8) | (header[i] & 0xff);
+                }
+                return size;
+            }
+            return parseOctal(124, 12);
+        }
+
+        private long parseOctal(int offset, int length) {
+            long value = 0;
+            for (int i = offset; i < offset + length; i++) {
+                byte b = header[i];
+                if (b >= '0' && b <= '7') {
+                    value = value * 8 + (b - '0');
+                } else if (b == 0 || (b == ' ' && value > 0)) {
+                    break;
+                }
+            }
+            return value;
+        }
+
+        private String headerName() {
+            String name = field(0, 100);
+            String magic = field(257, 6);
+            if (magic.startsWith("ustar")) {
+                String prefix = field(345, 155);
+                if (!prefix.isEmpty()) {
+                    name = prefix + "/" + name;
+                }
+            }
+            return name;
+        }
+
+        private String field(int offset, int length) {
+            int end = offset;
+            while (end < offset + length && header[end] != 0) {
+                end++;
+            }
+            return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+        }
+
+        private String readString(long size) throws IOException {
+            if (size > 1024 * 1024) {
+                throw new IOException("TAR extended header too large");
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) size);
+            content.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+
+        // Records are "<length> <key>=<value>\n"
+        private static String paxPath(String records) {
+            String path = null;
+            int position = 0;
+            while (position < records.length()) {
+                int space = records.indexOf(' ', position);
+                if (space < 0) {
+                    break;
+                }
+                int length;
+                try {
+                    length = Integer.parseInt(records.substring(position, space));
+                } catch (NumberFormatException e) {
+                    break;
+                }
+                int end = Math.min(position + length, records.length());
+                String record = records.substring(space + 1, end);
+                if (record.startsWith("path=")) {
+                    path = record.substring(5, record.endsWith("\n") ? record.length() - 1 : record.length());
+                }
+                if (length <= 0) {
+                    break;
+                }
+                position = end;
+            }
+            return path;
+        }
+
+        private static String trimNul(String value) {
+            int end = value.indexOf('\0');
+            return end >= 0 ? value.substring(0, end) : value;
+        }
+
+        private void skipFully(long count) throws IOException {
+            while (count > 0) {
+                long skipped = in.skip(count);
+                if (skipped <= 0) {
+                    if (in.read() < 0) {
+                        throw new EOFException("Truncated TAR entry");
+                    }
+                    skipped = 1;
+                }
+                count -= skipped;
+            }
+        }
+    }
+}
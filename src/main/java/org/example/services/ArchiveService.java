@@ -0,0 +1,168 @@
+package org.example.services;
+
+import org.example.domain.model.Folder;
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a folder subtree as a ZIP. Folders and files come from forward-only cursors over the
+ * closure table and every entry is copied through one buffer, so memory use stays flat however
+ * large the archive is. Types that are already compressed are STORED instead of deflated again.
+ */
+@Service
+public class ArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FolderRepository folderRepository;
+    private final FileRepository fileRepository;
+    private final FolderHierarchyService folderHierarchyService;
+    private final StorageService storageService;
+    private final BlobStore blobStore;
+    private final Set<String> storedTypes;
+
+    public ArchiveService(FolderRepository folderRepository,
+                          FileRepository fileRepository,
+                          FolderHierarchyService folderHierarchyService,
+                          StorageService storageService,
+                          BlobStore blobStore,
+                          @Value("${archive.stored-types:png,jpg,jpeg,gif,webp,zip,gz,7z,docx,xlsx,pptx,mp3,mp4}")
+                          String storedTypes) {
+        this.folderRepository = folderRepository;
+        this.fileRepository = fileRepository;
+        this.folderHierarchyService = folderHierarchyService;
+        this.storageService = storageService;
+        this.blobStore = blobStore;
+        this.storedTypes = Arrays.stream(storedTypes.split(","))
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    // Checked before the response starts, so a bad id still gets a 400 instead of a broken download
+    @Transactional(readOnly = true)
+    public String getArchiveName(UUID folderId) {
+        Folder folder = folderHierarchyService.requireLive(folderId);
+        return rootEntryName(folder) + ".zip";
+    }
+
+    // The cursors only stay open inside a transaction, so the whole write runs in one
+    @Transactional(readOnly = true)
+    public void writeArchive(UUID folderId, OutputStream out) throws IOException {
+        Folder folder = folderHierarchyService.requireLive(folderId);
+        String rootPath = folder.getPath() == null ? "" : folder.getPath();
+        String rootName = rootEntryName(folder);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.putNextEntry(new ZipEntry(rootName + "/"));
+        zip.closeEntry();
+
+        // Directory entries keep empty folders in the archive
+        try (Stream<String> folders = folderRepository.streamSubtreePaths(folderId)) {
+            Iterator<String> paths = folders.iterator();
+            while (paths.hasNext()) {
+                zip.putNextEntry(new ZipEntry(entryDirectory(rootName, rootPath, paths.next())));
+                zip.closeEntry();
+            }
+        }
+
+        try (Stream<FileRepository.ArchiveFile> files = fileRepository.streamSubtreeForArchive(folderId)) {
+            Iterator<FileRepository.ArchiveFile> rows = files.iterator();
+            while (rows.hasNext()) {
+                writeFile(zip, rows.next(), rootName, rootPath, buffer);
+            }
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private void writeFile(ZipOutputStream zip, FileRepository.ArchiveFile file, String rootName, String rootPath,
+                           byte[] buffer) throws IOException {
+        String fileName = file.getName() + "." + file.getFileType();
+        Path source = file.getContentHash() != null
+                ? blobStore.resolve(file.getContentHash())
+                : resolvePublicFile(file.getFolderPath(), fileName);
+        if (!Files.isReadable(source)) {
+            // The response is already under way, so a missing file is left out rather than failing it
+            log.warn("Skipping '{}' in archive of '{}': {} is not readable", fileName, rootName, source);
+            return;
+        }
+
+        ZipEntry entry = new ZipEntry(entryDirectory(rootName, rootPath, file.getFolderPath()) + fileName);
+        if (file.getUpdatedAt() != null) {
+            entry.setTime(file.getUpdatedAt().getTime());
+        }
+        if (storedTypes.contains(file.getFileType().toLowerCase(Locale.ROOT))) {
+            // STORED entries carry size and CRC in the local header, so they need a pass over the
+            // bytes first; blobs never change once written, so both passes read the same content
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (InputStream in = Files.newInputStream(source)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    size += read;
+                }
+            }
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        } else {
+            entry.setMethod(ZipEntry.DEFLATED);
+        }
+
+        zip.putNextEntry(entry);
+        try (InputStream in = Files.newInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                zip.write(buffer, 0, read);
+            }
+        }
+        zip.closeEntry();
+    }
+
+    private static String rootEntryName(Folder folder) {
+        return folder.getPath() == null || folder.getPath().isEmpty() ? "root" : folder.getName();
+    }
+
+    // Folder paths are relative to public/; entries are relative to the archived folder
+    private static String entryDirectory(String rootName, String rootPath, String folderPath) {
+        String relative = folderPath == null ? "" : folderPath;
+        if (!rootPath.isEmpty()) {
+            relative = relative.length() > rootPath.length() ? relative.substring(rootPath.length() + 1) : "";
+        }
+        return relative.isEmpty() ? rootName + "/" : rootName + "/" + relative + "/";
+    }
+
+    private Path resolvePublicFile(String folderPath, String fileName) {
+        Path directory = folderPath == null || folderPath.isEmpty()
+                ? storageService.getPublicRoot()
+                : storageService.getPublicRoot().resolve(folderPath);
+        return directory.resolve(fileName);
+    }
+}
@@ -0,0 +1,172 @@
+package org.example.services;
+
+import org.example.domain.model.FileMetadata;
+import org.example.domain.repository.FileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves file bytes out of the legacy {@code file.data} column into the blob store.
+ * Rows are processed in id order, one transaction per batch, so a restart picks up
+ * where the previous run stopped. Rows written by streamed uploads never had a column
+ * copy and are hashed from their public/ file instead.
+ */
+@Service
+public class BlobMigrationService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobMigrationService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final StorageService storageService;
+    private final int batchSize;
+
+    public BlobMigrationService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                FileRepository fileRepository,
+                                BlobStore blobStore,
+                                StorageService storageService,
+                                @Value("${storage.migration.batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.fileRepository = fileRepository;
+        this.blobStore = blobStore;
+        this.storageService = storageService;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = migrate();
+        if (migrated > 0) {
+            log.info("Moved {} file(s) into the blob store", migrated);
+        }
+    }
+
+    public int migrate() {
+        String legacyType = legacyColumnType();
+        if (legacyType != null) {
+            // ddl-auto=update never drops NOT NULL, new rows leave the column empty
+            jdbcTemplate.execute("ALTER TABLE file ALTER COLUMN data DROP NOT NULL");
+        }
+
+        int migrated = 0;
+        UUID lastId = null;
+        while (true) {
+            List<UUID> ids = lastId == null
+                    ? jdbcTemplate.queryForList(
+                            "SELECT id FROM file WHERE content_hash IS NULL ORDER BY id LIMIT ?",
+                            UUID.class, batchSize)
+                    : jdbcTemplate.queryForList(
+                            "SELECT id FROM file WHERE content_hash IS NULL AND id > ? ORDER BY id LIMIT ?",
+                            UUID.class, lastId, batchSize);
+            if (ids.isEmpty()) {
+                return migrated;
+            }
+
+            Integer done = transactionTemplate.execute(status -> migrateBatch(ids, legacyType));
+            migrated += done != null ? done : 0;
+            lastId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private int migrateBatch(List<UUID> ids, String legacyType) {
+        int migrated = 0;
+        for (UUID id : ids) {
+            FileMetadata file = fileRepository.findById(id).orElse(null);
+            if (file == null) {
+                continue;
+            }
+            try {
+                Path publicPath = storageService.resolveFilePath(
+                        file.getFolder(), file.getName(), file.getFileType().getType());
+
+                StoredBlob blob = readLegacyColumn(id, legacyType);
+                if (blob == null && Files.exists(publicPath)) {
+                    try (InputStream in = Files.newInputStream(publicPath)) {
+                        blob = blobStore.write(in);
+                    }
+                }
+                if (blob == null) {
+                    log.warn("No content found for file {}, leaving it unmigrated", id);
+                    continue;
+                }
+
+                blobStore.acquire(blob);
+                file.setContentHash(blob.getHash());
+                file.setSize(blob.getSize());
+                storageService.link(blobStore.resolve(blob.getHash()), publicPath);
+                clearLegacyColumn(id, legacyType);
+                migrated++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to migrate file " + id, e);
+            }
+        }
+        return migrated;
+    }
+
+    private StoredBlob readLegacyColumn(UUID id, String legacyType) {
+        if (legacyType == null) {
+            return null;
+        }
+        return jdbcTemplate.query("SELECT data FROM file WHERE id = ?", rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            InputStream in;
+            if ("oid".equals(legacyType)) {
+                // @Lob byte[] maps to a large object on PostgreSQL, stream it instead of materialising it
+                rs.getLong(1);
+                if (rs.wasNull()) {
+                    return null;
+                }
+                in = rs.getBlob(1).getBinaryStream();
+            } else {
+                in = rs.getBinaryStream(1);
+            }
+            if (in == null) {
+                return null;
+            }
+            try (InputStream content = in) {
+                return blobStore.write(content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, id);
+    }
+
+    private void clearLegacyColumn(UUID id, String legacyType) {
+        if (legacyType == null) {
+            return;
+        }
+        if ("oid".equals(legacyType)) {
+            jdbcTemplate.query("SELECT lo_unlink(data) FROM file WHERE id = ? AND data IS NOT NULL",
+                    rs -> null, id);
+        }
+        jdbcTemplate.update("UPDATE file SET data = NULL WHERE id = ?", id);
+    }
+
+    private String legacyColumnType() {
+        List<String> types = jdbcTemplate.queryForList(
+                "SELECT data_type FROM information_schema.columns " +
+                        "WHERE table_name = 'file' AND column_name = 'data'",
+                String.class);
+        return types.isEmpty() ? null : types.get(0);
+    }
+}
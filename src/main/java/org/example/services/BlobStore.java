@@ -0,0 +1,255 @@
+package org.example.services;
+
+import org.example.domain.repository.ContentBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Content addressed store for file bytes. Blobs live under {@code <root>/ab/cd/<sha256>}
+ * and are shared by every file row with the same content, {@code content_blob.ref_count}
+ * tracks how many rows point at each one. Blobs whose count dropped to zero are removed by
+ * {@link #collect()} after a grace period, under a per-hash lock that {@link #acquire} takes
+ * as well, so bytes are never deleted under a reference that is about to commit.
+ */
+@Service
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final TransactionTemplate newTransaction;
+    private final Path root;
+    private final Path tempDir;
+    private final long graceMs;
+    private final int collectBatchSize;
+
+    public BlobStore(ContentBlobRepository contentBlobRepository,
+                     TransactionTemplate transactionTemplate,
+                     @Value("${storage.blob-dir:blobs}") String blobDir,
+                     @Value("${storage.blob-gc.grace-ms:600000}") long graceMs,
+                     @Value("${storage.blob-gc.batch-size:500}") int collectBatchSize) {
+        this.contentBlobRepository = contentBlobRepository;
+        this.newTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.root = Paths.get(blobDir).toAbsolutePath().normalize();
+        this.tempDir = root.resolve("tmp");
+        this.graceMs = graceMs;
+        this.collectBatchSize = collectBatchSize;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path resolve(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public boolean exists(String hash) {
+        return Files.exists(resolve(hash));
+    }
+
+    /**
+     * Streams the content into the store while hashing it. Identical content is kept once,
+     * a second write of the same bytes only drops its temp file.
+     */
+    public StoredBlob write(InputStream in) throws IOException {
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "blob-", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            return place(temp, toHex(digest.digest()), size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Moves an already written file into the store. The source must be on the same
+     * filesystem as the store so the final rename stays atomic.
+     */
+    public StoredBlob adopt(Path source) throws IOException {
+        MessageDigest digest = newDigest();
+        long size = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        return place(source, toHex(digest.digest()), size);
+    }
+
+    // Increments the reference count, inserting the blob row on first use
+    public void acquire(StoredBlob blob) {
+        acquire(blob, 1);
+    }
+
+    public void acquire(StoredBlob blob, int count) {
+        contentBlobRepository.lock(blob.getHash());
+        contentBlobRepository.acquireMany(blob.getHash(), blob.getSize(), count);
+        // The lock keeps the collector out from here until commit; it may have run just before
+        if (!exists(blob.getHash())) {
+            throw new IllegalStateException("Blob " + blob.getHash() + " was collected before it could be referenced");
+        }
+    }
+
+    // Unreferenced blobs stay on disk until collect() finds them past the grace period
+    public void release(String hash) {
+        if (hash == null) {
+            return;
+        }
+        contentBlobRepository.decrement(hash);
+    }
+
+    public void releaseForFiles(List<UUID> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        contentBlobRepository.decrementForFiles(fileIds);
+    }
+
+    /**
+     * Deletes blobs that have had no references for the grace period. Each one is re-checked
+     * under its hash lock in a transaction of its own, so a concurrent acquire either commits
+     * first and keeps the blob, or waits and then finds it gone.
+     */
+    @Scheduled(fixedDelayString = "${storage.blob-gc.interval-ms:60000}")
+    public void collect() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - graceMs);
+        List<String> candidates = contentBlobRepository.findReleasedBefore(cutoff, PageRequest.of(0, collectBatchSize));
+        int collected = 0;
+        for (String hash : candidates) {
+            Boolean deleted = newTransaction.execute(status -> {
+                contentBlobRepository.lock(hash);
+                if (contentBlobRepository.deleteReleasedBefore(hash, cutoff) == 0) {
+                    return false;
+                }
+                deleteQuietly(resolve(hash));
+                return true;
+            });
+            if (Boolean.TRUE.equals(deleted)) {
+                collected++;
+            }
+        }
+        if (collected > 0) {
+            log.info("Collected {} unreferenced blobs", collected);
+        }
+    }
+
+    private StoredBlob place(Path temp, String hash, long size) throws IOException {
+        Path target = resolve(hash);
+        if (Files.exists(target)) {
+            // Keeps a released blob from being collected before our reference commits
+            contentBlobRepository.touchReleased(hash);
+            if (Files.exists(target)) {
+                Files.deleteIfExists(temp);
+                return new StoredBlob(hash, size);
+            }
+        }
+
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Same content landed concurrently
+            Files.deleteIfExists(temp);
+            return new StoredBlob(hash, size);
+        }
+        deleteOnRollback(hash);
+        return new StoredBlob(hash, size);
+    }
+
+    // For blobs written outside the transaction that will reference them; a rollback hands the
+    // blob to the collector instead of deleting it, another writer may be about to reuse it
+    public void deleteOnRollback(String hash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                discard(hash);
+            }
+        });
+    }
+
+    // Hands a blob nobody ended up referencing to the collector
+    public void discard(String hash) {
+        try {
+            Path blob = resolve(hash);
+            if (Files.exists(blob)) {
+                long size = Files.size(blob);
+                newTransaction.executeWithoutResult(tx -> contentBlobRepository.registerReleased(hash, size));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not hand blob {} to the collector", hash, e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // An unreferenced blob only costs disk space
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            out[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,603 @@
+package org.example.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over file contents, kept as immutable segments on disk plus one in-memory
+ * segment for recent documents. The in-memory segment is written out once it holds enough
+ * documents or on the next commit; when there are too many segments the smallest ones are
+ * merged, dropping deleted documents. A manifest lists the live segments and their deletions.
+ * <p>
+ * Writes come from a single indexing thread; queries run concurrently under the read lock.
+ * An updated file is indexed again and its older copy marked deleted.
+ */
+@Component
+public class ContentIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentIndex.class);
+
+    private static final int MANIFEST_MAGIC = 0x43494d46;
+    private static final int MANIFEST_VERSION = 1;
+    private static final String MANIFEST_FILE = "segments.manifest";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int flushDocs;
+    private final int maxSegments;
+    private final int mergeFactor;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock, oldest first
+    private final List<ContentSegment> segments = new ArrayList<>();
+    private final Map<UUID, DocRef> locations = new HashMap<>();
+    private MemorySegment buffer = new MemorySegment();
+    private long nextGeneration = 1;
+    private boolean dirty;
+    private Instant committedAt;
+
+    public ContentIndex(@Value("${search.index-dir:index}") String indexDir,
+                        @Value("${search.content.flush-docs:1000}") int flushDocs,
+                        @Value("${search.content.max-segments:10}") int maxSegments,
+                        @Value("${search.content.merge-factor:4}") int mergeFactor) {
+        this.directory = Paths.get(indexDir).resolve("content");
+        this.flushDocs = flushDocs;
+        this.maxSegments = maxSegments;
+        this.mergeFactor = Math.max(2, mergeFactor);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        Set<Path> listed = new HashSet<>();
+        if (Files.exists(manifest)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+                if (in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION) {
+                    throw new IOException("Unknown content index manifest format: " + manifest);
+                }
+                nextGeneration = in.readLong();
+                committedAt = Instant.ofEpochMilli(in.readLong());
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    long generation = in.readLong();
+                    byte[] bits = new byte[in.readInt()];
+                    in.readFully(bits);
+                    Path file = segmentFile(generation);
+                    segments.add(ContentSegment.open(file, generation, BitSet.valueOf(bits)));
+                    listed.add(file);
+                }
+            }
+        }
+
+        // Oldest first, so a file left live in two segments by a crash resolves to its newest copy
+        for (ContentSegment segment : segments) {
+            for (int doc = 0; doc < segment.docCount(); doc++) {
+                if (!segment.isDeleted(doc)) {
+                    DocRef previous = locations.put(segment.docId(doc), new DocRef(segment, doc));
+                    if (previous != null) {
+                        previous.reader.delete(previous.doc);
+                    }
+                }
+            }
+        }
+
+        // Segments written or merged away after the last manifest
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                if (!listed.contains(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        log.info("Opened content index: {} documents in {} segments", locations.size(), segments.size());
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closeSegments(segments);
+            segments.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** When the last commit happened, null for an index that has never been committed. */
+    public Instant getCommittedAt() {
+        return committedAt;
+    }
+
+    public boolean contains(UUID fileId) {
+        lock.readLock().lock();
+        try {
+            return locations.containsKey(fileId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Indexing thread only
+    void index(UUID fileId, List<String> terms) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(fileId);
+            locations.put(fileId, new DocRef(buffer, buffer.add(fileId, terms)));
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (buffer.docCount() >= flushDocs) {
+            flush();
+        }
+    }
+
+    // Indexing thread only
+    void delete(UUID fileId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(fileId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Writes out buffered documents, merges if there are too many segments and saves the manifest. */
+    void commit() {
+        if (buffer.docCount() > 0) {
+            flush();
+        }
+        while (segments.size() > maxSegments) {
+            merge();
+        }
+        if (dirty || committedAt == null) {
+            writeManifest();
+        }
+    }
+
+    // Drops every document, for a full rebuild
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            List<ContentSegment> old = new ArrayList<>(segments);
+            segments.clear();
+            locations.clear();
+            buffer = new MemorySegment();
+            closeSegments(old);
+            for (ContentSegment segment : old) {
+                Files.deleteIfExists(segment.getFile());
+            }
+            committedAt = null;
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Documents matching every clause, best first. A clause is one term or a phrase of
+     * consecutive terms. Scores are summed tf-idf over the query terms.
+     */
+    public List<Hit> search(List<List<String>> clauses, int maxResults) {
+        Set<String> terms = new LinkedHashSet<>();
+        clauses.forEach(terms::addAll);
+
+        lock.readLock().lock();
+        try {
+            List<ContentSegmentReader> readers = new ArrayList<>(segments);
+            readers.add(buffer);
+
+            Map<String, Double> idf = new HashMap<>();
+            double totalDocs = Math.max(1, locations.size());
+            for (String term : terms) {
+                int docFreq = 0;
+                for (ContentSegmentReader reader : readers) {
+                    docFreq += reader.docFreq(term);
+                }
+                if (docFreq == 0) {
+                    return new ArrayList<>();
+                }
+                idf.put(term, Math.log(1 + totalDocs / docFreq));
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::getScore));
+            for (ContentSegmentReader reader : readers) {
+                searchReader(reader, clauses, terms, idf, top, maxResults);
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(Hit::getScore).reversed());
+            return hits;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the content index", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", locations.size());
+            stats.put("segments", segments.size());
+            stats.put("bufferedDocuments", buffer.docCount());
+            int deleted = 0;
+            for (ContentSegment segment : segments) {
+                deleted += segment.docCount() - segment.liveCount();
+            }
+            stats.put("deletedDocuments", deleted);
+            stats.put("committedAt", committedAt);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    private void searchReader(ContentSegmentReader reader, List<List<String>> clauses, Set<String> terms,
+                              Map<String, Double> idf, PriorityQueue<Hit> top, int maxResults) throws IOException {
+        Map<String, ContentSegment.Postings> postings = new HashMap<>();
+        for (String term : terms) {
+            ContentSegment.Postings termPostings = reader.postings(term);
+            if (termPostings == null) {
+                return;
+            }
+            postings.put(term, termPostings);
+        }
+
+        // Walk the rarest term, probe the others
+        String[] order = terms.toArray(new String[0]);
+        Arrays.sort(order, Comparator.comparingInt(term -> postings.get(term).size()));
+        ContentSegment.Postings driver = postings.get(order[0]);
+        Map<String, int[]> docPositions = new HashMap<>();
+
+        for (int i = 0; i < driver.docs.length; i++) {
+            int doc = driver.docs[i];
+            if (reader.isDeleted(doc)) {
+                continue;
+            }
+            docPositions.clear();
+            docPositions.put(order[0], driver.positions[i]);
+            boolean matched = true;
+            for (int t = 1; t < order.length && matched; t++) {
+                ContentSegment.Postings other = postings.get(order[t]);
+                int index = Arrays.binarySearch(other.docs, doc);
+                if (index < 0) {
+                    matched = false;
+                } else {
+                    docPositions.put(order[t], other.positions[index]);
+                }
+            }
+            if (!matched || !phrasesMatch(clauses, docPositions)) {
+                continue;
+            }
+
+            double score = 0;
+            for (String term : order) {
+                score += (1 + Math.log(docPositions.get(term).length)) * idf.get(term);
+            }
+            Hit hit = new Hit(reader.docId(doc), score);
+            if (top.size() < maxResults) {
+                top.add(hit);
+            } else if (score > top.peek().getScore()) {
+                top.poll();
+                top.add(hit);
+            }
+        }
+    }
+
+    private static boolean phrasesMatch(List<List<String>> clauses, Map<String, int[]> docPositions) {
+        for (List<String> clause : clauses) {
+            if (clause.size() > 1 && !phraseMatches(clause, docPositions)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean phraseMatches(List<String> phrase, Map<String, int[]> docPositions) {
+        for (int start : docPositions.get(phrase.get(0))) {
+            boolean matched = true;
+            for (int i = 1; i < phrase.size() && matched; i++) {
+                matched = Arrays.binarySearch(docPositions.get(phrase.get(i)), start + i) >= 0;
+            }
+            if (matched) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeLocked(UUID fileId) {
+        DocRef previous = locations.remove(fileId);
+        if (previous != null) {
+            previous.reader.delete(previous.doc);
+            dirty = true;
+        }
+    }
+
+    private void flush() {
+        MemorySegment flushing = buffer;
+        long generation = nextGeneration++;
+        Path file = segmentFile(generation);
+        try {
+            // The buffer only changes on this thread, so it is written outside the lock
+            try (ContentSegment.Writer writer = new ContentSegment.Writer(file)) {
+                for (Map.Entry<String, ContentSegment.PostingsBuilder> term : new TreeMap<>(flushing.terms).entrySet()) {
+                    writer.addTerm(term.getKey(), term.getValue().build());
+                }
+                writer.finish(flushing.docIds);
+            }
+            ContentSegment segment = ContentSegment.open(file, generation, (BitSet) flushing.deleted.clone());
+
+            lock.writeLock().lock();
+            try {
+                segments.add(segment);
+                for (int doc = 0; doc < flushing.docCount(); doc++) {
+                    if (!flushing.isDeleted(doc)) {
+                        locations.put(flushing.docId(doc), new DocRef(segment, doc));
+                    }
+                }
+                buffer = new MemorySegment();
+                dirty = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write content index segment " + file, e);
+        }
+    }
+
+    private void merge() {
+        List<ContentSegment> candidates = new ArrayList<>(segments);
+        candidates.sort(Comparator.comparingInt(ContentSegment::liveCount));
+        List<ContentSegment> merging = candidates.subList(0, Math.min(mergeFactor, candidates.size()));
+        merging.sort(Comparator.comparingLong(ContentSegment::getGeneration));
+
+        long generation = nextGeneration++;
+        Path file = segmentFile(generation);
+        try {
+            // New doc numbers: live docs of each segment in turn, so remapped postings stay sorted
+            List<UUID> docIds = new ArrayList<>();
+            int[][] remap = new int[merging.size()][];
+            for (int s = 0; s < merging.size(); s++) {
+                ContentSegment segment = merging.get(s);
+                remap[s] = new int[segment.docCount()];
+                for (int doc = 0; doc < segment.docCount(); doc++) {
+                    if (segment.isDeleted(doc)) {
+                        remap[s][doc] = -1;
+                    } else {
+                        remap[s][doc] = docIds.size();
+                        docIds.add(segment.docId(doc));
+                    }
+                }
+            }
+
+            try (ContentSegment.Writer writer = new ContentSegment.Writer(file)) {
+                int[] cursors = new int[merging.size()];
+                PriorityQueue<Integer> next = new PriorityQueue<>(
+                        Comparator.comparing((Integer s) -> merging.get(s).term(cursors[s])));
+                for (int s = 0; s < merging.size(); s++) {
+                    if (merging.get(s).termCount() > 0) {
+                        next.add(s);
+                    }
+                }
+                while (!next.isEmpty()) {
+                    String term = merging.get(next.peek()).term(cursors[next.peek()]);
+                    List<Integer> sources = new ArrayList<>();
+                    while (!next.isEmpty() && merging.get(next.peek()).term(cursors[next.peek()]).equals(term)) {
+                        sources.add(next.poll());
+                    }
+                    sources.sort(null);
+
+                    ContentSegment.PostingsBuilder builder = new ContentSegment.PostingsBuilder();
+                    for (int s : sources) {
+                        ContentSegment.Postings postings = merging.get(s).postingsAt(cursors[s]);
+                        for (int i = 0; i < postings.docs.length; i++) {
+                            int doc = remap[s][postings.docs[i]];
+                            if (doc >= 0) {
+                                builder.add(doc, postings.positions[i]);
+                            }
+                        }
+                        if (++cursors[s] < merging.get(s).termCount()) {
+                            next.add(s);
+                        }
+                    }
+                    // Terms only deleted documents used disappear here
+                    if (builder.size() > 0) {
+                        writer.addTerm(term, builder.build());
+                    }
+                }
+                writer.finish(docIds);
+            }
+            ContentSegment merged = ContentSegment.open(file, generation, new BitSet());
+
+            lock.writeLock().lock();
+            try {
+                // Deletes made while merging would have come from this thread, so none are missed
+                segments.removeAll(merging);
+                segments.add(merged);
+                for (int doc = 0; doc < merged.docCount(); doc++) {
+                    locations.put(merged.docId(doc), new DocRef(merged, doc));
+                }
+                dirty = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Merged {} content index segments into {} ({} documents)",
+                    merging.size(), file.getFileName(), docIds.size());
+
+            // The manifest must stop listing them before the files go
+            writeManifest();
+            List<ContentSegment> retired = new ArrayList<>(merging);
+            closeSegments(retired);
+            for (ContentSegment segment : retired) {
+                Files.deleteIfExists(segment.getFile());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to merge content index segments", e);
+        }
+    }
+
+    private void writeManifest() {
+        Path manifest = directory.resolve(MANIFEST_FILE);
+        Path temp = directory.resolve(MANIFEST_FILE + ".tmp");
+        Instant now = Instant.now();
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            out.writeLong(nextGeneration);
+            out.writeLong(now.toEpochMilli());
+            out.writeInt(segments.size());
+            for (ContentSegment segment : segments) {
+                byte[] bits = segment.getDeleted().toByteArray();
+                out.writeLong(segment.getGeneration());
+                out.writeInt(bits.length);
+                out.write(bits);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write content index manifest", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write content index manifest", e);
+        }
+        committedAt = now;
+        dirty = false;
+    }
+
+    private Path segmentFile(long generation) {
+        return directory.resolve(SEGMENT_PREFIX + generation + SEGMENT_SUFFIX);
+    }
+
+    private static void closeSegments(List<ContentSegment> toClose) {
+        for (ContentSegment segment : toClose) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.warn("Failed to close content index segment {}", segment.getFile(), e);
+            }
+        }
+    }
+
+    public static final class Hit {
+        private final UUID fileId;
+        private final double score;
+
+        private Hit(UUID fileId, double score) {
+            this.fileId = fileId;
+            this.score = score;
+        }
+
+        public UUID getFileId() {
+            return fileId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private static final class DocRef {
+        private final ContentSegmentReader reader;
+        private final int doc;
+
+        private DocRef(ContentSegmentReader reader, int doc) {
+            this.reader = reader;
+            this.doc = doc;
+        }
+    }
+
+    /** Documents indexed since the last flush. */
+    private static final class MemorySegment implements ContentSegmentReader {
+        private final List<UUID> docIds = new ArrayList<>();
+        private final BitSet deleted = new BitSet();
+        private final Map<String, ContentSegment.PostingsBuilder> terms = new HashMap<>();
+
+        private int add(UUID fileId, List<String> tokens) {
+            int doc = docIds.size();
+            docIds.add(fileId);
+            Map<String, List<Integer>> positions = new HashMap<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                positions.computeIfAbsent(tokens.get(i), term -> new ArrayList<>()).add(i);
+            }
+            for (Map.Entry<String, List<Integer>> term : positions.entrySet()) {
+                int[] termPositions = term.getValue().stream().mapToInt(Integer::intValue).toArray();
+                terms.computeIfAbsent(term.getKey(), key -> new ContentSegment.PostingsBuilder())
+                        .add(doc, termPositions);
+            }
+            return doc;
+        }
+
+        @Override
+        public int docCount() {
+            return docIds.size();
+        }
+
+        @Override
+        public UUID docId(int doc) {
+            return docIds.get(doc);
+        }
+
+        @Override
+        public boolean isDeleted(int doc) {
+            return deleted.get(doc);
+        }
+
+        @Override
+        public void delete(int doc) {
+            deleted.set(doc);
+        }
+
+        @Override
+        public int docFreq(String term) {
+            ContentSegment.PostingsBuilder builder = terms.get(term);
+            return builder != null ? builder.size() : 0;
+        }
+
+        @Override
+        public ContentSegment.Postings postings(String term) {
+            ContentSegment.PostingsBuilder builder = terms.get(term);
+            return builder != null ? builder.build() : null;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package org.example.services;
+
+import org.example.domain.model.FileMetadata;
+import org.example.domain.repository.FileRepository;
+import org.example.dto.response.ContentSearchResult;
+import org.example.dto.response.CursorPage;
+import org.example.events.FileChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds the {@link ContentIndex} and answers content queries. Committed file changes are
+ * queued for a single background indexing thread, so requests never wait on tokenising.
+ * The queue is bounded; ids that do not fit are parked in a set and fed in on the next tick.
+ */
+@Service
+public class ContentIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentIndexService.class);
+
+    private static final Pattern QUERY_PART = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+    private static final int MAX_CLAUSES = 16;
+    // Every result reads its file back for the snippet
+    private static final int MAX_PAGE_SIZE = 20;
+    private static final int SNIPPET_CONTEXT = 80;
+    // First read for a snippet; grows fourfold up to max-file-bytes while no clause matches
+    private static final int SNIPPET_WINDOW = 65536;
+    private static final int BACKFILL_BATCH = 1000;
+    // Changes committed just before a crash may not have reached a segment yet
+    private static final Duration RECOVERY_MARGIN = Duration.ofMinutes(1);
+
+    private final ContentIndex contentIndex;
+    private final FileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final PageCursors pageCursors;
+    private final Set<String> fileTypes;
+    private final int maxFileBytes;
+    private final ThreadPoolExecutor executor;
+    private final Set<UUID> overflow = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    public ContentIndexService(ContentIndex contentIndex,
+                               FileRepository fileRepository,
+                               BlobStore blobStore,
+                               PageCursors pageCursors,
+                               @Value("${search.content.file-types:txt,py}") String fileTypes,
+                               @Value("${search.content.max-file-bytes:4194304}") int maxFileBytes,
+                               @Value("${search.content.queue-capacity:10000}") int queueCapacity) {
+        this.contentIndex = contentIndex;
+        this.fileRepository = fileRepository;
+        this.blobStore = blobStore;
+        this.pageCursors = pageCursors;
+        this.fileTypes = Arrays.stream(fileTypes.split(","))
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toSet());
+        this.maxFileBytes = maxFileBytes;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "content-indexer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Instant committedAt = contentIndex.getCommittedAt();
+        submit(() -> {
+            if (committedAt == null) {
+                backfill();
+            } else {
+                catchUp(committedAt.minus(RECOVERY_MARGIN));
+            }
+            contentIndex.commit();
+        });
+    }
+
+    @TransactionalEventListener
+    public void onFileChanged(FileChangedEvent event) {
+        switch (event.getKind()) {
+            case CREATED:
+                if (isIndexed(event.getFileType())) {
+                    enqueue(event.getFileId());
+                }
+                break;
+            case UPDATED:
+                // The type may have changed away from a text one, the worker sorts that out
+                if (isIndexed(event.getFileType()) || contentIndex.contains(event.getFileId())) {
+                    enqueue(event.getFileId());
+                }
+                break;
+            case DELETED:
+                for (UUID fileId : event.getFileIds()) {
+                    if (contentIndex.contains(fileId)) {
+                        enqueue(fileId);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Commits buffered documents and feeds parked ids back in as the queue drains
+    @Scheduled(fixedDelayString = "${search.content.commit-interval-ms:10000}")
+    public void tick() {
+        Iterator<UUID> parked = overflow.iterator();
+        while (parked.hasNext() && executor.getQueue().remainingCapacity() > 1) {
+            UUID fileId = parked.next();
+            parked.remove();
+            enqueue(fileId);
+        }
+        submit(contentIndex::commit);
+    }
+
+    public void rebuild() {
+        if (!submit(() -> {
+            contentIndex.clear();
+            backfill();
+            contentIndex.commit();
+        })) {
+            throw new IllegalStateException("Content indexing queue is full, try again later");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Content indexing did not finish in time, the next start catches up");
+            executor.shutdownNow();
+            return;
+        }
+        contentIndex.commit();
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ContentSearchResult> search(String query, String cursor, Integer limit) {
+        List<List<String>> clauses = parseQuery(query);
+        int pageSize = Math.min(pageCursors.limit(limit), MAX_PAGE_SIZE);
+        int offset = pageCursors.parseOffset(cursor);
+
+        List<ContentIndex.Hit> hits = contentIndex.search(clauses, offset + pageSize + 1);
+        if (hits.size() <= offset) {
+            return new CursorPage<>(new ArrayList<>(), null, pageSize);
+        }
+        boolean hasMore = hits.size() > offset + pageSize;
+        List<ContentIndex.Hit> page = hits.subList(offset, Math.min(hits.size(), offset + pageSize));
+
+        List<UUID> ids = page.stream().map(ContentIndex.Hit::getFileId).collect(Collectors.toList());
+        // Files below a tombstoned folder stay indexed until the purger removes them
+        Set<UUID> live = new HashSet<>(fileRepository.findLiveIdsIn(ids));
+        Map<UUID, FileMetadata> files = new HashMap<>();
+        if (!live.isEmpty()) {
+            fileRepository.findAllWithFolderAndTypeByIdIn(live).forEach(file -> files.put(file.getId(), file));
+        }
+
+        List<ContentSearchResult> results = new ArrayList<>(page.size());
+        for (ContentIndex.Hit hit : page) {
+            FileMetadata file = files.get(hit.getFileId());
+            if (file == null) {
+                continue;
+            }
+            ContentSearchResult result = new ContentSearchResult();
+            result.setId(file.getId());
+            result.setName(file.getName());
+            result.setFileType(file.getFileType().getType());
+            result.setPath(file.getPath());
+            result.setScore(hit.getScore());
+            addSnippet(result, file.getContentHash(), clauses);
+            results.add(result);
+        }
+        return new CursorPage<>(results, hasMore ? pageCursors.offsetCursor(offset + pageSize) : null, pageSize);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(contentIndex.getStats());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("parked", overflow.size());
+        stats.put("indexed", indexed.get());
+        stats.put("failed", failed.get());
+        stats.put("overflowed", overflowed.get());
+        return stats;
+    }
+
+    private void enqueue(UUID fileId) {
+        if (!submit(() -> indexFile(fileId))) {
+            overflow.add(fileId);
+            overflowed.incrementAndGet();
+        }
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    log.error("Content indexing task failed", e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    // Indexing thread: reads the file's current state, so a stale or repeated id is harmless
+    private void indexFile(UUID fileId) {
+        FileRepository.ContentSource source = fileRepository.findContentSource(fileId).orElse(null);
+        if (source == null || !isIndexed(source.getFileType()) || source.getContentHash() == null) {
+            contentIndex.delete(fileId);
+            return;
+        }
+        try {
+            contentIndex.index(fileId, ContentTokenizer.terms(readText(source.getContentHash())));
+            indexed.incrementAndGet();
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            log.warn("Failed to read content of file {} for indexing", fileId, e);
+        }
+    }
+
+    private void backfill() {
+        log.info("Indexing the content of all {} files", fileTypes);
+        UUID afterId = new UUID(0, 0);
+        while (true) {
+            List<UUID> ids = fileRepository.findIdsByFileTypeAfter(fileTypes, afterId, PageRequest.of(0, BACKFILL_BATCH));
+            if (ids.isEmpty()) {
+                return;
+            }
+            ids.forEach(this::indexFile);
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private void catchUp(Instant since) {
+        List<UUID> ids = fileRepository.findIdsByFileTypeUpdatedSince(fileTypes, Timestamp.from(since));
+        if (!ids.isEmpty()) {
+            log.info("Re-indexing {} file(s) changed since {}", ids.size(), since);
+            ids.forEach(this::indexFile);
+        }
+    }
+
+    // Only the first max-file-bytes are indexed; a cut multi-byte character decodes as a replacement
+    private String readText(String contentHash) throws IOException {
+        return new String(readBytes(contentHash, maxFileBytes), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(String contentHash, int limit) throws IOException {
+        try (InputStream in = Files.newInputStream(blobStore.resolve(contentHash))) {
+            return in.readNBytes(limit);
+        }
+    }
+
+    private boolean isIndexed(String fileType) {
+        return fileType != null && fileTypes.contains(fileType.toLowerCase(Locale.ROOT));
+    }
+
+    // Quoted parts are phrases, every other word is a term of its own; all of them must match
+    private static List<List<String>> parseQuery(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        List<List<String>> clauses = new ArrayList<>();
+        Matcher matcher = QUERY_PART.matcher(query);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                List<String> phrase = ContentTokenizer.terms(matcher.group(1));
+                if (!phrase.isEmpty()) {
+                    clauses.add(phrase);
+                }
+            } else {
+                ContentTokenizer.terms(matcher.group(2)).forEach(term -> clauses.add(List.of(term)));
+            }
+        }
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("Search query has no searchable words");
+        }
+        if (clauses.size() > MAX_CLAUSES) {
+            throw new IllegalArgumentException("Search query has more than " + MAX_CLAUSES + " parts");
+        }
+        return clauses;
+    }
+
+    private void addSnippet(ContentSearchResult result, String contentHash, List<List<String>> clauses) {
+        // Longest clause first, a phrase makes the better snippet
+        List<List<String>> byLength = new ArrayList<>(clauses);
+        byLength.sort((a, b) -> b.size() - a.size());
+        long window = SNIPPET_WINDOW;
+        while (true) {
+            int size = (int) Math.min(window, maxFileBytes);
+            String text;
+            boolean complete;
+            try {
+                byte[] bytes = readBytes(contentHash, size);
+                text = new String(bytes, StandardCharsets.UTF_8);
+                complete = bytes.length < size || size == maxFileBytes;
+            } catch (IOException e) {
+                log.warn("Failed to read content for snippet of file {}", result.getId(), e);
+                return;
+            }
+            int[] match = findClause(text, complete, byLength);
+            if (match != null) {
+                setSnippet(result, text, match[0], match[1]);
+                return;
+            }
+            if (complete) {
+                return;
+            }
+            window *= 4;
+        }
+    }
+
+    // Start and end of the first clause match; stops tokenising there, or at a term the window may have cut
+    private static int[] findClause(String text, boolean complete, List<List<String>> byLength) {
+        int longest = byLength.get(0).size();
+        String[] recentTerms = new String[longest];
+        int[] recentStarts = new int[longest];
+        int[] count = new int[1];
+        int[][] match = new int[1][];
+        ContentTokenizer.tokenize(text, (term, start, end) -> {
+            if (!complete && end == text.length()) {
+                return false;
+            }
+            int last = count[0]++;
+            recentTerms[last % longest] = term;
+            recentStarts[last % longest] = start;
+            for (List<String> clause : byLength) {
+                int first = last - clause.size() + 1;
+                if (first < 0) {
+                    continue;
+                }
+                boolean matches = true;
+                for (int k = 0; k < clause.size() && matches; k++) {
+                    matches = clause.get(k).equals(recentTerms[(first + k) % longest]);
+                }
+                if (matches) {
+                    match[0] = new int[]{recentStarts[first % longest], end};
+                    return false;
+                }
+            }
+            return true;
+        });
+        return match[0];
+    }
+
+    private static void setSnippet(ContentSearchResult result, String text, int matchStart, int matchEnd) {
+        int start = Math.max(0, matchStart - SNIPPET_CONTEXT);
+        int end = Math.min(text.length(), matchEnd + SNIPPET_CONTEXT);
+        String before = (start > 0 ? "..." : "") + collapse(text.substring(start, matchStart));
+        String match = collapse(text.substring(matchStart, matchEnd));
+        String after = collapse(text.substring(matchEnd, end)) + (end < text.length() ? "..." : "");
+        result.setSnippet(before + match + after);
+        result.setHighlightStart(before.length());
+        result.setHighlightEnd(before.length() + match.length());
+    }
+
+    private static String collapse(String text) {
+        return text.replaceAll("\\s+", " ");
+    }
+}
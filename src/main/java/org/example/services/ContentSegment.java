@@ -0,0 +1,349 @@
+package org.example.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One immutable segment of the content index on disk.
+ * <p>
+ * Layout: a header, then the postings of every term back to back, then the doc table
+ * (file ids by local doc number) and the term dictionary, then the offset of the doc table.
+ * A term's postings are, per document, the doc number delta, the term frequency and the
+ * position deltas, all as varints. The doc table and dictionary are held in memory; postings
+ * are read from the file when a query needs them.
+ */
+final class ContentSegment implements ContentSegmentReader, Closeable {
+
+    private static final int MAGIC = 0x43494458;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+
+    private final long generation;
+    private final Path file;
+    private final FileChannel channel;
+    private final UUID[] docIds;
+    private final String[] terms;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final int[] docFreqs;
+    private final BitSet deleted;
+
+    private ContentSegment(long generation, Path file, FileChannel channel, UUID[] docIds, String[] terms,
+                           long[] offsets, int[] lengths, int[] docFreqs, BitSet deleted) {
+        this.generation = generation;
+        this.file = file;
+        this.channel = channel;
+        this.docIds = docIds;
+        this.terms = terms;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.docFreqs = docFreqs;
+        this.deleted = deleted;
+    }
+
+    static ContentSegment open(Path file, long generation, BitSet deleted) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a content index segment: " + file);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+            readFully(channel, trailer, size - Long.BYTES);
+            trailer.flip();
+            long tableOffset = trailer.getLong();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(tableOffset))));
+            UUID[] docIds = new UUID[in.readInt()];
+            for (int i = 0; i < docIds.length; i++) {
+                docIds[i] = new UUID(in.readLong(), in.readLong());
+            }
+            int termCount = in.readInt();
+            String[] terms = new String[termCount];
+            long[] offsets = new long[termCount];
+            int[] lengths = new int[termCount];
+            int[] docFreqs = new int[termCount];
+            for (int i = 0; i < termCount; i++) {
+                terms[i] = in.readUTF();
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+                docFreqs[i] = in.readInt();
+            }
+            return new ContentSegment(generation, file, channel, docIds, terms, offsets, lengths, docFreqs, deleted);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    BitSet getDeleted() {
+        return deleted;
+    }
+
+    int liveCount() {
+        return docIds.length - deleted.cardinality();
+    }
+
+    int termCount() {
+        return terms.length;
+    }
+
+    String term(int index) {
+        return terms[index];
+    }
+
+    @Override
+    public int docCount() {
+        return docIds.length;
+    }
+
+    @Override
+    public UUID docId(int doc) {
+        return docIds[doc];
+    }
+
+    @Override
+    public boolean isDeleted(int doc) {
+        return deleted.get(doc);
+    }
+
+    @Override
+    public void delete(int doc) {
+        deleted.set(doc);
+    }
+
+    @Override
+    public int docFreq(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index >= 0 ? docFreqs[index] : 0;
+    }
+
+    @Override
+    public Postings postings(String term) throws IOException {
+        int index = Arrays.binarySearch(terms, term);
+        return index >= 0 ? postingsAt(index) : null;
+    }
+
+    Postings postingsAt(int index) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(lengths[index]);
+        readFully(channel, buffer, offsets[index]);
+        buffer.flip();
+        return Postings.decode(buffer, docFreqs[index]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+
+    /** Positions of one term: ascending doc numbers, each with its ascending token positions. */
+    static final class Postings {
+        final int[] docs;
+        final int[][] positions;
+
+        Postings(int[] docs, int[][] positions) {
+            this.docs = docs;
+            this.positions = positions;
+        }
+
+        int size() {
+            return docs.length;
+        }
+
+        static Postings decode(ByteBuffer buffer, int docFreq) {
+            int[] docs = new int[docFreq];
+            int[][] positions = new int[docFreq][];
+            int doc = 0;
+            for (int i = 0; i < docFreq; i++) {
+                doc += readVarInt(buffer);
+                docs[i] = doc;
+                int[] docPositions = new int[readVarInt(buffer)];
+                int position = 0;
+                for (int j = 0; j < docPositions.length; j++) {
+                    position += readVarInt(buffer);
+                    docPositions[j] = position;
+                }
+                positions[i] = docPositions;
+            }
+            return new Postings(docs, positions);
+        }
+
+        void encode(ByteSink out) {
+            int previousDoc = 0;
+            for (int i = 0; i < docs.length; i++) {
+                out.writeVarInt(docs[i] - previousDoc);
+                previousDoc = docs[i];
+                out.writeVarInt(positions[i].length);
+                int previousPosition = 0;
+                for (int position : positions[i]) {
+                    out.writeVarInt(position - previousPosition);
+                    previousPosition = position;
+                }
+            }
+        }
+    }
+
+    /** Collects postings in doc order, for the in-memory segment and for merges. */
+    static final class PostingsBuilder {
+        private final List<int[]> positions = new ArrayList<>();
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int doc, int[] docPositions) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+            positions.add(docPositions);
+        }
+
+        int size() {
+            return size;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(docs, size), positions.toArray(new int[0][]));
+        }
+    }
+
+    /** Writes a segment to a temporary file and moves it into place once complete. */
+    static final class Writer implements Closeable {
+        private final Path file;
+        private final Path temp;
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final ByteSink buffer = new ByteSink();
+        private final List<String> terms = new ArrayList<>();
+        private final List<long[]> entries = new ArrayList<>();
+        private long position = HEADER_LENGTH;
+        private boolean finished;
+
+        Writer(Path file) throws IOException {
+            this.file = file;
+            this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        // Terms must arrive in ascending order, the dictionary is searched by binary search
+        void addTerm(String term, Postings postings) throws IOException {
+            if (!terms.isEmpty() && terms.get(terms.size() - 1).compareTo(term) >= 0) {
+                throw new IllegalStateException("Terms out of order: " + term);
+            }
+            buffer.reset();
+            postings.encode(buffer);
+            out.write(buffer.bytes, 0, buffer.size);
+            terms.add(term);
+            entries.add(new long[]{position, buffer.size, postings.size()});
+            position += buffer.size;
+        }
+
+        void finish(List<UUID> docIds) throws IOException {
+            long tableOffset = position;
+            out.writeInt(docIds.size());
+            for (UUID id : docIds) {
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+            }
+            out.writeInt(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                long[] entry = entries.get(i);
+                out.writeUTF(terms.get(i));
+                out.writeLong(entry[0]);
+                out.writeInt((int) entry[1]);
+                out.writeInt((int) entry[2]);
+            }
+            out.writeLong(tableOffset);
+            out.flush();
+            channel.force(true);
+            out.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    static final class ByteSink {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private void writeByte(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
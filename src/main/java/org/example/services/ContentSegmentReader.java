@@ -0,0 +1,20 @@
+package org.example.services;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/** What a content query sees of a segment, whether on disk or still in memory. */
+interface ContentSegmentReader {
+
+    int docCount();
+
+    UUID docId(int doc);
+
+    boolean isDeleted(int doc);
+
+    void delete(int doc);
+
+    int docFreq(String term);
+
+    ContentSegment.Postings postings(String term) throws IOException;
+}
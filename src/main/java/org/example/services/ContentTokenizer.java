@@ -0,0 +1,53 @@
+package org.example.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-cased terms: runs of letters, digits and underscores, so identifiers
+ * in source files stay whole. Overlong runs (base64, minified code) are skipped.
+ */
+final class ContentTokenizer {
+
+    static final int MAX_TERM_LENGTH = 64;
+
+    interface TokenConsumer {
+        // Returns false to stop at this term
+        boolean accept(String term, int start, int end);
+    }
+
+    private ContentTokenizer() {
+    }
+
+    static void tokenize(CharSequence text, TokenConsumer consumer) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !isTermChar(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && isTermChar(text.charAt(i))) {
+                i++;
+            }
+            if (i > start && i - start <= MAX_TERM_LENGTH
+                    && !consumer.accept(text.subSequence(start, i).toString().toLowerCase(Locale.ROOT), start, i)) {
+                return;
+            }
+        }
+    }
+
+    static List<String> terms(CharSequence text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, (term, start, end) -> {
+            terms.add(term);
+            return true;
+        });
+        return terms;
+    }
+
+    private static boolean isTermChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Metadata dumps for audits and the warehouse sync. Rows come from a forward-only database
+ * cursor and are written as they arrive, so memory use does not grow with the table.
+ */
+@Service
+public class ExportService {
+
+    private static final String[] FILE_COLUMNS = {
+            "id", "folderId", "name", "fileType", "size", "contentHash", "path", "createdAt", "updatedAt"};
+    private static final String[] FOLDER_COLUMNS = {
+            "id", "parentId", "name", "path", "createdAt", "updatedAt"};
+
+    private final FileRepository fileRepository;
+    private final FolderRepository folderRepository;
+    private final ObjectMapper objectMapper;
+
+    public ExportService(FileRepository fileRepository,
+                         FolderRepository folderRepository,
+                         ObjectMapper objectMapper) {
+        this.fileRepository = fileRepository;
+        this.folderRepository = folderRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format from(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export format: " + value);
+            }
+        }
+    }
+
+    // The cursor only stays open inside a transaction, so the whole write runs in one
+    @Transactional(readOnly = true)
+    public void exportFiles(Format format, OutputStream out) throws IOException {
+        try (Stream<FileRepository.ExportFile> files = fileRepository.streamAllForExport()) {
+            write(format, FILE_COLUMNS, files.map(file -> new Object[]{
+                    file.getId(), file.getFolderId(), file.getName(), file.getFileType(), file.getSize(),
+                    file.getContentHash(), file.getPath(), file.getCreatedAt(), file.getUpdatedAt()
+            }).iterator(), out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportFolders(Format format, OutputStream out) throws IOException {
+        try (Stream<FolderRepository.ExportFolder> folders = folderRepository.streamAllForExport()) {
+            write(format, FOLDER_COLUMNS, folders.map(folder -> new Object[]{
+                    folder.getId(), folder.getParentId(), folder.getName(), folder.getPath(),
+                    folder.getCreatedAt(), folder.getUpdatedAt()
+            }).iterator(), out);
+        }
+    }
+
+    private void write(Format format, String[] columns, Iterator<Object[]> rows, OutputStream out) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(columns, rows, out);
+        } else {
+            writeNdjson(columns, rows, out);
+        }
+    }
+
+    private void writeNdjson(String[] columns, Iterator<Object[]> rows, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                generator.writeStartObject();
+                for (int i = 0; i < columns.length; i++) {
+                    generator.writeObjectField(columns[i], row[i]);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private void writeCsv(String[] columns, Iterator<Object[]> rows, OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writeCsvLine(writer, columns);
+            while (rows.hasNext()) {
+                writeCsvLine(writer, rows.next());
+            }
+        }
+    }
+
+    private void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            String text = value instanceof Timestamp ? ((Timestamp) value).toInstant().toString() : value.toString();
+            writer.write(escapeCsv(text));
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break, and double inner quotes
+    private static String escapeCsv(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,661 @@
+package org.example.services;
+
+import org.example.domain.model.FileMetadata;
+import org.example.domain.model.FileType;
+import org.example.domain.model.Folder;
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderRepository;
+import org.example.dto.request.CreateFileRequest;
+import org.example.dto.response.BatchCreateResponse;
+import org.example.dto.response.BatchItemResult;
+import org.example.dto.response.BulkItemResult;
+import org.example.dto.response.BulkOperationResponse;
+import org.example.events.FileChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates, deletes and moves many files per request. Folders and types are resolved once per
+ * distinct value, rows are read and written with one set-based statement per chunk, and disk
+ * work runs on a bounded pool of writers. Items that fail are reported and skipped, the rest
+ * still go through.
+ */
+@Service
+public class FileBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileBatchService.class);
+
+    // Keeps each IN list well below the driver's bind parameter limit
+    private static final int IN_CHUNK = 1000;
+
+    /** Opens the bytes of one item; called once, on a writer thread. */
+    public interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    public static final class Item {
+        private final String folderPath;
+        private final String name;
+        private final String fileType;
+        private final ContentSource content;
+        private final StoredBlob blob;
+
+        public Item(String folderPath, String name, String fileType, ContentSource content) {
+            this(folderPath, name, fileType, content, null);
+        }
+
+        private Item(String folderPath, String name, String fileType, ContentSource content, StoredBlob blob) {
+            this.folderPath = folderPath;
+            this.name = name;
+            this.fileType = fileType;
+            this.content = content;
+            this.blob = blob;
+        }
+
+        // Content already in the blob store, only the public link and the row are left to do
+        public static Item ofBlob(String folderPath, String name, String fileType, StoredBlob blob) {
+            return new Item(folderPath, name, fileType, null, blob);
+        }
+
+        public static Item of(CreateFileRequest request) {
+            String data = request.getData();
+            return new Item(request.getFolderPath(), request.getName(), request.getFileType(), () -> {
+                if (data == null) {
+                    throw new IllegalArgumentException("Data is mandatory");
+                }
+                return new ByteArrayInputStream(Base64.getDecoder().decode(data));
+            });
+        }
+
+        // "a/b/report.pdf" below folderPath is file "report" of type "pdf" in folderPath/a/b
+        public static Item ofUpload(String folderPath, String fileName, ContentSource content) {
+            String relative = fileName != null ? fileName.replace('\\', '/') : "";
+            int slash = relative.lastIndexOf('/');
+            String base = folderPath != null ? folderPath.trim().replaceAll("^/+|/+$", "") : "";
+            if (slash >= 0) {
+                String subPath = relative.substring(0, slash).replaceAll("^/+|/+$", "");
+                base = base.isEmpty() ? subPath : subPath.isEmpty() ? base : base + "/" + subPath;
+                relative = relative.substring(slash + 1);
+            }
+            int dot = relative.lastIndexOf('.');
+            return dot > 0
+                    ? new Item(base, relative.substring(0, dot), relative.substring(dot + 1), content)
+                    : new Item(base, relative, null, content);
+        }
+    }
+
+    private final FileRepository fileRepository;
+    private final FolderRepository folderRepository;
+    private final FolderIndex folderIndex;
+    private final FileTypeRegistry fileTypeRegistry;
+    private final BlobStore blobStore;
+    private final StorageService storageService;
+    private final FolderStatsService folderStatsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final int maxItems;
+    private final int jdbcBatchSize;
+    private final ThreadPoolExecutor writers;
+
+    public FileBatchService(FileRepository fileRepository,
+                            FolderRepository folderRepository,
+                            FolderIndex folderIndex,
+                            FileTypeRegistry fileTypeRegistry,
+                            BlobStore blobStore,
+                            StorageService storageService,
+                            FolderStatsService folderStatsService,
+                            ApplicationEventPublisher eventPublisher,
+                            TransactionTemplate transactionTemplate,
+                            EntityManager entityManager,
+                            @Value("${files.batch.max-items:10000}") int maxItems,
+                            @Value("${files.batch.writer-threads:8}") int writerThreads,
+                            @Value("${files.batch.writer-queue:256}") int writerQueue,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int jdbcBatchSize) {
+        this.fileRepository = fileRepository;
+        this.folderRepository = folderRepository;
+        this.folderIndex = folderIndex;
+        this.fileTypeRegistry = fileTypeRegistry;
+        this.blobStore = blobStore;
+        this.storageService = storageService;
+        this.folderStatsService = folderStatsService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.maxItems = maxItems;
+        this.jdbcBatchSize = jdbcBatchSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // A full queue makes the submitting request write the item itself, which throttles it
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(writerQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "file-batch-writer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.writers.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
+    public BatchCreateResponse createAll(List<Item> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("No files given");
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("At most " + maxItems + " files per batch");
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        List<Pending> pending = resolve(items, results);
+        pending = dropDuplicates(pending, results);
+        pending = writeContent(pending, results);
+
+        if (!pending.isEmpty()) {
+            List<Pending> inserting = pending;
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(inserting));
+                for (Pending item : inserting) {
+                    BatchItemResult result = results.get(item.index);
+                    result.setStatus("created");
+                    result.setId(item.fileId);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Batch insert of {} files failed", inserting.size(), e);
+                for (Pending item : inserting) {
+                    fail(results.get(item.index), "Could not save file metadata");
+                }
+            }
+        }
+
+        int created = (int) results.stream().filter(result -> "created".equals(result.getStatus())).count();
+        return new BatchCreateResponse(created, results.size() - created, results);
+    }
+
+    // Folder paths and type names are looked up once per distinct value, folders loaded in one query
+    private List<Pending> resolve(List<Item> items, List<BatchItemResult> results) {
+        Map<String, Optional<UUID>> folderIds = new HashMap<>();
+        List<Pending> pending = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            BatchItemResult result = new BatchItemResult();
+            result.setIndex(i);
+            result.setFolderPath(item.folderPath);
+            result.setName(item.name);
+            result.setFileType(item.fileType);
+            results.add(result);
+
+            if (item.name == null || item.name.isBlank() || item.name.contains("/") || item.name.contains("\\")) {
+                fail(result, "Invalid file name");
+                continue;
+            }
+            if (item.fileType == null || item.fileType.isBlank()) {
+                fail(result, "File type is mandatory");
+                continue;
+            }
+            Optional<FileType> fileType = fileTypeRegistry.findByType(item.fileType);
+            if (fileType.isEmpty()) {
+                fail(result, "Invalid file type");
+                continue;
+            }
+            String folderPath = item.folderPath != null ? item.folderPath.trim().replaceAll("^/+|/+$", "") : "";
+            Optional<UUID> folderId = folderIds.computeIfAbsent(folderPath, path -> folderIndex.resolve(
+                    path.isEmpty() ? Collections.emptyList() : Arrays.asList(path.split("/"))));
+            if (folderId.isEmpty()) {
+                fail(result, "Folder path '" + folderPath + "' does not exist. Create the folder first.");
+                continue;
+            }
+            pending.add(new Pending(i, item, folderId.get(), fileType.get()));
+        }
+
+        Set<UUID> distinctFolders = new HashSet<>();
+        pending.forEach(item -> distinctFolders.add(item.folderId));
+        Map<UUID, Folder> folders = new HashMap<>();
+        folderRepository.findAllById(distinctFolders).forEach(folder -> folders.put(folder.getId(), folder));
+        List<Pending> resolved = new ArrayList<>(pending.size());
+        for (Pending item : pending) {
+            item.folder = folders.get(item.folderId);
+            if (item.folder == null) {
+                fail(results.get(item.index), "Folder no longer exists");
+            } else {
+                resolved.add(item);
+            }
+        }
+        return resolved;
+    }
+
+    // Existing rows come from one IN query per chunk; a repeat inside the batch loses to its first occurrence
+    private List<Pending> dropDuplicates(List<Pending> pending, List<BatchItemResult> results) {
+        Set<List<Object>> existing = new HashSet<>();
+        for (int from = 0; from < pending.size(); from += IN_CHUNK) {
+            List<Pending> chunk = pending.subList(from, Math.min(from + IN_CHUNK, pending.size()));
+            Set<UUID> folderIds = new HashSet<>();
+            Set<String> names = new HashSet<>();
+            for (Pending item : chunk) {
+                folderIds.add(item.folderId);
+                names.add(item.item.name);
+            }
+            for (FileRepository.NameKey key : fileRepository.findNameKeys(folderIds, names)) {
+                existing.add(Arrays.asList(key.getFolderId(), key.getName(), key.getFileTypeId()));
+            }
+        }
+
+        Set<List<Object>> seen = new HashSet<>();
+        List<Pending> unique = new ArrayList<>(pending.size());
+        for (Pending item : pending) {
+            List<Object> key = Arrays.asList(item.folderId, item.item.name, item.fileType.getId());
+            if (existing.contains(key) || !seen.add(key)) {
+                fail(results.get(item.index), "File '" + item.item.name + "." + item.fileType.getType() +
+                        "' already exists in this folder");
+            } else {
+                unique.add(item);
+            }
+        }
+        return unique;
+    }
+
+    private List<Pending> writeContent(List<Pending> pending, List<BatchItemResult> results) {
+        List<Future<?>> futures = new ArrayList<>(pending.size());
+        for (Pending item : pending) {
+            item.target = storageService.resolveFilePath(item.folder, item.item.name, item.fileType.getType());
+            futures.add(writers.submit(() -> {
+                if (item.item.blob != null) {
+                    item.blob = item.item.blob;
+                } else {
+                    try (InputStream in = item.item.content.open()) {
+                        item.blob = blobStore.write(in);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        List<Pending> written = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            Pending item = pending.get(i);
+            try {
+                futures.get(i).get();
+                written.add(item);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                fail(results.get(item.index), cause instanceof IllegalArgumentException
+                        ? cause.getMessage()
+                        : "Error saving file: " + cause.getMessage());
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Batch interrupted");
+            }
+        }
+        return written;
+    }
+
+    private void insert(List<Pending> pending) {
+        // Only entries this batch placed are removed on rollback; registered ahead of the blob
+        // cleanup so a copied entry can still be matched against its blob
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    for (Pending item : pending) {
+                        if (item.linked) {
+                            storageService.deleteIfUnchanged(
+                                    item.target, blobStore.resolve(item.blob.getHash()), item.placed);
+                        }
+                    }
+                }
+            }
+        });
+        Map<String, StoredBlob> blobs = new HashMap<>();
+        // Sorted so concurrent batches take the blob locks in the same order
+        Map<String, Integer> references = new TreeMap<>();
+        for (Pending item : pending) {
+            blobs.putIfAbsent(item.blob.getHash(), item.blob);
+            references.merge(item.blob.getHash(), 1, Integer::sum);
+        }
+        for (String hash : blobs.keySet()) {
+            blobStore.deleteOnRollback(hash);
+        }
+        // One reference count update per distinct blob
+        references.forEach((hash, count) -> blobStore.acquire(blobs.get(hash), count));
+
+        // Rows go out as JDBC batches; clearing keeps the persistence context from growing with the batch
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int count = 0;
+        for (Pending item : pending) {
+            FileMetadata file = new FileMetadata();
+            file.setName(item.item.name);
+            file.setSize(item.blob.getSize());
+            file.setContentHash(item.blob.getHash());
+            file.setFolder(entityManager.getReference(Folder.class, item.folderId));
+            file.setFileType(item.fileType);
+            file.setCreatedAt(now);
+            file.setUpdatedAt(now);
+            file.setPath(constructFilePath(item.folder) + "/" + item.item.name);
+            entityManager.persist(file);
+            item.fileId = file.getId();
+            if (++count % jdbcBatchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        // The rows passed the unique name check, only now do the public entries change
+        link(pending);
+
+        // One stats delta per folder and type, however many files landed there
+        Map<List<UUID>, long[]> totals = new HashMap<>();
+        for (Pending item : pending) {
+            long[] total = totals.computeIfAbsent(
+                    Arrays.asList(item.folderId, item.fileType.getId()), key -> new long[2]);
+            total[0]++;
+            total[1] += item.blob.getSize();
+        }
+        totals.forEach((key, total) -> folderStatsService.filesAdded(key.get(0), key.get(1), total[0], total[1]));
+
+        for (Pending item : pending) {
+            eventPublisher.publishEvent(FileChangedEvent.created(
+                    item.fileId, item.folderId, item.item.name, item.fileType.getType()));
+        }
+    }
+
+    // A failed link rolls back the whole batch, like a failed insert
+    private void link(List<Pending> pending) {
+        List<Future<?>> futures = new ArrayList<>(pending.size());
+        for (Pending item : pending) {
+            futures.add(writers.submit(() -> {
+                storageService.link(blobStore.resolve(item.blob.getHash()), item.target);
+                item.linked = true;
+                item.placed = storageService.fileKey(item.target);
+                return null;
+            }));
+        }
+        // Every link has settled before the rollback cleanup can run
+        Throwable failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(other -> other.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Batch interrupted");
+            }
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Could not link file: " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Deletes the files one set-based statement per chunk, each chunk in its own transaction.
+     * Public entries are unlinked in parallel once the chunk has committed.
+     */
+    public BulkOperationResponse deleteAll(List<UUID> fileIds) {
+        List<UUID> ids = distinctIds(fileIds);
+        Map<UUID, BulkItemResult> results = new LinkedHashMap<>();
+        ids.forEach(id -> results.put(id, null));
+
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + IN_CHUNK, ids.size()));
+            Map<UUID, BulkItemResult> chunkResults = new HashMap<>();
+            List<Path> unlinks = new ArrayList<>();
+            try {
+                transactionTemplate.executeWithoutResult(status -> deleteChunk(chunk, chunkResults, unlinks));
+            } catch (RuntimeException e) {
+                log.warn("Bulk delete of {} files failed", chunk.size(), e);
+                chunkResults.clear();
+                unlinks.clear();
+                chunk.forEach(id -> chunkResults.put(id, new BulkItemResult(id, "failed", "Could not delete file")));
+            }
+            results.putAll(chunkResults);
+            runOnWriters(unlinks, Files::deleteIfExists);
+        }
+        return toResponse(results);
+    }
+
+    /**
+     * Moves the files into the target folder with one UPDATE per chunk that skips collisions
+     * itself. The public links are renamed in parallel once the chunk has committed.
+     */
+    public BulkOperationResponse moveAll(List<UUID> fileIds, String targetFolderPath) {
+        List<UUID> ids = distinctIds(fileIds);
+        String folderPath = targetFolderPath != null ? targetFolderPath.trim().replaceAll("^/+|/+$", "") : "";
+        Folder target = folderIndex.resolve(folderPath.isEmpty()
+                        ? Collections.emptyList() : Arrays.asList(folderPath.split("/")))
+                .flatMap(folderRepository::findById)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Folder path '" + folderPath + "' does not exist. Create the folder first."));
+        String pathPrefix = constructFilePath(target) + "/";
+        Path targetDirectory = storageService.resolveFolderDirectory(target);
+
+        Map<UUID, BulkItemResult> results = new LinkedHashMap<>();
+        ids.forEach(id -> results.put(id, null));
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + IN_CHUNK, ids.size()));
+            Map<UUID, BulkItemResult> chunkResults = new HashMap<>();
+            List<Path[]> renames = new ArrayList<>();
+            try {
+                transactionTemplate.executeWithoutResult(status -> moveChunk(
+                        chunk, target.getId(), pathPrefix, targetDirectory, chunkResults, renames));
+            } catch (RuntimeException e) {
+                log.warn("Bulk move of {} files failed", chunk.size(), e);
+                chunkResults.clear();
+                renames.clear();
+                chunk.forEach(id -> chunkResults.put(id, new BulkItemResult(id, "failed", "Could not move file")));
+            }
+            results.putAll(chunkResults);
+            runOnWriters(renames, paths -> {
+                if (Files.exists(paths[0])) {
+                    storageService.move(paths[0], paths[1]);
+                }
+            });
+        }
+        return toResponse(results);
+    }
+
+    private void deleteChunk(List<UUID> chunk, Map<UUID, BulkItemResult> results, List<Path> unlinks) {
+        List<FileMetadata> files = fileRepository.findAllLiveWithFolderAndTypeByIdIn(chunk);
+        markMissing(chunk, files, results);
+        if (files.isEmpty()) {
+            return;
+        }
+
+        List<UUID> deletedIds = new ArrayList<>(files.size());
+        Map<List<UUID>, long[]> totals = new HashMap<>();
+        for (FileMetadata file : files) {
+            deletedIds.add(file.getId());
+            long[] total = totals.computeIfAbsent(
+                    Arrays.asList(file.getFolder().getId(), file.getFileType().getId()), key -> new long[2]);
+            total[0]++;
+            total[1] += file.getSize() != null ? file.getSize() : 0;
+            unlinks.add(storageService.resolveFilePath(file.getFolder(), file.getName(), file.getFileType().getType()));
+            results.put(file.getId(), new BulkItemResult(file.getId(), "deleted", null));
+        }
+
+        // Blob references are read from the rows, so they are released before the rows go
+        blobStore.releaseForFiles(deletedIds);
+        fileRepository.deleteAllByIdInBatch(deletedIds);
+        totals.forEach((key, total) -> folderStatsService.filesRemoved(key.get(0), key.get(1), total[0], total[1]));
+        eventPublisher.publishEvent(FileChangedEvent.deleted(deletedIds));
+    }
+
+    private void moveChunk(List<UUID> chunk, UUID targetId, String pathPrefix, Path targetDirectory,
+                           Map<UUID, BulkItemResult> results, List<Path[]> renames) {
+        List<FileMetadata> files = fileRepository.findAllLiveWithFolderAndTypeByIdIn(chunk);
+        markMissing(chunk, files, results);
+
+        List<FileMetadata> candidates = new ArrayList<>();
+        List<UUID> candidateIds = new ArrayList<>();
+        for (FileMetadata file : files) {
+            if (file.getFolder().getId().equals(targetId)) {
+                results.put(file.getId(), new BulkItemResult(file.getId(), "unchanged", null));
+            } else {
+                candidates.add(file);
+                candidateIds.add(file.getId());
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        // RETURNING hands the ids back as text
+        Set<UUID> moved = new HashSet<>();
+        fileRepository.moveWithoutCollisions(candidateIds, targetId, pathPrefix,
+                new Timestamp(System.currentTimeMillis())).forEach(id -> moved.add(UUID.fromString(id)));
+        List<FileMetadata> movedFiles = new ArrayList<>(moved.size());
+        Set<List<Object>> movedKeys = new HashSet<>();
+        for (FileMetadata file : candidates) {
+            if (moved.contains(file.getId())) {
+                String fileName = file.getName() + "." + file.getFileType().getType();
+                movedFiles.add(file);
+                movedKeys.add(Arrays.asList(file.getName(), file.getFileType().getId()));
+                renames.add(new Path[]{
+                        storageService.resolveFilePath(file.getFolder(), file.getName(), file.getFileType().getType()),
+                        targetDirectory.resolve(fileName)});
+                results.put(file.getId(), new BulkItemResult(file.getId(), "moved", null));
+            }
+        }
+        for (FileMetadata file : candidates) {
+            if (!moved.contains(file.getId())) {
+                String fileName = file.getName() + "." + file.getFileType().getType();
+                results.put(file.getId(), new BulkItemResult(file.getId(), "conflict",
+                        movedKeys.contains(Arrays.asList(file.getName(), file.getFileType().getId()))
+                                ? "Another file named '" + fileName + "' in the request was moved instead"
+                                : "File '" + fileName + "' already exists in the target folder"));
+            }
+        }
+
+        if (!movedFiles.isEmpty()) {
+            // Entities still hold their source folder, which is what the stats need
+            folderStatsService.filesMoved(movedFiles, targetId);
+            eventPublisher.publishEvent(FileChangedEvent.moved(new ArrayList<>(moved), targetId));
+        }
+    }
+
+    private static void markMissing(List<UUID> chunk, List<FileMetadata> files, Map<UUID, BulkItemResult> results) {
+        Set<UUID> found = new HashSet<>();
+        files.forEach(file -> found.add(file.getId()));
+        for (UUID id : chunk) {
+            if (!found.contains(id)) {
+                results.put(id, new BulkItemResult(id, "not_found", "File not found"));
+            }
+        }
+    }
+
+    private List<UUID> distinctIds(List<UUID> fileIds) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            throw new IllegalArgumentException("File IDs are required");
+        }
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(fileIds));
+        if (ids.contains(null)) {
+            throw new IllegalArgumentException("File IDs must not be null");
+        }
+        if (ids.size() > maxItems) {
+            throw new IllegalArgumentException("At most " + maxItems + " files per request");
+        }
+        return ids;
+    }
+
+    private static BulkOperationResponse toResponse(Map<UUID, BulkItemResult> results) {
+        List<BulkItemResult> items = new ArrayList<>(results.values());
+        int succeeded = (int) items.stream().filter(item -> item.getError() == null).count();
+        return new BulkOperationResponse(succeeded, items.size() - succeeded, items);
+    }
+
+    // Filesystem follow-up of committed rows; a failure leaves a stray entry and is only logged
+    private <T> void runOnWriters(List<T> targets, DiskAction<T> action) {
+        List<Future<?>> futures = new ArrayList<>(targets.size());
+        for (T target : targets) {
+            futures.add(writers.submit(() -> {
+                action.apply(target);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log.warn("Filesystem update after bulk operation failed: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private interface DiskAction<T> {
+        void apply(T target) throws IOException;
+    }
+
+    private static void fail(BatchItemResult result, String error) {
+        result.setStatus("failed");
+        result.setError(error);
+    }
+
+    private static String constructFilePath(Folder folder) {
+        // Same "root/" prefixed form as FileService
+        return folder.getPath().isEmpty() ? "root" : "root/" + folder.getPath();
+    }
+
+    private static final class Pending {
+        final int index;
+        final Item item;
+        final UUID folderId;
+        final FileType fileType;
+        Folder folder;
+        Path target;
+        volatile StoredBlob blob;
+        UUID fileId;
+        volatile Object placed;
+        volatile boolean linked;
+
+        Pending(int index, Item item, UUID folderId, FileType fileType) {
+            this.index = index;
+            this.item = item;
+            this.folderId = folderId;
+            this.fileType = fileType;
+        }
+    }
+}
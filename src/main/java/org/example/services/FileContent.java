@@ -0,0 +1,20 @@
+package org.example.services;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+@Getter
+public class FileContent {
+    private final Path path;
+    private final String fileName;
+    private final String contentHash;
+    private final long lastModified;
+
+    public FileContent(Path path, String fileName, String contentHash, long lastModified) {
+        this.path = path;
+        this.fileName = fileName;
+        this.contentHash = contentHash;
+        this.lastModified = lastModified;
+    }
+}
@@ -2,118 +2,170 @@ package org.example.services;
 
 import org.example.domain.model.*;
 import org.example.domain.repository.FolderRepository;
-import org.example.domain.repository.FileTypeRepository;
+import org.example.domain.repository.FileListFilter;
+import org.example.domain.repository.FileQuery;
 import org.example.domain.repository.FileRepository;
-import org.example.domain.repository.FolderHierarchyRepository;
+import org.example.domain.repository.KeysetPage;
 
 import org.example.dto.request.*;
 
 import org.example.dto.response.*;
 
+import org.example.events.FileChangedEvent;
+import org.example.events.FolderChangedEvent;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class FileService {
     private final FileRepository fileRepository;
     private final FolderRepository folderRepository;
-    private final FileTypeRepository fileTypeRepository;
-    private final FolderHierarchyRepository folderHierarchyRepository;
+    private final FileTypeRegistry fileTypeRegistry;
+    private final FolderHierarchyService folderHierarchyService;
+    private final FolderStatsService folderStatsService;
+    private final PageCursors pageCursors;
+    private final StorageService storageService;
+    private final BlobStore blobStore;
+    private final FolderIndex folderIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public FileService(FileRepository fileRepository,
                        FolderRepository folderRepository,
-                       FileTypeRepository fileTypeRepository,
-                       FolderHierarchyRepository folderHierarchyRepository) {
+                       FileTypeRegistry fileTypeRegistry,
+                       FolderHierarchyService folderHierarchyService,
+                       FolderStatsService folderStatsService,
+                       PageCursors pageCursors,
+                       StorageService storageService,
+                       BlobStore blobStore,
+                       FolderIndex folderIndex,
+                       ApplicationEventPublisher eventPublisher) {
         this.fileRepository = fileRepository;
         this.folderRepository = folderRepository;
-        this.fileTypeRepository = fileTypeRepository;
-        this.folderHierarchyRepository = folderHierarchyRepository;
+        this.fileTypeRegistry = fileTypeRegistry;
+        this.folderHierarchyService = folderHierarchyService;
+        this.folderStatsService = folderStatsService;
+        this.pageCursors = pageCursors;
+        this.storageService = storageService;
+        this.blobStore = blobStore;
+        this.folderIndex = folderIndex;
+        this.eventPublisher = eventPublisher;
     }
 
-    @Transactional
-    public List<FileMetadata> findAll() {
-        return fileRepository.findAll();
+    @Transactional(readOnly = true)
+    public CursorPage<FileResponse> findAll(PageQuery pageQuery) {
+        return findPage(FileListFilter.all(), pageQuery);
     }
 
     @Transactional
-    public FileMetadata createFile(CreateFileRequest request) throws IOException {
-        // Handle folder path preprocessing
-        String folderPath = request.getFolderPath() != null
-                ? request.getFolderPath().trim().replaceAll("^/+|/+$", "")
-                : "";
+    public FileResponse createFile(CreateFileRequest request) throws IOException {
+        Folder parentFolder = resolveExistingFolder(request.getFolderPath());
 
-        List<String> pathSegments = folderPath.isEmpty()
-                ? Collections.emptyList()
-                : Arrays.asList(folderPath.split("/"));
+        // Validate file type
+        FileType fileType = fileTypeRegistry.findByType(request.getFileType())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid file type"));
 
-        // Verify existing folder structure
-        Folder parentFolder;
-        if (pathSegments.isEmpty()) {
-            parentFolder = getRootFolder();
-        } else {
-            Folder current = getRootFolder();
-            for (String segment : pathSegments) {
-                current = folderRepository.findByNameAndParent(segment, current)
-                        .orElseThrow(() -> new IllegalArgumentException(
-                                "Folder path '" + segment + "' does not exist. Create the folder first."
-                        ));
-            }
-            parentFolder = current;
-        }
+        checkDuplicate(request.getName(), parentFolder, fileType);
 
-        // Validate file type
-        FileType fileType = fileTypeRepository.findByType(request.getFileType())
+        StoredBlob blob = blobStore.write(
+                new ByteArrayInputStream(Base64.getDecoder().decode(request.getData())));
+        return mapToFileResponse(storeFile(parentFolder, fileType, request.getName(), blob));
+    }
+
+    @Transactional(readOnly = true)
+    public void validateNewFile(UploadFileRequest request) {
+        Folder parentFolder = resolveExistingFolder(request.getFolderPath());
+        FileType fileType = fileTypeRegistry.findByType(request.getFileType())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid file type"));
+        checkDuplicate(request.getName(), parentFolder, fileType);
+    }
 
-        // Check for duplicate name + type in same folder
-        if (fileRepository.existsByNameAndFolderAndFileType(
-                request.getName(),
-                parentFolder,
-                fileType
-        )) {
-            throw new IllegalArgumentException(
-                    "File '" + request.getName() + "." + fileType.getType() +
-                            "' already exists in this folder"
-            );
-        }
+    @Transactional
+    public FileResponse createFromUpload(UploadFileRequest request, StoredBlob blob) throws IOException {
+        Folder parentFolder = resolveExistingFolder(request.getFolderPath());
+
+        FileType fileType = fileTypeRegistry.findByType(request.getFileType())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid file type"));
+
+        checkDuplicate(request.getName(), parentFolder, fileType);
+
+        // The upload is already in the blob store, only the metadata insert is left
+        return mapToFileResponse(storeFile(parentFolder, fileType, request.getName(), blob));
+    }
+
+    private FileMetadata storeFile(Folder parentFolder, FileType fileType, String name, StoredBlob blob)
+            throws IOException {
+        blobStore.acquire(blob);
 
-        // Create file entity
         FileMetadata file = new FileMetadata();
-        file.setName(request.getName());
-        file.setSize(request.getSize());
+        file.setName(name);
+        file.setSize(blob.getSize());
+        file.setContentHash(blob.getHash());
         file.setFolder(parentFolder);
-        file.setData(Base64.getDecoder().decode(request.getData()));
         file.setCreatedAt(new Timestamp(System.currentTimeMillis()));
         file.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-        file.setFileType(fileType);  // Use the already retrieved fileType
+        file.setFileType(fileType);
 
         // Build path: root/folder1/folder2/filename
-        String computedPath = constructFilePath(parentFolder) + "/" + request.getName();
-        file.setPath(computedPath);
+        file.setPath(constructFilePath(parentFolder) + "/" + name);
+
+        // Flushed first: the public entry is only placed once the unique name check has passed
+        FileMetadata saved = fileRepository.saveAndFlush(file);
+        Path target = storageService.resolveFilePath(parentFolder, name, fileType.getType());
+        storageService.linkInserted(blobStore.resolve(blob.getHash()), target);
+        folderStatsService.fileAdded(parentFolder.getId(), fileType.getId(), blob.getSize());
+        eventPublisher.publishEvent(
+                FileChangedEvent.created(saved.getId(), parentFolder.getId(), name, fileType.getType()));
+        return saved;
+    }
 
-        // Persist and save
-        FileMetadata savedFile = fileRepository.save(file);
-        saveToDisk(parentFolder, savedFile);
+    private Folder resolveExistingFolder(String requestPath) {
+        // Handle folder path preprocessing
+        String folderPath = requestPath != null
+                ? requestPath.trim().replaceAll("^/+|/+$", "")
+                : "";
 
-        return savedFile;
+        List<String> pathSegments = folderPath.isEmpty()
+                ? Collections.emptyList()
+                : Arrays.asList(folderPath.split("/"));
+
+        UUID folderId = folderIndex.resolve(pathSegments)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Folder path '" + folderPath + "' does not exist. Create the folder first."
+                ));
+        return folderRepository.getReferenceById(folderId);
+    }
+
+    private void checkDuplicate(String name, Folder folder, FileType fileType) {
+        // Check for duplicate name + type in same folder
+        if (fileRepository.existsByNameAndFolderAndFileType(name, folder, fileType)) {
+            throw new IllegalArgumentException(
+                    "File '" + name + "." + fileType.getType() + "' already exists in this folder"
+            );
+        }
     }
 
     @Transactional
     public void deleteFile(DeleteFileRequest request) {
-        FileMetadata file = fileRepository.findById(request.getId())
+        // A file under a deleted folder is already gone for the caller and its stats are already off
+        FileMetadata file = fileRepository.findLiveById(request.getId())
                 .orElseThrow(() -> new IllegalArgumentException("File not found"));
 
         fileRepository.delete(file);
+        blobStore.release(file.getContentHash());
+        folderStatsService.fileRemoved(file.getFolder().getId(), file.getFileType().getId(), file.getSize());
+        eventPublisher.publishEvent(FileChangedEvent.deleted(file.getId(), file.getFolder().getId()));
 
         // Delete from filesystem
         deleteFromDisk(file);
@@ -121,54 +173,54 @@ public class FileService {
 
     @Transactional(readOnly = true)
     public FileResponse getFileById(UUID id) {
-        FileMetadata file = fileRepository.findById(id)
+        return fileRepository.findResponseById(id)
                 .orElseThrow(() -> new IllegalArgumentException("File not found with ID: " + id));
+    }
 
-        return mapToFileResponse(file);
+    @Transactional(readOnly = true)
+    public FileContent getFileContent(UUID id) {
+        FileMetadata file = fileRepository.findLiveById(id)
+                .orElseThrow(() -> new IllegalArgumentException("File not found with ID: " + id));
+
+        String fileName = file.getName() + "." + file.getFileType().getType();
+
+        // Serve the blob directly, rows not yet migrated still have their public/ copy
+        Path path = file.getContentHash() != null
+                ? blobStore.resolve(file.getContentHash())
+                : storageService.resolveFilePath(file.getFolder(), file.getName(), file.getFileType().getType());
+        if (!Files.isReadable(path)) {
+            throw new IllegalStateException("Content missing on disk for file: " + id);
+        }
+
+        return new FileContent(path, fileName, file.getContentHash(), file.getUpdatedAt().getTime());
     }
 
     @Transactional(readOnly = true)
-    public List<FileResponse> findAllFilesInFolder(FolderFilesRequest request) {
+    public CursorPage<FileResponse> findAllFilesInFolder(FolderFilesRequest request, PageQuery pageQuery) {
         // Validate input
         if (request.getFolderPath() == null || request.getFolderPath().isEmpty()) {
             throw new IllegalArgumentException("Folder path must be provided");
         }
 
-        // Normalize the path (remove leading/trailing slashes)
-        String normalizedPath = request.getFolderPath()
-                .replaceAll("^/+|/+$", "");
-
-        // For root folder
-        if (normalizedPath.isEmpty()) {
-            Folder root = getRootFolder();
-            return fileRepository.findByFolder(root).stream()
-                    .map(this::mapToFileResponse)
-                    .collect(Collectors.toList());
-        }
-
-        // Find files directly in the specified folder (not subfolders)
-        List<FileMetadata> files = fileRepository.findAllByFolderPath(normalizedPath);
-
-        return files.stream()
-                .map(this::mapToFileResponse)
-                .collect(Collectors.toList());
+        // Resolve the folder first, the listing is then an index range on folder_id
+        UUID folderId = resolveExistingFolder(request.getFolderPath()).getId();
+        return findPage(FileListFilter.inFolder(folderId), pageQuery);
     }
 
     private Folder getRootFolder() {
-        return folderRepository.findByNameAndParent("root", null)
-                .orElseThrow(() -> new IllegalStateException("Root folder not found"));
+        return folderRepository.getReferenceById(folderIndex.getRootId());
     }
 
     @Transactional
     public FileResponse updateFile(UpdateFileRequest request) throws IOException {
-        FileMetadata file = fileRepository.findById(request.getId())
+        FileMetadata file = fileRepository.findLiveById(request.getId())
                 .orElseThrow(() -> new IllegalArgumentException("File not found"));
 
         // Capture original state before any changes
         Folder originalFolder = file.getFolder();
         String originalName = file.getName();
         FileType originalFileType = file.getFileType();
-//        byte[] originalData = file.getData().clone();
+        Long originalSize = file.getSize();
 
         // Track changes
         boolean nameChanged = false;
@@ -198,9 +250,10 @@ public class FileService {
 
         FileType newFileType;
         if (request.getFileType() != null) {
-            newFileType = fileTypeRepository.findByType(request.getFileType())
+            newFileType = fileTypeRegistry.findByType(request.getFileType())
                     .orElseThrow(() -> new IllegalArgumentException("Invalid file type"));
-            if (!newFileType.equals(originalFileType)) {
+            // The registry's instance is not the session's, FileType has no equals of its own
+            if (!newFileType.getId().equals(originalFileType.getId())) {
                 typeChanged = true;
                 file.setFileType(newFileType);
             }
@@ -228,104 +281,176 @@ public class FileService {
 
         // Handle data changes
         boolean dataChanged = false;
+        String originalHash = file.getContentHash();
         if (request.getData() != null) {
-            file.setData(Base64.getDecoder().decode(request.getData()));
+            StoredBlob blob = blobStore.write(
+                    new ByteArrayInputStream(Base64.getDecoder().decode(request.getData())));
+            blobStore.acquire(blob);
+            blobStore.release(originalHash);
+            file.setContentHash(blob.getHash());
+            file.setSize(blob.getSize());
             dataChanged = true;
         }
 
-        FileMetadata savedFile = fileRepository.save(file);
+        // Flushed first: the public tree only changes once the unique name check has passed
+        FileMetadata savedFile = fileRepository.saveAndFlush(file);
+        folderStatsService.fileChanged(originalFolder.getId(), originalFileType.getId(), originalSize,
+                savedFile.getFolder().getId(), savedFile.getFileType().getId(), savedFile.getSize());
+        eventPublisher.publishEvent(FileChangedEvent.updated(savedFile.getId(), savedFile.getFolder().getId(),
+                savedFile.getName(), savedFile.getFileType().getType()));
 
-        // Filesystem operations
+        // Filesystem operations, each undone if the transaction rolls back
         if (folderChanged || nameChanged || typeChanged || dataChanged) {
-            Path oldDir = buildDirectoryPath(originalFolder);
-            Path newDir = buildDirectoryPath(savedFile.getFolder());
-
-            String oldFileName = originalName + "." + originalFileType.getType();
-            String newFileName = savedFile.getName() + "." + savedFile.getFileType().getType();
-
-            // Delete old file if location changed
-            if (folderChanged || nameChanged || typeChanged) {
-                Path oldFilePath = oldDir.resolve(oldFileName);
-                Files.deleteIfExists(oldFilePath);
+            Path oldFilePath = storageService.resolveFilePath(
+                    originalFolder, originalName, originalFileType.getType());
+            Path newFilePath = storageService.resolveFilePath(
+                    savedFile.getFolder(), savedFile.getName(), savedFile.getFileType().getType());
+            Path newBlob = blobStore.resolve(savedFile.getContentHash());
+
+            if (!dataChanged) {
+                storageService.move(oldFilePath, newFilePath);
+            } else if (newFilePath.equals(oldFilePath)) {
+                storageService.relink(newBlob, newFilePath, blobStore.resolve(originalHash));
+            } else {
+                // The old entry only goes once the row has committed under its new path
+                storageService.linkInserted(newBlob, newFilePath);
+                storageService.deleteAfterCommit(oldFilePath, blobStore.resolve(originalHash));
             }
-
-            // Write new file
-            Files.createDirectories(newDir);
-            Path newFilePath = newDir.resolve(newFileName);
-            Files.write(newFilePath, savedFile.getData());
         }
 
         return mapToFileResponse(savedFile);
     }
 
     @Transactional(readOnly = true)
-    public List<FileResponse> getAllFilesByFileType(String fileType) {
+    public CursorPage<FileResponse> getAllFilesByFileType(String fileType, PageQuery pageQuery) {
         // Validate input
         if (fileType == null || fileType.isEmpty()) {
             throw new IllegalArgumentException("File type must be provided");
         }
 
         // Verify file type exists
-        FileType type = fileTypeRepository.findByType(fileType)
+        FileType type = fileTypeRegistry.findByType(fileType)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid file type: " + fileType));
 
         // Find all files with this type
-        List<FileMetadata> files = fileRepository.findByFileType(type);
+        return findPage(FileListFilter.all().withFileTypeId(type.getId()), pageQuery);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<FileResponse> findAllFilesInFolderByType(FolderFilesByTypeRequest request,
+                                                               PageQuery pageQuery) {
+        // Validate input
+        if (request.getFolderPath() == null || request.getFolderPath().isEmpty()) {
+            throw new IllegalArgumentException("Folder path must be provided");
+        }
+        if (request.getFileType() == null || request.getFileType().isEmpty()) {
+            throw new IllegalArgumentException("File type must be provided");
+        }
+
+        UUID folderId = resolveExistingFolder(request.getFolderPath()).getId();
+        FileType type = fileTypeRegistry.findByType(request.getFileType())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid file type: " + request.getFileType()));
 
-        return files.stream()
-                .map(this::mapToFileResponse)
-                .collect(Collectors.toList());
+        // Both filters are ids, so the page is a (folder_id, file_type_id, name) index range
+        return findPage(FileListFilter.inFolder(folderId).withFileTypeId(type.getId()), pageQuery);
     }
 
-    private Path buildDirectoryPath(Folder folder) {
-        Path dirPath = Paths.get("public").toAbsolutePath().normalize();
+    @Transactional(readOnly = true)
+    public FileQueryResponse queryFiles(FileQueryRequest request, PageQuery pageQuery) {
+        KeysetPage page = pageCursors.parse(pageQuery);
+        FileQuery query = new FileQuery();
+
+        if (request.getFolderId() != null) {
+            if (!folderRepository.existsById(request.getFolderId())
+                    || folderHierarchyService.isDeleted(request.getFolderId())) {
+                throw new IllegalArgumentException("Folder not found");
+            }
+            query.subtree(request.getFolderId());
+        }
 
-        List<String> folderNames = new ArrayList<>();
-        Folder current = folder;
-        while (current != null && !isRootFolder(current)) {
-            folderNames.add(current.getName());
-            current = current.getParent();
+        if (request.getTypes() != null && !request.getTypes().isEmpty()) {
+            Set<UUID> typeIds = new HashSet<>();
+            for (String type : request.getTypes()) {
+                typeIds.add(fileTypeRegistry.findByType(type)
+                        .orElseThrow(() -> new IllegalArgumentException("Invalid file type: " + type))
+                        .getId());
+            }
+            query.fileTypeIds(typeIds);
         }
-        Collections.reverse(folderNames);
 
-        for (String name : folderNames) {
-            dirPath = dirPath.resolve(name);
+        if ((request.getMinSize() != null && request.getMinSize() < 0)
+                || (request.getMaxSize() != null && request.getMaxSize() < 0)) {
+            throw new IllegalArgumentException("Sizes must not be negative");
+        }
+        checkRange(request.getMinSize(), request.getMaxSize(), "minSize", "maxSize");
+        checkRange(request.getCreatedAfter(), request.getCreatedBefore(), "createdAfter", "createdBefore");
+        checkRange(request.getUpdatedAfter(), request.getUpdatedBefore(), "updatedAfter", "updatedBefore");
+        query.size(request.getMinSize(), request.getMaxSize())
+                .created(toTimestamp(request.getCreatedAfter()), toTimestamp(request.getCreatedBefore()))
+                .updated(toTimestamp(request.getUpdatedAfter()), toTimestamp(request.getUpdatedBefore()));
+
+        if (request.getName() != null && !request.getName().isBlank()) {
+            query.namePattern(toLikePattern(request.getName().trim()));
         }
 
-        return dirPath;
+        CursorPage<FileResponse> files = pageCursors.toPage(fileRepository.findQueryPage(query, page), page,
+                FileResponse::getId, FileService::sortValue, rows -> rows);
+        // Facets describe the whole match set, so later pages leave them out
+        boolean firstPage = pageQuery.getCursor() == null || pageQuery.getCursor().isEmpty();
+        FileQueryFacets facets = request.isFacets() && firstPage ? fileRepository.findQueryFacets(query) : null;
+        return new FileQueryResponse(files, facets);
     }
 
-    @Transactional(readOnly = true)
-    public List<FileResponse> findAllFilesInFolderByType(FolderFilesByTypeRequest request) {
-        // Validate input
-        if (request.getFolderPath() == null || request.getFolderPath().isEmpty()) {
-            throw new IllegalArgumentException("Folder path must be provided");
-        }
-        if (request.getFileType() == null || request.getFileType().isEmpty()) {
-            throw new IllegalArgumentException("File type must be provided");
+    private static <T extends Comparable<T>> void checkRange(T from, T to, String fromName, String toName) {
+        if (from != null && to != null && from.compareTo(to) >= 0) {
+            throw new IllegalArgumentException(fromName + " must be before " + toName);
         }
+    }
 
-        // Normalize the path
-        String normalizedPath = request.getFolderPath().replaceAll("^/+|/+$", "");
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
 
-        // For root folder
-        if (normalizedPath.isEmpty()) {
-            Folder root = getRootFolder();
-            return fileRepository.findByFolderAndFileTypeType(root, request.getFileType())
-                    .stream()
-                    .map(this::mapToFileResponse)
-                    .collect(Collectors.toList());
+    // Glob to LIKE: * and ? become wildcards, LIKE's own wildcards match literally
+    private static String toLikePattern(String glob) {
+        StringBuilder pattern = new StringBuilder();
+        for (char c : glob.toLowerCase(Locale.ROOT).toCharArray()) {
+            switch (c) {
+                case '*':
+                    pattern.append('%');
+                    break;
+                case '?':
+                    pattern.append('_');
+                    break;
+                case '%':
+                case '_':
+                case '\\':
+                    pattern.append('\\').append(c);
+                    break;
+                default:
+                    pattern.append(c);
+            }
         }
+        return pattern.toString();
+    }
 
-        // Find files in the specified folder with matching type
-        List<FileMetadata> files = fileRepository.findAllByFolderPathAndFileType(
-                normalizedPath,
-                request.getFileType()
-        );
+    private CursorPage<FileResponse> findPage(FileListFilter filter, PageQuery pageQuery) {
+        KeysetPage page = pageCursors.parse(pageQuery);
+        return pageCursors.toPage(fileRepository.findResponsePage(filter, page), page,
+                FileResponse::getId, FileService::sortValue, rows -> rows);
+    }
 
-        return files.stream()
-                .map(this::mapToFileResponse)
-                .collect(Collectors.toList());
+    private static Object sortValue(FileResponse file, KeysetPage.SortKey sortKey) {
+        switch (sortKey) {
+            case SIZE:
+                return file.getSize();
+            case CREATED_AT:
+                return file.getCreatedAt();
+            case UPDATED_AT:
+                return file.getUpdatedAt();
+            default:
+                return file.getName();
+        }
     }
 
     private FileResponse mapToFileResponse(FileMetadata file) {
@@ -342,105 +467,50 @@ public class FileService {
 
     private void deleteFromDisk(FileMetadata file) {
         try {
-            Path filePath = Paths.get("public")
-                    .resolve(file.getPath() + "." + file.getFileType().getType());
-
-            Path rootPath = Paths.get("public").resolve("root");
-            if (filePath.startsWith(rootPath)) {
-                filePath = filePath.subpath(rootPath.getNameCount(), filePath.getNameCount());
-                filePath = Paths.get("public").resolve(filePath);
-
-            }
-            Files.deleteIfExists(filePath);
+            Files.deleteIfExists(storageService.resolveFilePath(
+                    file.getFolder(), file.getName(), file.getFileType().getType()));
         } catch (IOException e) {
             throw new RuntimeException("Failed to delete file from filesystem", e);
         }
     }
 
     private Folder ensureFolderStructure(List<String> pathSegments) {
-        Folder currentParent = null;
+        Folder current = getRootFolder();
+        List<String> resolved = new ArrayList<>();
+        boolean creating = false;
 
         for (String segment : pathSegments) {
-            final Folder finalCurrentParent = currentParent;
-
-            currentParent = folderRepository.findByNameAndParent(segment, finalCurrentParent)
-                    .orElseGet(() -> {
-                        Folder newFolder = new Folder();
-                        newFolder.setName(segment);
-                        newFolder.setParent(finalCurrentParent);
-                        newFolder.setCreatedAt(new Timestamp(System.currentTimeMillis()));
-                        newFolder.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                        folderRepository.save(newFolder);
-
-                        updateFolderHierarchy(newFolder);
-                        return newFolder;
-                    });
-        }
-        if (currentParent == null) {
-            currentParent = folderRepository.findByNameAndParent("root", null)
-                    .orElseThrow(() -> new IllegalStateException("Root folder not found"));
-        }
-
-        return currentParent;
-    }
-
-    private void updateFolderHierarchy(Folder newFolder) {
-        if (newFolder.getParent() != null) {
-            // Add parent relationships
-            List<FolderHierarchy> parentHierarchy = folderHierarchyRepository.findByFolderId(newFolder.getParent().getId());
-            for (FolderHierarchy hierarchy : parentHierarchy) {
-                FolderHierarchy newHierarchy = new FolderHierarchy(
-                        newFolder,
-                        hierarchy.getAncestor(),
-                        hierarchy.getDepth() + 1
-                );
-                folderHierarchyRepository.save(newHierarchy);
+            if (segment.isEmpty()) {
+                continue;
             }
-        }
-
-        // Add self reference
-        FolderHierarchy selfHierarchy = new FolderHierarchy(
-                newFolder,
-                newFolder,
-                0
-        );
-        folderHierarchyRepository.save(selfHierarchy);
-    }
+            resolved.add(segment);
 
-    private String constructFilePath(Folder folder) {
-        List<String> pathSegments = new ArrayList<>();
-        while (folder != null) {
-            pathSegments.add(folder.getName());
-            folder = folder.getParent();
-        }
-        Collections.reverse(pathSegments);
-        return String.join("/", pathSegments);
-    }
-
-    private void saveToDisk(Folder parentFolder, FileMetadata file) throws IOException {
-        Path rootDir = Paths.get("public").toAbsolutePath().normalize();
-        Files.createDirectories(rootDir);
-
-        // Skip "root" folder name in filesystem path
-        List<String> folderNames = new ArrayList<>();
-        Folder current = parentFolder;
-        while (current != null && !isRootFolder(current)) {
-            folderNames.add(current.getName());
-            current = current.getParent();
-        }
-        Collections.reverse(folderNames);
+            // Once one level is new, everything below it is new too
+            Optional<UUID> existing = creating ? Optional.empty() : folderIndex.resolve(resolved);
+            if (existing.isPresent()) {
+                current = folderRepository.getReferenceById(existing.get());
+                continue;
+            }
 
-        Path storagePath = rootDir;
-        for (String folderName : folderNames) {
-            storagePath = storagePath.resolve(folderName);
+            Folder newFolder = new Folder();
+            newFolder.setName(segment);
+            newFolder.setParent(current);
+            newFolder.setPath(current.getPath().isEmpty() ? segment : current.getPath() + "/" + segment);
+            newFolder.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+            newFolder.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+            folderRepository.save(newFolder);
+
+            folderHierarchyService.addFolder(newFolder);
+            eventPublisher.publishEvent(
+                    FolderChangedEvent.created(newFolder.getId(), current.getId(), segment));
+            current = newFolder;
+            creating = true;
         }
-
-        Files.createDirectories(storagePath);
-        Path filePath = storagePath.resolve(file.getName() + "." + file.getFileType().getType());
-        Files.write(filePath, file.getData());
+        return current;
     }
 
-    private boolean isRootFolder(Folder folder) {
-        return "root".equals(folder.getName()) && folder.getParent() == null;
+    private String constructFilePath(Folder folder) {
+        // File paths keep the historical "root/" prefix in front of the folder's materialized path
+        return folder.getPath().isEmpty() ? "root" : "root/" + folder.getPath();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,142 @@
+package org.example.services;
+
+import org.example.domain.model.FileType;
+import org.example.domain.repository.FileTypeRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of the file_type table keyed by name and by id. Readers see an immutable
+ * snapshot through one volatile read; changes copy the snapshot and swap it in. A lookup that
+ * misses falls back to the database, so types added by another instance are picked up too;
+ * a row read inside a transaction is only cached once that transaction commits.
+ * The cached entities are detached and shared, callers must not modify them.
+ */
+@Component
+public class FileTypeRegistry {
+
+    private final FileTypeRepository fileTypeRepository;
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong databaseLookups = new AtomicLong();
+
+    public FileTypeRegistry(FileTypeRepository fileTypeRepository) {
+        this.fileTypeRepository = fileTypeRepository;
+    }
+
+    // One query for the whole table
+    public synchronized void reload() {
+        snapshot = new Snapshot(fileTypeRepository.findAll());
+    }
+
+    public Optional<FileType> findByType(String type) {
+        if (type == null) {
+            return Optional.empty();
+        }
+        FileType fileType = current().byName.get(type);
+        if (fileType != null) {
+            hits.incrementAndGet();
+            return Optional.of(fileType);
+        }
+        databaseLookups.incrementAndGet();
+        Optional<FileType> loaded = fileTypeRepository.findByType(type);
+        loaded.ifPresent(this::registerAfterCommit);
+        return loaded;
+    }
+
+    public Optional<FileType> findById(UUID id) {
+        FileType fileType = current().byId.get(id);
+        if (fileType != null) {
+            hits.incrementAndGet();
+            return Optional.of(fileType);
+        }
+        databaseLookups.incrementAndGet();
+        Optional<FileType> loaded = fileTypeRepository.findById(id);
+        loaded.ifPresent(this::registerAfterCommit);
+        return loaded;
+    }
+
+    public boolean contains(String type) {
+        return current().byName.containsKey(type);
+    }
+
+    public List<FileType> getAll() {
+        return new ArrayList<>(current().byName.values());
+    }
+
+    public synchronized void register(FileType fileType) {
+        Snapshot previous = current();
+        if (previous.byId.get(fileType.getId()) == fileType) {
+            return;
+        }
+        List<FileType> types = new ArrayList<>(previous.byName.values());
+        types.removeIf(existing -> existing.getId().equals(fileType.getId()));
+        types.add(fileType);
+        snapshot = new Snapshot(types);
+    }
+
+    // Inside a transaction the new type only becomes visible once its row is committed
+    public void registerAfterCommit(FileType fileType) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            register(fileType);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                register(fileType);
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("types", current().byName.size());
+        stats.put("hits", hits.get());
+        stats.put("databaseLookups", databaseLookups.get());
+        return stats;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static final class Snapshot {
+        final Map<String, FileType> byName;
+        final Map<UUID, FileType> byId;
+
+        Snapshot(Collection<FileType> types) {
+            Map<String, FileType> byName = new HashMap<>();
+            Map<UUID, FileType> byId = new HashMap<>();
+            for (FileType type : types) {
+                byName.put(type.getType(), type);
+                byId.put(type.getId(), type);
+            }
+            this.byName = Collections.unmodifiableMap(byName);
+            this.byId = Collections.unmodifiableMap(byId);
+        }
+    }
+}
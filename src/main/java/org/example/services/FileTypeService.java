@@ -3,6 +3,7 @@ package org.example.services;
 import org.example.domain.model.FileType;
 import org.example.domain.repository.FileTypeRepository;
 import org.example.dto.request.FileTypeRequest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,33 +15,54 @@ import java.util.UUID;
 @Service
 public class FileTypeService {
     private final FileTypeRepository fileTypeRepository;
+    private final FileTypeRegistry fileTypeRegistry;
 
-    public FileTypeService(FileTypeRepository fileTypeRepository) {
+    public FileTypeService(FileTypeRepository fileTypeRepository, FileTypeRegistry fileTypeRegistry) {
         this.fileTypeRepository = fileTypeRepository;
+        this.fileTypeRegistry = fileTypeRegistry;
     }
 
-    @Transactional
     public List<FileType> getFileTypes() {
-        return fileTypeRepository.findAll();
+        return fileTypeRegistry.getAll();
     }
 
     @Transactional
     public FileType AddFileType(FileTypeRequest request) {
         String typeName = request.getFileType().toLowerCase().trim();
 
-        if (fileTypeRepository.existsByType(typeName)) {
+        if (fileTypeRegistry.findByType(typeName).isPresent()) {
             throw new IllegalArgumentException("File type '" + typeName + "' already exists");
         }
 
         FileType newFileType = new FileType();
         newFileType.setType(typeName);
 
-        return fileTypeRepository.save(newFileType);
+        FileType saved = fileTypeRepository.save(newFileType);
+        fileTypeRegistry.registerAfterCommit(saved);
+        return saved;
+    }
+
+    // Types met during an import; when another request inserts the same name first, its row is used
+    public FileType findOrCreate(String type) {
+        String typeName = type.toLowerCase().trim();
+        Optional<FileType> existing = fileTypeRegistry.findByType(typeName);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        FileType newFileType = new FileType();
+        newFileType.setType(typeName);
+        try {
+            FileType saved = fileTypeRepository.save(newFileType);
+            fileTypeRegistry.registerAfterCommit(saved);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            return fileTypeRegistry.findByType(typeName).orElseThrow(() -> e);
+        }
     }
 
-    @Transactional(readOnly = true)
     public FileType getFileTypeById(UUID id) {
-        return fileTypeRepository.findById(id)
+        return fileTypeRegistry.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("File type not found with ID: " + id));
     }
 }
@@ -0,0 +1,94 @@
+package org.example.services;
+
+import org.example.domain.model.Folder;
+import org.example.domain.model.FolderHierarchyId;
+import org.example.domain.repository.FolderHierarchyRepository;
+import org.example.domain.repository.FolderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Owns the folder_hierarchy closure table. New folders get all of their rows from one
+ * INSERT ... SELECT; {@link #rebuild()} recomputes the whole table from folder.parent_id.
+ */
+@Service
+public class FolderHierarchyService {
+
+    private static final Logger log = LoggerFactory.getLogger(FolderHierarchyService.class);
+
+    private static final int IN_CHUNK = 1000;
+
+    private final FolderHierarchyRepository folderHierarchyRepository;
+    private final FolderRepository folderRepository;
+
+    public FolderHierarchyService(FolderHierarchyRepository folderHierarchyRepository,
+                                  FolderRepository folderRepository) {
+        this.folderHierarchyRepository = folderHierarchyRepository;
+        this.folderRepository = folderRepository;
+    }
+
+    @Transactional
+    public void addFolder(Folder folder) {
+        if (folder.getParent() == null) {
+            folderHierarchyRepository.insertSelf(folder.getId());
+        } else {
+            folderHierarchyRepository.insertClosure(folder.getId(), folder.getParent().getId());
+        }
+    }
+
+    // One statement per chunk; the parents of every folder given must already be in the table
+    @Transactional
+    public void addFolders(List<UUID> folderIds) {
+        for (int from = 0; from < folderIds.size(); from += IN_CHUNK) {
+            folderHierarchyRepository.insertClosures(folderIds.subList(from, Math.min(from + IN_CHUNK, folderIds.size())));
+        }
+    }
+
+    public boolean isInSubtree(UUID folderId, UUID subtreeRootId) {
+        return folderHierarchyRepository.existsById(new FolderHierarchyId(folderId, subtreeRootId));
+    }
+
+    public boolean isDeleted(UUID folderId) {
+        return folderHierarchyRepository.isInDeletedSubtree(folderId);
+    }
+
+    // Folders inside a deleted subtree are gone as far as callers are concerned
+    public Folder requireLive(UUID folderId) {
+        Folder folder = folderRepository.findById(folderId)
+                .orElseThrow(() -> new IllegalArgumentException("Folder not found"));
+        if (isDeleted(folderId)) {
+            throw new IllegalArgumentException("Folder not found");
+        }
+        return folder;
+    }
+
+    // Cost is the closure rows crossing the subtree boundary, independent of what the folders hold
+    @Transactional
+    public void moveSubtree(UUID folderId, UUID newParentId) {
+        folderHierarchyRepository.detachSubtree(folderId);
+        folderHierarchyRepository.attachSubtree(folderId, newParentId);
+    }
+
+    @Transactional
+    public int rebuild() {
+        folderHierarchyRepository.deleteAllRows();
+        int rows = folderHierarchyRepository.insertAllFromParents();
+        log.info("Rebuilt folder hierarchy with {} row(s)", rows);
+        return rows;
+    }
+
+    // Trees written by the old per-row code have no self rows (root had none at all)
+    @Transactional
+    public boolean rebuildIfIncomplete() {
+        if (folderHierarchyRepository.countFoldersWithoutSelfRow() == 0) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+}
@@ -0,0 +1,284 @@
+package org.example.services;
+
+import org.example.domain.repository.FolderRepository;
+import org.example.events.FolderChangedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory folder tree: (parentId, name) to folderId, plus a cache of resolved full paths.
+ * Loaded once at startup and kept in step with committed folder changes, so resolving a
+ * path is a hash lookup instead of one query per segment. A lookup that misses the index
+ * falls back to the database and fills the gap, unless a rename, move or delete landed while
+ * it ran or it read inside a transaction that may still roll back.
+ */
+@Component
+public class FolderIndex {
+
+    private final FolderRepository folderRepository;
+
+    private final Map<ChildKey, UUID> children = new ConcurrentHashMap<>();
+    private final Map<UUID, ChildKey> keysById = new ConcurrentHashMap<>();
+    private final Map<String, UUID> pathCache = new ConcurrentHashMap<>();
+    private volatile UUID rootId;
+    private volatile boolean loaded;
+    // Bumped before every invalidation; a database fallback only caches what it read under one generation
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong pathHits = new AtomicLong();
+    private final AtomicLong pathMisses = new AtomicLong();
+    private final AtomicLong databaseLookups = new AtomicLong();
+
+    public FolderIndex(FolderRepository folderRepository) {
+        this.folderRepository = folderRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    public synchronized void reload() {
+        generation.incrementAndGet();
+        children.clear();
+        keysById.clear();
+        pathCache.clear();
+        rootId = null;
+        for (FolderRepository.FolderNode node : folderRepository.findAllNodes()) {
+            if (node.getParentId() == null) {
+                if ("root".equals(node.getName())) {
+                    rootId = node.getId();
+                }
+                continue;
+            }
+            put(node.getId(), node.getParentId(), node.getName());
+        }
+        loaded = true;
+    }
+
+    public UUID getRootId() {
+        ensureLoaded();
+        UUID id = rootId;
+        if (id == null) {
+            // Root is created by DataInitializer, pick it up if the index loaded before it existed
+            id = folderRepository.findIdOfRoot()
+                    .orElseThrow(() -> new IllegalStateException("Root folder not found"));
+            rootId = id;
+        }
+        return id;
+    }
+
+    public Optional<UUID> resolve(List<String> segments) {
+        if (segments.isEmpty()) {
+            return Optional.of(getRootId());
+        }
+
+        String path = String.join("/", segments);
+        UUID cached = pathCache.get(path);
+        if (cached != null) {
+            pathHits.incrementAndGet();
+            return Optional.of(cached);
+        }
+        pathMisses.incrementAndGet();
+
+        long startGeneration = generation.get();
+        boolean cacheable = isCommittedRead();
+        UUID current = getRootId();
+        for (String segment : segments) {
+            UUID child = children.get(new ChildKey(current, segment));
+            if (child == null) {
+                databaseLookups.incrementAndGet();
+                Optional<UUID> found = folderRepository.findIdByParentIdAndName(current, segment);
+                if (found.isEmpty()) {
+                    return Optional.empty();
+                }
+                child = found.get();
+                if (cacheable) {
+                    putIfCurrent(startGeneration, child, current, segment);
+                }
+            }
+            current = child;
+        }
+        if (cacheable) {
+            // Put first, then check: an invalidation that ran in between has bumped the generation
+            pathCache.put(path, current);
+            if (generation.get() != startGeneration) {
+                pathCache.remove(path, current);
+            }
+        }
+        return Optional.of(current);
+    }
+
+    // Walks the indexed parent chain; a folder the index does not know, a deleted one included, is outside
+    public boolean isWithin(UUID folderId, UUID ancestorId) {
+        UUID root = getRootId();
+        UUID current = folderId;
+        while (current != null) {
+            if (current.equals(ancestorId)) {
+                return true;
+            }
+            if (current.equals(root)) {
+                return false;
+            }
+            ChildKey key = keysById.get(current);
+            current = key != null ? key.parentId : null;
+        }
+        return false;
+    }
+
+    // Rows read in a write transaction may be its own uncommitted folders
+    private static boolean isCommittedRead() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    @TransactionalEventListener
+    public void onFolderChanged(FolderChangedEvent event) {
+        switch (event.getKind()) {
+            case CREATED:
+                put(event.getFolderId(), event.getParentId(), event.getName());
+                break;
+            case RENAMED:
+                generation.incrementAndGet();
+                String parentPath = pathOf(event.getParentId());
+                children.remove(new ChildKey(event.getParentId(), event.getPreviousName()));
+                put(event.getFolderId(), event.getParentId(), event.getName());
+                invalidateSubtree(parentPath, event.getPreviousName());
+                break;
+            case MOVED:
+                generation.incrementAndGet();
+                String previousParentPath = pathOf(event.getPreviousParentId());
+                put(event.getFolderId(), event.getParentId(), event.getName());
+                invalidateSubtree(previousParentPath, event.getName());
+                break;
+            case DELETED:
+                generation.incrementAndGet();
+                // The tombstone event carries only the top folder, its cached subtree goes by path
+                if (keysById.containsKey(event.getFolderId())) {
+                    invalidatePath(pathOf(event.getFolderId()));
+                }
+                Set<UUID> removed = new HashSet<>(event.getRemovedIds());
+                removed.add(event.getFolderId());
+                for (UUID id : removed) {
+                    ChildKey key = keysById.remove(id);
+                    if (key != null) {
+                        children.remove(key, id);
+                    }
+                }
+                pathCache.values().removeIf(removed::contains);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("folders", keysById.size());
+        stats.put("cachedPaths", pathCache.size());
+        stats.put("pathHits", pathHits.get());
+        stats.put("pathMisses", pathMisses.get());
+        stats.put("databaseLookups", databaseLookups.get());
+        return stats;
+    }
+
+    private void invalidateSubtree(String parentPath, String name) {
+        invalidatePath(parentPath == null ? null : parentPath.isEmpty() ? name : parentPath + "/" + name);
+    }
+
+    // Drops the cached paths at and below the given one; an unknown path clears everything
+    private void invalidatePath(String oldPath) {
+        if (oldPath == null) {
+            pathCache.clear();
+            return;
+        }
+        pathCache.keySet().removeIf(path -> path.equals(oldPath) || path.startsWith(oldPath + "/"));
+    }
+
+    private void putIfCurrent(long startGeneration, UUID id, UUID parentId, String name) {
+        if (generation.get() != startGeneration) {
+            return;
+        }
+        ChildKey key = new ChildKey(parentId, name);
+        keysById.putIfAbsent(id, key);
+        children.putIfAbsent(key, id);
+        if (generation.get() != startGeneration) {
+            children.remove(key, id);
+            keysById.remove(id, key);
+        }
+    }
+
+    private void put(UUID id, UUID parentId, String name) {
+        ChildKey key = new ChildKey(parentId, name);
+        ChildKey previous = keysById.put(id, key);
+        if (previous != null && !previous.equals(key)) {
+            children.remove(previous, id);
+        }
+        children.put(key, id);
+    }
+
+    // Path of an indexed folder relative to root, null when part of the chain is unknown
+    private String pathOf(UUID folderId) {
+        List<String> names = new ArrayList<>();
+        UUID current = folderId;
+        while (!Objects.equals(current, rootId)) {
+            ChildKey key = current != null ? keysById.get(current) : null;
+            if (key == null) {
+                return null;
+            }
+            names.add(key.name);
+            current = key.parentId;
+        }
+        Collections.reverse(names);
+        return String.join("/", names);
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private static final class ChildKey {
+        private final UUID parentId;
+        private final String name;
+
+        private ChildKey(UUID parentId, String name) {
+            this.parentId = parentId;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChildKey)) return false;
+            ChildKey that = (ChildKey) o;
+            return Objects.equals(parentId, that.parentId) && Objects.equals(name, that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parentId, name);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package org.example.services;
+
+import org.example.domain.model.FolderDeletionJob;
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderDeletionJobRepository;
+import org.example.domain.repository.FolderHierarchyRepository;
+import org.example.domain.repository.FolderRepository;
+import org.example.dto.response.FolderDeletionResponse;
+import org.example.events.FileChangedEvent;
+import org.example.events.FolderChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background half of folder deletion. {@link FolderService#deleteFolder} only tombstones the
+ * top folder; this removes the subtree's files, then its folders deepest first, one bounded
+ * batch per transaction, and finally deletes the trashed directory tree in parallel. Runs on a
+ * thread of its own, a long purge must not hold up the jobs on the shared scheduler.
+ */
+@Service
+public class FolderPurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(FolderPurgeService.class);
+
+    private final FolderDeletionJobRepository jobRepository;
+    private final FolderRepository folderRepository;
+    private final FolderHierarchyRepository folderHierarchyRepository;
+    private final FileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final FolderStatsService folderStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final long purgeIntervalMs;
+    private final ForkJoinPool deletePool;
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "folder-purger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FolderPurgeService(FolderDeletionJobRepository jobRepository,
+                              FolderRepository folderRepository,
+                              FolderHierarchyRepository folderHierarchyRepository,
+                              FileRepository fileRepository,
+                              BlobStore blobStore,
+                              FolderStatsService folderStatsService,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${deletion.batch-size:500}") int batchSize,
+                              @Value("${deletion.purge-interval-ms:5000}") long purgeIntervalMs,
+                              @Value("${deletion.parallelism:0}") int parallelism) {
+        this.jobRepository = jobRepository;
+        this.folderRepository = folderRepository;
+        this.folderHierarchyRepository = folderHierarchyRepository;
+        this.fileRepository = fileRepository;
+        this.blobStore = blobStore;
+        this.folderStatsService = folderStatsService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.purgeIntervalMs = purgeIntervalMs;
+        this.deletePool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        purger.scheduleWithFixedDelay(this::purgePending, purgeIntervalMs, purgeIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purger.shutdownNow();
+        deletePool.shutdown();
+    }
+
+    @Transactional(readOnly = true)
+    public FolderDeletionResponse getJob(UUID jobId) {
+        return jobRepository.findById(jobId)
+                .map(this::mapToResponse)
+                .orElseThrow(() -> new IllegalArgumentException("Deletion job not found: " + jobId));
+    }
+
+    // Also picks up jobs interrupted by a restart, every step is safe to repeat
+    public void purgePending() {
+        List<UUID> jobIds;
+        try {
+            jobIds = jobRepository.findIdsByStatusIn(
+                    Arrays.asList(FolderDeletionJob.Status.PENDING, FolderDeletionJob.Status.RUNNING));
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task for good
+            log.error("Failed to look up deletion jobs, retrying on the next run", e);
+            return;
+        }
+        for (UUID jobId : jobIds) {
+            try {
+                purge(jobId);
+            } catch (RuntimeException e) {
+                log.error("Deletion job {} failed, retrying on the next run", jobId, e);
+                transactionTemplate.executeWithoutResult(status -> jobRepository.findById(jobId)
+                        .ifPresent(job -> job.setLastError(truncate(String.valueOf(e.getMessage())))));
+            }
+        }
+    }
+
+    private void purge(UUID jobId) {
+        FolderDeletionJob job = transactionTemplate.execute(status -> start(jobId));
+        if (job == null) {
+            return;
+        }
+        UUID rootId = job.getFolderId();
+
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> purgeFileBatch(jobId, rootId)))) {
+            // Until no file is left below the tombstone
+        }
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> purgeFolderBatch(jobId, rootId)))) {
+            // Until the tombstone itself is gone
+        }
+
+        if (job.getTrashDirectory() != null) {
+            Path directory = Paths.get(job.getTrashDirectory());
+            if (Files.exists(directory)) {
+                deletePool.invoke(new DeleteDirectoryTask(directory));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(done -> {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            done.setStatus(FolderDeletionJob.Status.COMPLETED);
+            done.setLastError(null);
+            done.setUpdatedAt(now);
+            done.setCompletedAt(now);
+        }));
+        log.info("Deletion job {} purged '{}'", jobId, job.getFolderPath());
+    }
+
+    private FolderDeletionJob start(UUID jobId) {
+        FolderDeletionJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() == FolderDeletionJob.Status.COMPLETED) {
+            return null;
+        }
+        if (job.getStatus() == FolderDeletionJob.Status.PENDING) {
+            // Counted here rather than in the request, which has to stay O(1)
+            job.setFoldersTotal(folderHierarchyRepository.countByAncestorId(job.getFolderId()));
+            job.setFilesTotal(fileRepository.countInSubtree(job.getFolderId()));
+            job.setStatus(FolderDeletionJob.Status.RUNNING);
+            job.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        }
+        return job;
+    }
+
+    private boolean purgeFileBatch(UUID jobId, UUID rootId) {
+        List<UUID> fileIds = fileRepository.findIdsInSubtree(rootId, PageRequest.of(0, batchSize));
+        if (fileIds.isEmpty()) {
+            return false;
+        }
+        blobStore.releaseForFiles(fileIds);
+        fileRepository.deleteAllByIdInBatch(fileIds);
+
+        FolderDeletionJob job = jobRepository.getReferenceById(jobId);
+        job.setFilesDeleted(job.getFilesDeleted() + fileIds.size());
+        job.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+
+        eventPublisher.publishEvent(FileChangedEvent.deleted(fileIds));
+        return true;
+    }
+
+    private boolean purgeFolderBatch(UUID jobId, UUID rootId) {
+        List<UUID> folderIds = folderHierarchyRepository.findDeepestInSubtree(rootId, PageRequest.of(0, batchSize));
+        if (folderIds.isEmpty()) {
+            return false;
+        }
+        folderHierarchyRepository.deleteByFolderIdIn(folderIds);
+        folderHierarchyRepository.deleteByAncestorIdIn(folderIds);
+        folderRepository.deleteAllByIdInBatch(folderIds);
+        // Ancestors were already debited when the subtree was tombstoned
+        folderStatsService.forgetFolders(folderIds);
+
+        FolderDeletionJob job = jobRepository.getReferenceById(jobId);
+        job.setFoldersDeleted(job.getFoldersDeleted() + folderIds.size());
+        job.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+
+        // Lets the folder index drop its entries for the purged ids
+        eventPublisher.publishEvent(FolderChangedEvent.deleted(rootId, null, folderIds));
+        return true;
+    }
+
+    private static String truncate(String message) {
+        return message.length() > 1024 ? message.substring(0, 1024) : message;
+    }
+
+    private FolderDeletionResponse mapToResponse(FolderDeletionJob job) {
+        FolderDeletionResponse response = new FolderDeletionResponse();
+        response.setId(job.getId());
+        response.setFolderId(job.getFolderId());
+        response.setFolderName(job.getFolderName());
+        response.setFolderPath(job.getFolderPath());
+        response.setStatus(job.getStatus().name());
+        response.setFoldersTotal(job.getFoldersTotal());
+        response.setFoldersDeleted(job.getFoldersDeleted());
+        response.setFilesTotal(job.getFilesTotal());
+        response.setFilesDeleted(job.getFilesDeleted());
+        response.setLastError(job.getLastError());
+        response.setCreatedAt(job.getCreatedAt());
+        response.setCompletedAt(job.getCompletedAt());
+        return response;
+    }
+
+    // Files are unlinked by the task owning their directory, subdirectories fork; a directory goes once its children have
+    private static final class DeleteDirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+
+        private DeleteDirectoryTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            List<DeleteDirectoryTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        subdirectories.add(new DeleteDirectoryTask(entry));
+                    } else {
+                        Files.deleteIfExists(entry);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete: " + directory, e);
+            }
+            invokeAll(subdirectories);
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete: " + directory, e);
+            }
+        }
+    }
+}
@@ -2,15 +2,19 @@ package org.example.services;
 
 import org.example.domain.model.*;
 import org.example.domain.repository.*;
+import org.example.dto.request.PageQuery;
+import org.example.dto.response.CursorPage;
+import org.example.dto.response.FolderDeletionResponse;
 import org.example.dto.response.FolderResponse;
+import org.example.events.FolderChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.Timestamp;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -18,24 +22,49 @@ import java.util.stream.Collectors;
 @Service
 public class FolderService {
 
+    // Folders have no size of their own to sort by
+    private static final Set<KeysetPage.SortKey> FOLDER_SORT_KEYS = EnumSet.of(
+            KeysetPage.SortKey.NAME, KeysetPage.SortKey.CREATED_AT, KeysetPage.SortKey.UPDATED_AT);
+
     private final FolderRepository folderRepository;
-    private final FolderHierarchyRepository folderHierarchyRepository;
+    private final FolderDeletionJobRepository folderDeletionJobRepository;
+    private final FolderHierarchyService folderHierarchyService;
     private final FileRepository fileRepository;
+    private final FolderPurgeService folderPurgeService;
+    private final FolderStatsService folderStatsService;
+    private final PageCursors pageCursors;
+    private final FolderIndex folderIndex;
+    private final StorageService storageService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public FolderService(FolderRepository folderRepository,
-                         FolderHierarchyRepository folderHierarchyRepository,
-                         FileRepository fileRepository) {
+                         FolderDeletionJobRepository folderDeletionJobRepository,
+                         FolderHierarchyService folderHierarchyService,
+                         FileRepository fileRepository,
+                         FolderPurgeService folderPurgeService,
+                         FolderStatsService folderStatsService,
+                         PageCursors pageCursors,
+                         FolderIndex folderIndex,
+                         StorageService storageService,
+                         ApplicationEventPublisher eventPublisher) {
         this.folderRepository = folderRepository;
-        this.folderHierarchyRepository = folderHierarchyRepository;
+        this.folderDeletionJobRepository = folderDeletionJobRepository;
+        this.folderHierarchyService = folderHierarchyService;
         this.fileRepository = fileRepository;
+        this.folderPurgeService = folderPurgeService;
+        this.folderStatsService = folderStatsService;
+        this.pageCursors = pageCursors;
+        this.folderIndex = folderIndex;
+        this.storageService = storageService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
-    public List<FolderResponse> getAllFolders() {
-        return folderRepository.findAll().stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public CursorPage<FolderResponse> getAllFolders(PageQuery pageQuery) {
+        KeysetPage page = pageCursors.parse(pageQuery, FOLDER_SORT_KEYS);
+        return pageCursors.toPage(folderRepository.findLivePage(page), page,
+                Folder::getId, FolderService::sortValue, this::mapToResponses);
     }
 
     @Transactional
@@ -65,36 +94,37 @@ public class FolderService {
         Folder folder = new Folder();
         folder.setName(folderName);
         folder.setParent(parent);
+        folder.setPath(childPath(parent, folderName));
         folder.setCreatedAt(new Timestamp(System.currentTimeMillis()));
         folder.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
         Folder savedFolder = folderRepository.save(folder);
 
-        updateFolderHierarchy(savedFolder);
+        folderHierarchyService.addFolder(savedFolder);
         createFolderOnFilesystem(savedFolder);
+        eventPublisher.publishEvent(FolderChangedEvent.created(savedFolder.getId(), parent.getId(), folderName));
 
         return mapToResponse(savedFolder);
     }
 
     private Folder traverseFolderHierarchy(List<String> pathSegments) {
-        Folder current = getRootFolder(); // Start from root
-        for (String segment : pathSegments) {
-            current = folderRepository.findByNameAndParent(segment, current)
-                    .orElseThrow(() -> new IllegalArgumentException(
-                            "Parent folder path '" + segment + "' does not exist. Create parent folders first."
-                    ));
-        }
-        return current;
+        UUID folderId = folderIndex.resolve(pathSegments)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Parent folder path '" + String.join("/", pathSegments) +
+                                "' does not exist. Create parent folders first."
+                ));
+        return folderRepository.getReferenceById(folderId);
     }
 
     private Folder getRootFolder() {
-        return folderRepository.findByNameAndParent("root", null)
-                .orElseThrow(() -> new IllegalStateException("Root folder not found"));
+        return folderRepository.getReferenceById(folderIndex.getRootId());
     }
 
-    @Transactional
+    @Transactional(rollbackFor = IOException.class)
     public FolderResponse renameFolder(UUID folderId, String newName) throws IOException {
-        Folder folder = folderRepository.findById(folderId)
-                .orElseThrow(() -> new IllegalArgumentException("Folder not found"));
+        Folder folder = folderHierarchyService.requireLive(folderId);
+        if (folder.getParent() == null) {
+            throw new IllegalArgumentException("Root folder cannot be renamed");
+        }
 
         if (folder.getName().equals(newName)) {
             return mapToResponse(folder);
@@ -105,177 +135,147 @@ public class FolderService {
         }
 
         Path oldPath = buildFolderPath(folder);
+        String oldName = folder.getName();
+        String oldFolderPath = folder.getPath();
         folder.setName(newName);
+        folder.setPath(childPath(folder.getParent(), newName));
         folder.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
         Folder updatedFolder = folderRepository.save(folder);
 
-        updateAllDescendantPaths(updatedFolder);
+        updateAllDescendantPaths(oldFolderPath, updatedFolder.getPath());
         renameFolderOnFilesystem(oldPath, updatedFolder);
+        eventPublisher.publishEvent(FolderChangedEvent.renamed(updatedFolder.getId(),
+                updatedFolder.getParent() != null ? updatedFolder.getParent().getId() : null,
+                oldName, newName));
 
         return mapToResponse(updatedFolder);
     }
 
-    @Transactional
-    public void deleteFolder(UUID folderId) throws IOException {
-        Folder folder = folderRepository.findById(folderId)
-                .orElseThrow(() -> new IllegalArgumentException("Folder not found"));
-
-        // 1. Get all descendant folders including self
-        List<UUID> allFolderIds = folderHierarchyRepository.findDescendantIds(folderId);
-        allFolderIds.add(folderId); // Include parent folder
-
-        // 2. Delete files first
-        fileRepository.deleteAllByFolderIdIn(allFolderIds);
+    @Transactional(rollbackFor = IOException.class)
+    public FolderResponse moveFolder(UUID folderId, String targetPath) throws IOException {
+        Folder folder = folderHierarchyService.requireLive(folderId);
+        if (folder.getParent() == null) {
+            throw new IllegalArgumentException("Root folder cannot be moved");
+        }
 
-        // 3. Delete hierarchy relationships
-        folderHierarchyRepository.deleteByFolderIdIn(allFolderIds);
-        folderHierarchyRepository.deleteByAncestorIdIn(allFolderIds);
+        String normalizedPath = targetPath.trim().replaceAll("^/+|/+$", "");
+        Folder target = normalizedPath.isEmpty()
+                ? getRootFolder()
+                : traverseFolderHierarchy(Arrays.asList(normalizedPath.split("/")));
+        UUID previousParentId = folder.getParent().getId();
+        if (target.getId().equals(previousParentId)) {
+            return mapToResponse(folder);
+        }
 
-        // 4. Delete folders in reverse depth order
-        List<Folder> foldersToDelete = folderRepository.findAllById(allFolderIds);
-        foldersToDelete.sort(Comparator.comparingInt(this::getFolderDepth).reversed());
-        folderRepository.deleteAll(foldersToDelete);
+        // The self row makes this cover moving a folder into itself as well
+        if (folderHierarchyService.isInSubtree(target.getId(), folderId)) {
+            throw new IllegalArgumentException("Cannot move a folder into its own subtree");
+        }
+        if (folderRepository.existsByNameAndParent(folder.getName(), target)) {
+            throw new IllegalArgumentException("Folder name already exists in target");
+        }
 
-        // 5. Filesystem cleanup
-        deleteFolderStructureFromFilesystem(folder);
-    }
+        Path oldDirectory = buildFolderPath(folder);
+        String oldFolderPath = folder.getPath();
+        folder.setParent(target);
+        folder.setPath(childPath(target, folder.getName()));
+        folder.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        Folder movedFolder = folderRepository.save(folder);
 
-    // Get folder depth using hierarchy data
-    private int getFolderDepth(Folder folder) {
-        return folderHierarchyRepository.findByFolderId(folder.getId())
-                .stream()
-                .mapToInt(FolderHierarchy::getDepth)
-                .max()
-                .orElse(0);
-    }
+        folderStatsService.subtreeDetached(folderId, previousParentId);
+        folderHierarchyService.moveSubtree(folderId, target.getId());
+        folderStatsService.subtreeAttached(folderId, target.getId());
+        updateAllDescendantPaths(oldFolderPath, movedFolder.getPath());
 
-    private void deleteFolderStructureFromFilesystem(Folder folder) throws IOException {
-        Path dirPath = buildDirectoryPath(folder);
-        if (Files.exists(dirPath)) {
-            Files.walk(dirPath)
-                    .sorted(Comparator.reverseOrder())
-                    .forEach(path -> {
-                        try {
-                            Files.delete(path);
-                        } catch (IOException e) {
-                            throw new RuntimeException("Failed to delete: " + path, e);
-                        }
-                    });
+        // One rename of the directory, the files inside are never touched
+        if (Files.exists(oldDirectory)) {
+            storageService.move(oldDirectory, buildFolderPath(movedFolder));
         }
-    }
+        eventPublisher.publishEvent(FolderChangedEvent.moved(
+                folderId, previousParentId, target.getId(), movedFolder.getName()));
 
-    private Path buildDirectoryPath(Folder folder) {
-        Path basePath = Paths.get("public").toAbsolutePath().normalize();
-        List<String> pathSegments = new ArrayList<>();
+        return mapToResponse(movedFolder);
+    }
 
-        Folder current = folder;
-        while (current != null && !isRootFolder(current)) {
-            pathSegments.add(current.getName());
-            current = current.getParent();
+    /**
+     * Tombstones the folder and returns the job that purges it. The folder is renamed out of
+     * the way and its directory moved to trash, so the name is free again immediately; the
+     * rows and bytes below it are removed by {@link FolderPurgeService}.
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public FolderDeletionResponse deleteFolder(UUID folderId) throws IOException {
+        Folder folder = folderHierarchyService.requireLive(folderId);
+        if (folder.getParent() == null) {
+            throw new IllegalArgumentException("Root folder cannot be deleted");
         }
-
-        Collections.reverse(pathSegments);
-        for (String segment : pathSegments) {
-            basePath = basePath.resolve(segment);
+        UUID parentId = folder.getParent().getId();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        FolderDeletionJob job = new FolderDeletionJob();
+        job.setFolderId(folderId);
+        job.setFolderName(folder.getName());
+        job.setFolderPath(folder.getPath());
+        job.setStatus(FolderDeletionJob.Status.PENDING);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job = folderDeletionJobRepository.save(job);
+
+        Path directory = buildFolderPath(folder);
+        folder.setName(".deleted-" + job.getId());
+        folder.setDeletedAt(now);
+        folder.setUpdatedAt(now);
+        folderRepository.save(folder);
+        folderStatsService.subtreeDetached(folderId, parentId);
+
+        if (Files.exists(directory)) {
+            Path trashDirectory = storageService.getTrashRoot().resolve(job.getId().toString());
+            storageService.move(directory, trashDirectory);
+            job.setTrashDirectory(trashDirectory.toString());
         }
+        eventPublisher.publishEvent(FolderChangedEvent.deleted(folderId, parentId, Collections.singletonList(folderId)));
 
-        return basePath;
+        return folderPurgeService.getJob(job.getId());
     }
 
-    private boolean isRootFolder(Folder folder) {
-        return "root".equals(folder.getName()) && folder.getParent() == null;
-    }
-
-
     @Transactional(readOnly = true)
-    public List<FolderResponse> getFoldersByParent(UUID parentId) {
-        Folder parent = parentId != null
-                ? folderRepository.findById(parentId)
-                .orElseThrow(() -> new IllegalArgumentException("Parent not found"))
-                : null;
-
-        return folderRepository.findByParent(parent)
-                .stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
-    }
-
-    private Folder ensureFolderStructure(List<String> pathSegments) {
-        Folder currentParent = null;
-
-        for (String segment : pathSegments) {
-            final Folder finalCurrentParent = currentParent;
-
-            currentParent = folderRepository.findByNameAndParent(segment, finalCurrentParent)
-                    .orElseGet(() -> {
-                        Folder newFolder = new Folder();
-                        newFolder.setName(segment);
-                        newFolder.setParent(finalCurrentParent);
-                        newFolder.setCreatedAt(new Timestamp(System.currentTimeMillis()));
-                        newFolder.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                        folderRepository.save(newFolder);
-                        updateFolderHierarchy(newFolder);
-                        return newFolder;
-                    });
+    public CursorPage<FolderResponse> getFoldersByParent(UUID parentId, PageQuery pageQuery) {
+        if (parentId != null) {
+            folderHierarchyService.requireLive(parentId);
         }
 
-        if (currentParent == null) {
-            currentParent = folderRepository.findByNameAndParent("root", null)
-                    .orElseThrow(() -> new IllegalStateException("Root folder not found"));
-        }
-        return currentParent;
+        KeysetPage page = pageCursors.parse(pageQuery, FOLDER_SORT_KEYS);
+        return pageCursors.toPage(folderRepository.findChildrenPage(parentId, page), page,
+                Folder::getId, FolderService::sortValue, this::mapToResponses);
     }
 
-    private void updateFolderHierarchy(Folder folder) {
-        if (folder.getParent() != null) {
-            List<FolderHierarchy> parentHierarchy = folderHierarchyRepository
-                    .findByAncestorId(folder.getParent().getId());
-
-            for (FolderHierarchy hierarchy : parentHierarchy) {
-                FolderHierarchy newHierarchy = new FolderHierarchy(
-                        folder,
-                        hierarchy.getAncestor(),
-                        hierarchy.getDepth() + 1
-                );
-                folderHierarchyRepository.save(newHierarchy);
-            }
+    private static Object sortValue(Folder folder, KeysetPage.SortKey sortKey) {
+        switch (sortKey) {
+            case CREATED_AT:
+                return folder.getCreatedAt();
+            case UPDATED_AT:
+                return folder.getUpdatedAt();
+            default:
+                return folder.getName();
         }
-
-        // Add self-reference
-        folderHierarchyRepository.save(new FolderHierarchy(folder, folder, 0));
     }
 
-    private void updateAllDescendantPaths(Folder folder) {
-        List<Folder> descendants = folderHierarchyRepository.findDescendants(folder.getId())
-                .stream()
-                .map(FolderHierarchy::getFolder)
-                .collect(Collectors.toList());
+    // Set-based subtree rename: one UPDATE for the folders, one for the files below them
+    private void updateAllDescendantPaths(String oldPath, String newPath) {
+        folderRepository.replacePathPrefix(oldPath, oldPath.length(), likePrefix(oldPath), newPath);
+        fileRepository.refreshPathsUnderFolderPath(newPath, likePrefix(newPath));
+    }
 
-        descendants.forEach(descendant -> {
-            descendant.setPath(constructFolderPath(descendant));
-            folderRepository.save(descendant);
-        });
+    private static String likePrefix(String path) {
+        return path.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "/%";
     }
 
-    private String constructFolderPath(Folder folder) {
-        List<String> pathSegments = new ArrayList<>();
-        while (folder != null && !folder.getName().equals("root")) {
-            pathSegments.add(folder.getName());
-            folder = folder.getParent();
-        }
-        Collections.reverse(pathSegments);
-        return String.join("/", pathSegments);
+    private String childPath(Folder parent, String name) {
+        String parentPath = parent != null && parent.getPath() != null ? parent.getPath() : "";
+        return parentPath.isEmpty() ? name : parentPath + "/" + name;
     }
 
     private Path buildFolderPath(Folder folder) {
-        List<String> pathSegments = new ArrayList<>();
-        Folder current = folder;
-        while (current != null && !current.getName().equals("root")) {
-            pathSegments.add(current.getName());
-            current = current.getParent();
-        }
-        Collections.reverse(pathSegments);
-        return Paths.get("public").resolve(String.join("/", pathSegments));
+        return storageService.resolveFolderDirectory(folder);
     }
 
     private void createFolderOnFilesystem(Folder folder) throws IOException {
@@ -283,33 +283,41 @@ public class FolderService {
         Files.createDirectories(dirPath);
     }
 
+    // Reversed if the transaction rolls back; a directory that is already gone is left to the reconciler
     private void renameFolderOnFilesystem(Path oldPath, Folder newFolder) throws IOException {
-        Path newPath = buildFolderPath(newFolder);
-        Files.move(oldPath, newPath);
+        if (Files.exists(oldPath)) {
+            storageService.move(oldPath, buildFolderPath(newFolder));
+        }
     }
 
-//    private void deleteFolderFromFilesystem(Folder folder) throws IOException {
-//        Path dirPath = buildFolderPath(folder);
-//        Files.walk(dirPath)
-//                .sorted(Comparator.reverseOrder())
-//                .forEach(path -> {
-//                    try {
-//                        Files.deleteIfExists(path);
-//                    } catch (IOException e) {
-//                        throw new RuntimeException("Failed to delete file: " + path, e);
-//                    }
-//                });
-//    }
+    // One stats lookup for the whole list
+    private List<FolderResponse> mapToResponses(List<Folder> folders) {
+        Map<UUID, FolderStats> stats = folderStatsService.findAll(
+                folders.stream().map(Folder::getId).collect(Collectors.toList()));
+        return folders.stream()
+                .map(folder -> mapToResponse(folder, stats.get(folder.getId())))
+                .collect(Collectors.toList());
+    }
 
     private FolderResponse mapToResponse(Folder folder) {
+        return mapToResponse(folder, folderStatsService.find(folder.getId()).orElse(null));
+    }
+
+    private FolderResponse mapToResponse(Folder folder, FolderStats stats) {
         FolderResponse response = new FolderResponse();
         response.setId(folder.getId());
         response.setName(folder.getName());
-        response.setPath(constructFolderPath(folder));
+        response.setPath(folder.getPath());
         response.setParentId(folder.getParent() != null ?
                 folder.getParent().getId().toString() : null);
         response.setCreatedAt(folder.getCreatedAt());
         response.setUpdatedAt(folder.getUpdatedAt());
+        if (stats != null) {
+            response.setDirectFileCount(stats.getDirectFileCount());
+            response.setDirectSize(stats.getDirectSize());
+            response.setTotalFileCount(stats.getTotalFileCount());
+            response.setTotalSize(stats.getTotalSize());
+        }
         return response;
     }
 }
\ No newline at end of file
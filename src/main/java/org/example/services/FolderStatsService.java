@@ -0,0 +1,248 @@
+package org.example.services;
+
+import org.example.domain.model.FileMetadata;
+import org.example.domain.model.FolderStats;
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderStatsDelta;
+import org.example.domain.repository.FolderStatsRepository;
+import org.example.domain.repository.FolderTypeStatsRepository;
+import org.example.dto.response.FileTypeCountResponse;
+import org.example.dto.response.FolderStatsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps folder_stats and folder_type_stats in step with file writes. Every change is a delta on
+ * the folder and all of its ancestors through the closure table. Deltas are summed per folder and
+ * type over the caller's transaction and written just before it commits, in one statement per
+ * table that locks the rows in key order: writers hold the shared ancestor rows, root above all,
+ * only for the commit and cannot deadlock on them. {@link #reconcile()} recomputes both tables.
+ */
+@Service
+public class FolderStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(FolderStatsService.class);
+
+    private final FolderStatsRepository folderStatsRepository;
+    private final FolderTypeStatsRepository folderTypeStatsRepository;
+    private final FileRepository fileRepository;
+    private final FolderHierarchyService folderHierarchyService;
+    private final TransactionTemplate transactionTemplate;
+
+    public FolderStatsService(FolderStatsRepository folderStatsRepository,
+                              FolderTypeStatsRepository folderTypeStatsRepository,
+                              FileRepository fileRepository,
+                              FolderHierarchyService folderHierarchyService,
+                              TransactionTemplate transactionTemplate) {
+        this.folderStatsRepository = folderStatsRepository;
+        this.folderTypeStatsRepository = folderTypeStatsRepository;
+        this.fileRepository = fileRepository;
+        this.folderHierarchyService = folderHierarchyService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void fileAdded(UUID folderId, UUID fileTypeId, Long size) {
+        apply(folderId, fileTypeId, 1, sizeOf(size));
+    }
+
+    public void filesAdded(UUID folderId, UUID fileTypeId, long count, long size) {
+        apply(folderId, fileTypeId, count, size);
+    }
+
+    public void fileRemoved(UUID folderId, UUID fileTypeId, Long size) {
+        apply(folderId, fileTypeId, -1, -sizeOf(size));
+    }
+
+    public void filesRemoved(UUID folderId, UUID fileTypeId, long count, long size) {
+        apply(folderId, fileTypeId, -count, -size);
+    }
+
+    public void fileChanged(UUID oldFolderId, UUID oldFileTypeId, Long oldSize,
+                            UUID newFolderId, UUID newFileTypeId, Long newSize) {
+        if (oldFolderId.equals(newFolderId) && oldFileTypeId.equals(newFileTypeId)) {
+            long sizeDelta = sizeOf(newSize) - sizeOf(oldSize);
+            if (sizeDelta != 0) {
+                apply(newFolderId, newFileTypeId, 0, sizeDelta);
+            }
+            return;
+        }
+        fileRemoved(oldFolderId, oldFileTypeId, oldSize);
+        fileAdded(newFolderId, newFileTypeId, newSize);
+    }
+
+    // One delta per source folder and type, and one per type on the target, however many files move
+    public void filesMoved(Collection<FileMetadata> files, UUID targetFolderId) {
+        Map<List<UUID>, long[]> removed = new HashMap<>();
+        Map<UUID, long[]> added = new HashMap<>();
+        for (FileMetadata file : files) {
+            UUID fileTypeId = file.getFileType().getId();
+            long[] source = removed.computeIfAbsent(
+                    Arrays.asList(file.getFolder().getId(), fileTypeId), key -> new long[2]);
+            source[0]++;
+            source[1] += sizeOf(file.getSize());
+            long[] target = added.computeIfAbsent(fileTypeId, key -> new long[2]);
+            target[0]++;
+            target[1] += sizeOf(file.getSize());
+        }
+        removed.forEach((key, totals) -> apply(key.get(0), key.get(1), -totals[0], -totals[1]));
+        added.forEach((fileTypeId, totals) -> apply(targetFolderId, fileTypeId, totals[0], totals[1]));
+    }
+
+    // Takes a whole subtree's totals off parentId and its ancestors, before a move or on delete
+    public void subtreeDetached(UUID folderId, UUID parentId) {
+        // The subtree's totals have to include what this transaction changed below it
+        flushPending();
+        folderStatsRepository.applySubtree(folderId, parentId, -1);
+        folderTypeStatsRepository.applySubtree(folderId, parentId, -1);
+    }
+
+    public void subtreeAttached(UUID folderId, UUID parentId) {
+        flushPending();
+        folderStatsRepository.applySubtree(folderId, parentId, 1);
+        folderTypeStatsRepository.applySubtree(folderId, parentId, 1);
+    }
+
+    public void forgetFolders(Collection<UUID> folderIds) {
+        flushPending();
+        folderStatsRepository.deleteByFolderIdIn(folderIds);
+        folderTypeStatsRepository.deleteByFolderIdIn(folderIds);
+    }
+
+    public Optional<FolderStats> find(UUID folderId) {
+        flushPending();
+        return folderStatsRepository.findById(folderId);
+    }
+
+    public Map<UUID, FolderStats> findAll(Collection<UUID> folderIds) {
+        flushPending();
+        Map<UUID, FolderStats> stats = new HashMap<>();
+        for (FolderStats row : folderStatsRepository.findAllById(folderIds)) {
+            stats.put(row.getFolderId(), row);
+        }
+        return stats;
+    }
+
+    @Transactional(readOnly = true)
+    public FolderStatsResponse getStats(UUID folderId) {
+        // A tombstoned folder still has its pre-delete rows, only its ancestors were adjusted
+        folderHierarchyService.requireLive(folderId);
+        FolderStatsResponse response = new FolderStatsResponse();
+        response.setFolderId(folderId);
+        find(folderId).ifPresent(stats -> {
+            response.setDirectFileCount(stats.getDirectFileCount());
+            response.setDirectSize(stats.getDirectSize());
+            response.setTotalFileCount(stats.getTotalFileCount());
+            response.setTotalSize(stats.getTotalSize());
+        });
+        List<FileTypeCountResponse> types = folderTypeStatsRepository.findTypeCounts(folderId).stream()
+                .map(count -> new FileTypeCountResponse(count.getType(), count.getDirectCount(), count.getTotalCount()))
+                .collect(Collectors.toList());
+        response.setTypes(types);
+        return response;
+    }
+
+    // Writers block on the table lock for the length of the rebuild, readers do not
+    @Scheduled(cron = "${stats.reconcile-cron:0 0 3 * * *}")
+    public void reconcile() {
+        transactionTemplate.executeWithoutResult(status -> {
+            folderStatsRepository.lockForRebuild();
+            folderStatsRepository.deleteAllRows();
+            folderTypeStatsRepository.deleteAllRows();
+            int rows = folderStatsRepository.insertAllFromFiles();
+            folderTypeStatsRepository.insertAllFromFiles();
+            log.info("Rebuilt folder stats for {} folder(s)", rows);
+        });
+    }
+
+    // First start after the tables were added: files exist but nothing is counted yet
+    public void reconcileIfEmpty() {
+        if (folderStatsRepository.count() == 0 && fileRepository.count() > 0) {
+            reconcile();
+        }
+    }
+
+    private void apply(UUID folderId, UUID fileTypeId, long countDelta, long sizeDelta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            folderStatsRepository.applyDeltas(Collections.singletonList(
+                    new FolderStatsDelta(folderId, fileTypeId, countDelta, sizeDelta)));
+            return;
+        }
+        PendingDeltas pending = findPending();
+        if (pending == null) {
+            pending = new PendingDeltas();
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        long[] totals = pending.deltas.computeIfAbsent(Arrays.asList(folderId, fileTypeId), key -> new long[2]);
+        totals[0] += countDelta;
+        totals[1] += sizeDelta;
+    }
+
+    private void flushPending() {
+        PendingDeltas pending = findPending();
+        if (pending != null) {
+            pending.applyAll();
+        }
+    }
+
+    // Looked up among the current transaction's synchronizations, so a REQUIRES_NEW transaction
+    // gets a buffer of its own instead of adding to the suspended one
+    private PendingDeltas findPending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingDeltas && ((PendingDeltas) synchronization).owner() == this) {
+                return (PendingDeltas) synchronization;
+            }
+        }
+        return null;
+    }
+
+    private final class PendingDeltas implements TransactionSynchronization {
+
+        private final Map<List<UUID>, long[]> deltas = new HashMap<>();
+
+        FolderStatsService owner() {
+            return FolderStatsService.this;
+        }
+
+        void applyAll() {
+            List<FolderStatsDelta> changes = new ArrayList<>();
+            deltas.forEach((key, totals) -> {
+                if (totals[0] != 0 || totals[1] != 0) {
+                    changes.add(new FolderStatsDelta(key.get(0), key.get(1), totals[0], totals[1]));
+                }
+            });
+            deltas.clear();
+            if (!changes.isEmpty()) {
+                folderStatsRepository.applyDeltas(changes);
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            applyAll();
+        }
+    }
+
+    private static long sizeOf(Long size) {
+        return size != null ? size : 0;
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderHierarchyRepository;
+import org.example.domain.repository.FolderRepository;
+import org.example.dto.response.FileResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Whole-subtree reads. The folders come from one closure-table query and, when asked for,
+ * the files from a second one; both are linked into a tree through an id map in a single pass.
+ */
+@Service
+public class FolderTreeService {
+
+    private final FolderRepository folderRepository;
+    private final FolderHierarchyRepository folderHierarchyRepository;
+    private final FileRepository fileRepository;
+    private final FolderHierarchyService folderHierarchyService;
+    private final ObjectMapper objectMapper;
+
+    public FolderTreeService(FolderRepository folderRepository,
+                             FolderHierarchyRepository folderHierarchyRepository,
+                             FileRepository fileRepository,
+                             FolderHierarchyService folderHierarchyService,
+                             ObjectMapper objectMapper) {
+        this.folderRepository = folderRepository;
+        this.folderHierarchyRepository = folderHierarchyRepository;
+        this.fileRepository = fileRepository;
+        this.folderHierarchyService = folderHierarchyService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public TreeNode loadTree(UUID folderId, Integer depth, boolean includeFiles) {
+        if (depth != null && depth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative");
+        }
+        if (!folderRepository.existsById(folderId) || folderHierarchyService.isDeleted(folderId)) {
+            throw new IllegalArgumentException("Folder not found");
+        }
+        int maxDepth = depth != null ? depth : Integer.MAX_VALUE;
+
+        Map<UUID, TreeNode> nodes = new HashMap<>();
+        TreeNode root = null;
+        for (FolderHierarchyRepository.SubtreeFolder folder : folderHierarchyRepository.findSubtree(folderId, maxDepth)) {
+            TreeNode node = new TreeNode(folder);
+            if (folder.getDepth() == 0) {
+                root = node;
+            } else {
+                TreeNode parent = nodes.get(folder.getParentId());
+                if (parent == null) {
+                    // Parent was skipped as a tombstone, so is everything below it
+                    continue;
+                }
+                parent.children.add(node);
+            }
+            nodes.put(folder.getId(), node);
+        }
+        if (root == null) {
+            throw new IllegalStateException("Folder hierarchy has no self row for " + folderId);
+        }
+
+        if (includeFiles) {
+            for (FileRepository.SubtreeFile file : fileRepository.findInSubtree(folderId, maxDepth)) {
+                TreeNode node = nodes.get(file.getFolderId());
+                if (node != null) {
+                    node.files.add(new FileResponse(file.getId(), file.getName(), file.getSize(),
+                            file.getFileType(), file.getPath(), file.getCreatedAt(), file.getUpdatedAt()));
+                }
+            }
+        }
+        return root;
+    }
+
+    // Streams the tree node by node, nothing but the loaded rows is held in memory
+    public void writeTree(TreeNode root, boolean includeFiles, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            writeNode(generator, root, includeFiles);
+        }
+    }
+
+    private void writeNode(JsonGenerator generator, TreeNode node, boolean includeFiles) throws IOException {
+        FolderHierarchyRepository.SubtreeFolder folder = node.folder;
+        generator.writeStartObject();
+        generator.writeObjectField("id", folder.getId());
+        generator.writeStringField("name", folder.getName());
+        generator.writeStringField("path", folder.getPath());
+        generator.writeStringField("parentId", folder.getParentId() != null ? folder.getParentId().toString() : null);
+        generator.writeObjectField("createdAt", folder.getCreatedAt());
+        generator.writeObjectField("updatedAt", folder.getUpdatedAt());
+        generator.writeNumberField("directFileCount", folder.getDirectFileCount());
+        generator.writeNumberField("directSize", folder.getDirectSize());
+        generator.writeNumberField("totalFileCount", folder.getTotalFileCount());
+        generator.writeNumberField("totalSize", folder.getTotalSize());
+        if (includeFiles) {
+            generator.writeArrayFieldStart("files");
+            for (FileResponse file : node.files) {
+                generator.writeObject(file);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeArrayFieldStart("children");
+        for (TreeNode child : node.children) {
+            writeNode(generator, child, includeFiles);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    public static final class TreeNode {
+        private final FolderHierarchyRepository.SubtreeFolder folder;
+        private final List<TreeNode> children = new ArrayList<>();
+        private final List<FileResponse> files = new ArrayList<>();
+
+        private TreeNode(FolderHierarchyRepository.SubtreeFolder folder) {
+            this.folder = folder;
+        }
+    }
+}
@@ -0,0 +1,692 @@
+package org.example.services;
+
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderRepository;
+import org.example.events.FileChangedEvent;
+import org.example.events.FolderChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over file and folder names. Every lower-cased name is split into
+ * trigrams, padded at both ends so short prefixes have a trigram of their own, and each trigram
+ * maps to an ascending list of entry ordinals. A query intersects the lists of its trigrams and
+ * verifies the few survivors, so the cost follows the rarest trigram instead of the number of names.
+ * <p>
+ * Built from projections at startup, or from the snapshot written at the last clean shutdown,
+ * and kept current from committed file and folder events. Removed entries leave a hole that is
+ * skipped at query time until enough holes pile up to compact.
+ */
+@Component
+public class NameIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(NameIndex.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4e494458;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_FILE = "names.snapshot";
+
+    private static final char START = '\u0002';
+    private static final char END = '\u0003';
+
+    // Below this a single edit can wipe out every trigram of the query, so there is nothing to filter on
+    private static final int FUZZY_MIN_LENGTH = 6;
+    private static final int FUZZY_TWO_EDITS_LENGTH = 11;
+    private static final int FUZZY_CANDIDATE_LIMIT = 50_000;
+    private static final int COMPACT_MIN_REMOVED = 1024;
+
+    public enum Kind { FILE, FOLDER }
+
+    public enum MatchType {
+        EXACT(100), PREFIX(80), WORD(60), SUBSTRING(40), FUZZY(20);
+
+        private final int score;
+
+        MatchType(int score) {
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Hit> RANK = Comparator.comparingInt(Hit::getScore).reversed()
+            .thenComparingInt(hit -> hit.getName().length())
+            .thenComparing(Hit::getName)
+            .thenComparing(Hit::getId);
+
+    private final FileRepository fileRepository;
+    private final FolderRepository folderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path snapshotFile;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guarded by lock; a null slot is a removed entry
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int removedCount;
+    private volatile boolean loaded;
+    private volatile String loadedFrom;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+
+    public NameIndex(FileRepository fileRepository,
+                     FolderRepository folderRepository,
+                     TransactionTemplate transactionTemplate,
+                     @Value("${search.index-dir:index}") String indexDir) {
+        this.fileRepository = fileRepository;
+        this.folderRepository = folderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotFile = Paths.get(indexDir).resolve(SNAPSHOT_FILE);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            if (Files.isReadable(snapshotFile) && loadSnapshot()) {
+                return;
+            }
+            rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int rebuild() {
+        lock.writeLock().lock();
+        try {
+            long start = System.nanoTime();
+            clear();
+            for (FolderRepository.FolderNode node : folderRepository.findAllNodes()) {
+                // Root has no name worth finding
+                if (node.getParentId() != null) {
+                    add(node.getId(), Kind.FOLDER, node.getParentId(), node.getName());
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<FileRepository.NameEntry> files = fileRepository.streamNameEntries()) {
+                    files.forEach(file -> add(file.getId(), Kind.FILE, file.getFolderId(),
+                            qualifiedName(file.getName(), file.getFileType())));
+                }
+            });
+            loaded = true;
+            loadedFrom = "database";
+            log.info("Built name index: {} entries, {} trigrams in {} ms",
+                    ordinals.size(), postings.size(), (System.nanoTime() - start) / 1_000_000);
+            return ordinals.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked matches for the query, best first, at most {@code maxResults} of them.
+     * Queries shorter than a trigram match name prefixes only. {@code scope} tells which
+     * folders' direct children may match, null for the whole tree.
+     */
+    public List<Hit> search(String query, Kind kind, Predicate<UUID> scope, boolean fuzzy, int maxResults) {
+        ensureLoaded();
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            // maxResults follows the client's offset, the index size bounds what can actually match
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(maxResults, ordinals.size()) + 1, RANK.reversed());
+            boolean prefixOnly = q.length() < 3;
+            long[] grams = prefixOnly
+                    ? new long[]{prefixGram(q)}
+                    : distinctGrams(q, false);
+
+            IntList[] lists = listsFor(grams);
+            if (lists != null) {
+                Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+                IntList smallest = lists[0];
+                for (int i = 0; i < smallest.size; i++) {
+                    int ordinal = smallest.data[i];
+                    if (!inAll(lists, ordinal)) {
+                        continue;
+                    }
+                    Entry entry = accept(ordinal, kind, scope);
+                    if (entry == null) {
+                        continue;
+                    }
+                    MatchType match = prefixOnly
+                            ? (entry.key.startsWith(q) ? (entry.key.equals(q) ? MatchType.EXACT : MatchType.PREFIX) : null)
+                            : match(entry.key, q);
+                    if (match != null) {
+                        offer(top, new Hit(entry, match, 0), maxResults);
+                    }
+                }
+            }
+
+            // Near misses only fill up what the literal matches left over
+            if (fuzzy && q.length() >= FUZZY_MIN_LENGTH && top.size() < maxResults) {
+                addFuzzyMatches(q, kind, scope, top, maxResults);
+            }
+
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANK);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+            searches.incrementAndGet();
+            searchNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onFolderChanged(FolderChangedEvent event) {
+        switch (event.getKind()) {
+            case CREATED:
+            case RENAMED:
+                write(() -> add(event.getFolderId(), Kind.FOLDER, event.getParentId(), event.getName()));
+                break;
+            case MOVED:
+                write(() -> move(Set.of(event.getFolderId()), event.getParentId()));
+                break;
+            case DELETED:
+                if (contains(event.getFolderId())) {
+                    // Tombstone: the whole subtree leaves search now, the purger's later events find nothing left
+                    Set<UUID> subtree = new HashSet<>(folderRepository.findDescendantIds(event.getFolderId()));
+                    subtree.add(event.getFolderId());
+                    write(() -> removeSubtree(subtree));
+                } else {
+                    write(() -> event.getRemovedIds().forEach(this::remove));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TransactionalEventListener
+    public void onFileChanged(FileChangedEvent event) {
+        switch (event.getKind()) {
+            case CREATED:
+            case UPDATED:
+                write(() -> add(event.getFileId(), Kind.FILE, event.getFolderId(),
+                        qualifiedName(event.getName(), event.getFileType())));
+                break;
+            case MOVED:
+                write(() -> move(new HashSet<>(event.getFileIds()), event.getFolderId()));
+                break;
+            case DELETED:
+                write(() -> event.getFileIds().forEach(this::remove));
+                break;
+            default:
+                break;
+        }
+    }
+
+    @PreDestroy
+    public void saveSnapshot() {
+        if (!loaded) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            Path temp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(ordinals.size());
+                for (Entry entry : entries) {
+                    if (entry == null) {
+                        continue;
+                    }
+                    out.writeByte(entry.kind.ordinal());
+                    writeUuid(out, entry.id);
+                    writeUuid(out, entry.containerId);
+                    out.writeUTF(entry.name);
+                }
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote name index snapshot with {} entries", ordinals.size());
+        } catch (IOException e) {
+            log.warn("Failed to write name index snapshot {}", snapshotFile, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("entries", ordinals.size());
+            stats.put("removedSlots", removedCount);
+            stats.put("trigrams", postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("loadedFrom", loadedFrom);
+        long count = searches.get();
+        stats.put("searches", count);
+        stats.put("averageSearchMicros", count == 0 ? 0 : searchNanos.get() / count / 1000);
+        return stats;
+    }
+
+    // Only trusted after a clean shutdown; it is removed once read, so a crash means a rebuild
+    private boolean loadSnapshot() {
+        long start = System.nanoTime();
+        clear();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring name index snapshot {} with an unknown format", snapshotFile);
+                return false;
+            }
+            int count = in.readInt();
+            Kind[] kinds = Kind.values();
+            for (int i = 0; i < count; i++) {
+                Kind kind = kinds[in.readByte()];
+                UUID id = readUuid(in);
+                UUID containerId = readUuid(in);
+                add(id, kind, containerId, in.readUTF());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read name index snapshot {}, rebuilding", snapshotFile, e);
+            clear();
+            return false;
+        } finally {
+            deleteSnapshot();
+        }
+        loaded = true;
+        loadedFrom = "snapshot";
+        log.info("Loaded name index snapshot: {} entries in {} ms",
+                ordinals.size(), (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    private void deleteSnapshot() {
+        try {
+            Files.deleteIfExists(snapshotFile);
+        } catch (IOException e) {
+            log.warn("Failed to delete name index snapshot {}", snapshotFile, e);
+        }
+    }
+
+    private void addFuzzyMatches(String q, Kind kind, Predicate<UUID> scope, PriorityQueue<Hit> top, int maxResults) {
+        int maxEdits = q.length() >= FUZZY_TWO_EDITS_LENGTH ? 2 : 1;
+        long[] grams = distinctGrams(q, false);
+        // Each edit breaks at most three trigrams, a match keeps at least this many of them
+        int required = grams.length - 3 * maxEdits;
+        if (required < 1) {
+            return;
+        }
+
+        IntList[] lists = new IntList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            IntList list = postings.get(grams[i]);
+            lists[i] = list != null ? list : IntList.EMPTY;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+        // A name sharing `required` trigrams appears in at least one of the rarest (n - required + 1) lists
+        int probeLists = grams.length - required + 1;
+        int total = 0;
+        for (int i = 0; i < probeLists; i++) {
+            total += lists[i].size;
+        }
+        if (total > FUZZY_CANDIDATE_LIMIT) {
+            return;
+        }
+        int[] candidates = new int[total];
+        int offset = 0;
+        for (int i = 0; i < probeLists; i++) {
+            System.arraycopy(lists[i].data, 0, candidates, offset, lists[i].size);
+            offset += lists[i].size;
+        }
+        Arrays.sort(candidates);
+
+        int previous = -1;
+        for (int ordinal : candidates) {
+            if (ordinal == previous) {
+                continue;
+            }
+            previous = ordinal;
+            int shared = 0;
+            for (IntList list : lists) {
+                if (list.contains(ordinal)) {
+                    shared++;
+                }
+            }
+            if (shared < required) {
+                continue;
+            }
+            Entry entry = accept(ordinal, kind, scope);
+            if (entry == null || entry.key.contains(q)) {
+                continue;
+            }
+            int distance = substringDistance(q, entry.key);
+            if (distance <= maxEdits) {
+                offer(top, new Hit(entry, MatchType.FUZZY, distance), maxResults);
+            }
+        }
+    }
+
+    private Entry accept(int ordinal, Kind kind, Predicate<UUID> scope) {
+        Entry entry = entries.get(ordinal);
+        if (entry == null || (kind != null && entry.kind != kind)) {
+            return null;
+        }
+        if (scope != null && !scope.test(entry.containerId)) {
+            return null;
+        }
+        return entry;
+    }
+
+    private static void offer(PriorityQueue<Hit> top, Hit hit, int maxResults) {
+        if (top.size() < maxResults) {
+            top.add(hit);
+        } else if (RANK.compare(hit, top.peek()) < 0) {
+            top.poll();
+            top.add(hit);
+        }
+    }
+
+    private static MatchType match(String key, String q) {
+        int index = key.indexOf(q);
+        if (index < 0) {
+            return null;
+        }
+        if (index == 0) {
+            // Files match exactly on their name with or without the type
+            boolean exact = key.length() == q.length() || (key.charAt(q.length()) == '.' && key.indexOf('.', q.length() + 1) < 0);
+            return exact ? MatchType.EXACT : MatchType.PREFIX;
+        }
+        for (; index >= 0; index = key.indexOf(q, index + 1)) {
+            if (!Character.isLetterOrDigit(key.charAt(index - 1))) {
+                return MatchType.WORD;
+            }
+        }
+        return MatchType.SUBSTRING;
+    }
+
+    // Fewest edits turning the query into some substring of the key
+    private static int substringDistance(String q, String key) {
+        int n = q.length();
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            previous[i] = i;
+        }
+        int best = n;
+        for (int j = 0; j < key.length(); j++) {
+            char c = key.charAt(j);
+            current[0] = 0;
+            for (int i = 1; i <= n; i++) {
+                int cost = q.charAt(i - 1) == c ? 0 : 1;
+                current[i] = Math.min(previous[i - 1] + cost, Math.min(previous[i], current[i - 1]) + 1);
+            }
+            best = Math.min(best, current[n]);
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return best;
+    }
+
+    private IntList[] listsFor(long[] grams) {
+        IntList[] lists = new IntList[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            lists[i] = postings.get(grams[i]);
+            if (lists[i] == null) {
+                return null;
+            }
+        }
+        return lists;
+    }
+
+    private static boolean inAll(IntList[] lists, int ordinal) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean contains(UUID id) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock; re-adding an id replaces its entry
+    private void add(UUID id, Kind kind, UUID containerId, String name) {
+        remove(id);
+        Entry entry = new Entry(id, kind, containerId, name);
+        int ordinal = entries.size();
+        entries.add(entry);
+        ordinals.put(id, ordinal);
+        // Ordinals only grow, so appending keeps every list sorted
+        for (long gram : distinctGrams(entry.key, true)) {
+            postings.computeIfAbsent(gram, g -> new IntList()).add(ordinal);
+        }
+    }
+
+    private void remove(UUID id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        entries.set(ordinal, null);
+        removedCount++;
+        if (removedCount >= COMPACT_MIN_REMOVED && removedCount > ordinals.size()) {
+            compact();
+        }
+    }
+
+    private void move(Collection<UUID> ids, UUID containerId) {
+        for (UUID id : ids) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                entries.get(ordinal).containerId = containerId;
+            }
+        }
+    }
+
+    private void removeSubtree(Set<UUID> folderIds) {
+        List<UUID> removed = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry != null && (folderIds.contains(entry.containerId)
+                    || (entry.kind == Kind.FOLDER && folderIds.contains(entry.id)))) {
+                removed.add(entry.id);
+            }
+        }
+        removed.forEach(this::remove);
+    }
+
+    private void compact() {
+        List<Entry> live = new ArrayList<>(ordinals.size());
+        for (Entry entry : entries) {
+            if (entry != null) {
+                live.add(entry);
+            }
+        }
+        clear();
+        for (Entry entry : live) {
+            add(entry.id, entry.kind, entry.containerId, entry.name);
+        }
+    }
+
+    private void clear() {
+        entries.clear();
+        ordinals.clear();
+        postings.clear();
+        removedCount = 0;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                }
+            }
+        }
+    }
+
+    private static String qualifiedName(String name, String fileType) {
+        return name + "." + fileType;
+    }
+
+    // Trigram of a query shorter than three characters, anchored at the start of the name
+    private static long prefixGram(String q) {
+        return q.length() == 1 ? gram(START, START, q.charAt(0)) : gram(START, q.charAt(0), q.charAt(1));
+    }
+
+    private static long[] distinctGrams(String text, boolean padded) {
+        String s = padded ? "" + START + START + text + END : text;
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            grams.add(gram(s.charAt(i), s.charAt(i + 1), s.charAt(i + 2)));
+        }
+        long[] result = new long[grams.size()];
+        int i = 0;
+        for (long gram : grams) {
+            result[i++] = gram;
+        }
+        return result;
+    }
+
+    private static long gram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    private static final class Entry {
+        private final UUID id;
+        private final Kind kind;
+        private final String name;
+        private final String key;
+        // Parent folder for both kinds; changes on move, under the write lock
+        private UUID containerId;
+
+        private Entry(UUID id, Kind kind, UUID containerId, String name) {
+            this.id = id;
+            this.kind = kind;
+            this.containerId = containerId;
+            this.name = name;
+            this.key = name.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public static final class Hit {
+        private final UUID id;
+        private final Kind kind;
+        private final String name;
+        private final MatchType matchType;
+        private final int score;
+
+        private Hit(Entry entry, MatchType matchType, int distance) {
+            this.id = entry.id;
+            this.kind = entry.kind;
+            this.name = entry.name;
+            this.matchType = matchType;
+            this.score = matchType.score - distance;
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public MatchType getMatchType() {
+            return matchType;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+
+    // Ascending ordinals of one trigram
+    private static final class IntList {
+        private static final IntList EMPTY = new IntList();
+
+        private int[] data = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        private boolean contains(int value) {
+            return Arrays.binarySearch(data, 0, size, value) >= 0;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.services;
+
+import org.example.domain.repository.KeysetPage;
+import org.example.dto.request.PageQuery;
+import org.example.dto.response.CursorPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Turns list query parameters into a {@link KeysetPage} and result rows back into a
+ * {@link CursorPage}. The cursor is base64url of sort, direction, last id and last sort value,
+ * with timestamps as ISO instants; clients treat it as opaque.
+ */
+@Component
+public class PageCursors {
+
+    private static final String OFFSET_PREFIX = "OFFSET\n";
+    // Ranked results are collected up to offset + limit, so the offset bounds the work per request
+    private static final int MAX_OFFSET_PAGES = 10;
+
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final int maxOffset;
+
+    public PageCursors(@Value("${pagination.default-limit:100}") int defaultLimit,
+                       @Value("${pagination.max-limit:1000}") int maxLimit) {
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.maxOffset = maxLimit * MAX_OFFSET_PAGES;
+    }
+
+    public KeysetPage parse(PageQuery query, Set<KeysetPage.SortKey> allowed) {
+        KeysetPage.SortKey sortKey = parseSortKey(query.getSort());
+        if (!allowed.contains(sortKey)) {
+            throw new IllegalArgumentException("Cannot sort by " + query.getSort());
+        }
+        boolean ascending = parseDirection(query.getDirection());
+
+        int limit = limit(query.getLimit());
+
+        if (query.getCursor() == null || query.getCursor().isEmpty()) {
+            return new KeysetPage(sortKey, ascending, limit, null, null);
+        }
+
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(query.getCursor()), StandardCharsets.UTF_8)
+                    .split("\n", 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || !parts[0].equals(sortKey.name()) || ascending != "asc".equals(parts[1])) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        try {
+            return new KeysetPage(sortKey, ascending, limit, decodeValue(sortKey, parts[3]), UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public KeysetPage parse(PageQuery query) {
+        return parse(query, EnumSet.allOf(KeysetPage.SortKey.class));
+    }
+
+    public int limit(Integer requested) {
+        int limit = requested != null ? requested : defaultLimit;
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    // Ranked results have no stable sort key to seek on, their cursor is a plain offset
+    public int parseOffset(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        int offset = -1;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.startsWith(OFFSET_PREFIX)) {
+                offset = Integer.parseInt(raw.substring(OFFSET_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (offset > maxOffset) {
+            throw new IllegalArgumentException("Ranked results go no deeper than " + maxOffset + ", refine the query");
+        }
+        return offset;
+    }
+
+    // Null past the deepest offset parseOffset accepts, so the last reachable page has no next cursor
+    public String offsetCursor(int offset) {
+        if (offset > maxOffset) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((OFFSET_PREFIX + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Trims the extra probe row and builds the next cursor from the last row kept.
+     * {@code sortValue} reads the sort key's value from a row.
+     */
+    public <T, R> CursorPage<R> toPage(List<T> rows, KeysetPage page,
+                                       Function<T, UUID> id,
+                                       BiFunction<T, KeysetPage.SortKey, Object> sortValue,
+                                       Function<List<T>, List<R>> mapper) {
+        boolean hasMore = rows.size() > page.getLimit();
+        List<T> kept = hasMore ? rows.subList(0, page.getLimit()) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            T last = kept.get(kept.size() - 1);
+            String raw = page.getSortKey().name() + "\n" + (page.isAscending() ? "asc" : "desc") + "\n" +
+                    id.apply(last) + "\n" + encodeValue(sortValue.apply(last, page.getSortKey()));
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        return new CursorPage<>(mapper.apply(kept), nextCursor, page.getLimit());
+    }
+
+    private static KeysetPage.SortKey parseSortKey(String sort) {
+        if (sort == null || sort.isEmpty()) {
+            return KeysetPage.SortKey.NAME;
+        }
+        for (KeysetPage.SortKey key : KeysetPage.SortKey.values()) {
+            if (key.getProperty().equalsIgnoreCase(sort)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort key: " + sort);
+    }
+
+    private static boolean parseDirection(String direction) {
+        if (direction == null || direction.isEmpty() || "asc".equalsIgnoreCase(direction)) {
+            return true;
+        }
+        if ("desc".equalsIgnoreCase(direction)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Direction must be asc or desc");
+    }
+
+    private static String encodeValue(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toInstant().toString();
+        }
+        return String.valueOf(value);
+    }
+
+    private static Object decodeValue(KeysetPage.SortKey sortKey, String value) {
+        switch (sortKey) {
+            case SIZE:
+                return Long.valueOf(value);
+            case CREATED_AT:
+            case UPDATED_AT:
+                return Timestamp.from(Instant.parse(value));
+            default:
+                return value;
+        }
+    }
+}
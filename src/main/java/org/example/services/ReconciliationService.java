@@ -0,0 +1,581 @@
+package org.example.services;
+
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderRepository;
+import org.example.dto.response.ReconciliationIssue;
+import org.example.dto.response.ReconciliationReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Compares public/ with the folder and file tables. Directories are walked in parallel on a
+ * fork/join pool; in each one the sorted listing is merge-joined with the folder's rows sorted
+ * the same way, which finds orphans, missing files and size mismatches. A directory whose
+ * mtime, file count and rows are unchanged since the previous scan is not listed again, only
+ * its known subdirectories are visited. Every filesystem call goes through a shared rate limit.
+ * Repairs re-link missing or wrong entries from the blob store and move orphans to trash/.
+ */
+@Service
+public class ReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
+
+    private static final int MAX_REPORTED_ISSUES = 1000;
+    // Entries and rows this recent may belong to a write still in flight, they are left for the next scan
+    private static final long SETTLE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private enum IssueKind { ORPHAN_FILE, MISSING_FILE, SIZE_MISMATCH, ORPHAN_DIRECTORY, MISSING_DIRECTORY }
+
+    private final FolderRepository folderRepository;
+    private final FileRepository fileRepository;
+    private final StorageService storageService;
+    private final BlobStore blobStore;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean scheduledRepair;
+    private final Throttle throttle;
+    private final ForkJoinPool walkers;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-reconciler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // What the last completed scan saw, keyed by directory path relative to public/
+    private volatile Map<String, DirectoryState> states = Collections.emptyMap();
+    private volatile long changedSince = -1;
+    private volatile Run latest;
+
+    public ReconciliationService(FolderRepository folderRepository,
+                                 FileRepository fileRepository,
+                                 StorageService storageService,
+                                 BlobStore blobStore,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${storage.reconcile.parallelism:4}") int parallelism,
+                                 @Value("${storage.reconcile.max-ops-per-second:20000}") int maxOpsPerSecond,
+                                 @Value("${storage.reconcile.scheduled-repair:false}") boolean scheduledRepair) {
+        this.folderRepository = folderRepository;
+        this.fileRepository = fileRepository;
+        this.storageService = storageService;
+        this.blobStore = blobStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.scheduledRepair = scheduledRepair;
+        this.throttle = new Throttle(maxOpsPerSecond);
+        this.walkers = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        walkers.shutdownNow();
+    }
+
+    /** Starts a scan in the background; the returned report fills in as it runs. */
+    public synchronized ReconciliationReport start(boolean repair, boolean full) {
+        if (latest != null && latest.completedAt == null) {
+            throw new IllegalStateException("A reconciliation scan is already running");
+        }
+        Run run = new Run(repair, full || changedSince < 0);
+        latest = run;
+        runner.execute(() -> execute(run));
+        return run.toReport();
+    }
+
+    public Optional<ReconciliationReport> getLatest() {
+        Run run = latest;
+        return run == null ? Optional.empty() : Optional.of(run.toReport());
+    }
+
+    @Scheduled(cron = "${storage.reconcile.cron:-}")
+    public void scheduledScan() {
+        try {
+            start(scheduledRepair, false);
+        } catch (IllegalStateException e) {
+            log.info("Skipping scheduled reconciliation, a scan is still running");
+        }
+    }
+
+    private void execute(Run run) {
+        try {
+            Map<String, FolderEntry> folders = loadFolders(run);
+            walkers.invoke(new DirectoryTask(run, folders, ""));
+
+            // Rows whose directory the walk never reached
+            List<FolderEntry> unvisited = new ArrayList<>();
+            for (FolderEntry folder : folders.values()) {
+                if (!folder.visited && !run.isBelowUnreadable(folder.path)) {
+                    unvisited.add(folder);
+                }
+            }
+            walkers.submit(() -> unvisited.parallelStream().forEach(folder -> missingDirectory(run, folder))).get();
+
+            states = run.nextStates;
+            changedSince = run.startedAt - SETTLE_MS;
+            run.finish(null);
+            log.info("Reconciliation {} done: {} directories scanned, {} skipped, {} issue(s)", run.id,
+                    run.directoriesScanned.sum(), run.directoriesSkipped.sum(), run.issueCount.sum());
+        } catch (Exception e) {
+            log.error("Reconciliation {} failed", run.id, e);
+            run.finish(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    // One pass over the folder rows; a folder counts as changed when its row or any of its files moved on
+    private Map<String, FolderEntry> loadFolders(Run run) {
+        Set<UUID> changedFolders = run.full
+                ? Collections.emptySet()
+                : new HashSet<>(fileRepository.findFolderIdsChangedSince(new Timestamp(changedSince)));
+        Map<String, FolderEntry> folders = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<FolderRepository.ReconcileFolder> rows = folderRepository.streamLiveForReconcile()) {
+                rows.forEach(row -> {
+                    boolean changed = run.full || changedFolders.contains(row.getId())
+                            || row.getUpdatedAt() == null || row.getUpdatedAt().getTime() >= changedSince;
+                    folders.put(row.getPath(), new FolderEntry(row.getId(), row.getPath(), row.getFileCount(), changed));
+                });
+            }
+        });
+        return folders;
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private final Run run;
+        private final Map<String, FolderEntry> folders;
+        private final String path;
+
+        DirectoryTask(Run run, Map<String, FolderEntry> folders, String path) {
+            this.run = run;
+            this.folders = folders;
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            Path directory = resolve(path);
+            throttle.acquire();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(directory, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                // Gone since its parent was listed, or public/ itself is missing
+                return;
+            }
+            if (!attributes.isDirectory()) {
+                return;
+            }
+            run.directoriesScanned.increment();
+
+            FolderEntry folder = folders.get(path);
+            if (folder == null) {
+                // A folder created or renamed since the rows were loaded has no row here yet
+                if (lastChange(directory, attributes.lastModifiedTime().toMillis()) >= run.startedAt - SETTLE_MS) {
+                    return;
+                }
+                // Nothing below a directory without a row can have one, so it is handled as a whole
+                ReconciliationIssue issue = issue(IssueKind.ORPHAN_DIRECTORY, path);
+                record(run, issue, () -> folderRepository.existsByPath(path)
+                        ? "skipped"
+                        : quarantine(run, directory, path));
+                return;
+            }
+            folder.visited = true;
+
+            long modified = attributes.lastModifiedTime().toMillis();
+            DirectoryState previous = run.full ? null : states.get(path);
+            if (previous != null && previous.modified == modified && previous.fileCount == folder.fileCount
+                    && !folder.changed) {
+                run.directoriesSkipped.increment();
+                run.nextStates.put(path, previous);
+                invokeAll(children(previous.subdirectories));
+                return;
+            }
+
+            Listing listing = list(directory);
+            if (listing == null) {
+                run.unreadable.add(path);
+                return;
+            }
+            boolean consistent = compare(run, folder, listing.files);
+            // A directory changed within the mtime resolution of the scan is listed again next time
+            if (consistent && modified < run.startedAt - SETTLE_MS) {
+                run.nextStates.put(path, new DirectoryState(modified, folder.fileCount, listing.subdirectories));
+            }
+            invokeAll(children(listing.subdirectories));
+        }
+
+        private List<DirectoryTask> children(List<String> subdirectories) {
+            List<DirectoryTask> tasks = new ArrayList<>(subdirectories.size());
+            for (String name : subdirectories) {
+                tasks.add(new DirectoryTask(run, folders, path.isEmpty() ? name : path + "/" + name));
+            }
+            return tasks;
+        }
+    }
+
+    private Listing list(Path directory) {
+        Listing listing = new Listing();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (storageService.isTemporary(name)) {
+                    continue;
+                }
+                throttle.acquire();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    listing.subdirectories.add(name);
+                } else if (attributes.isRegularFile()) {
+                    listing.files.add(new DiskFile(name, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+                // Links and special files were not written by us and are left alone
+            }
+        } catch (IOException e) {
+            log.warn("Cannot list {}: {}", directory, e.getMessage());
+            return null;
+        }
+        listing.files.sort(Comparator.comparing(file -> file.name));
+        return listing;
+    }
+
+    // Merge join of the listing and the folder's rows, both in file name order
+    private boolean compare(Run run, FolderEntry folder, List<DiskFile> files) {
+        List<FileRepository.ReconcileFile> rows = new ArrayList<>(fileRepository.findForReconcile(folder.id));
+        rows.sort(Comparator.comparing(ReconciliationService::fileName));
+        Path directory = resolve(folder.path);
+        boolean consistent = true;
+        int i = 0;
+        int j = 0;
+        while (i < files.size() || j < rows.size()) {
+            int order = i == files.size() ? 1
+                    : j == rows.size() ? -1
+                    : files.get(i).name.compareTo(fileName(rows.get(j)));
+            if (order < 0) {
+                DiskFile file = files.get(i++);
+                consistent = false;
+                Path source = directory.resolve(file.name);
+                if (lastChange(source, file.modified) >= run.startedAt - SETTLE_MS) {
+                    continue;
+                }
+                String path = child(folder.path, file.name);
+                ReconciliationIssue issue = issue(IssueKind.ORPHAN_FILE, path);
+                issue.setFolderId(folder.id);
+                issue.setActualSize(file.size);
+                record(run, issue, () -> Files.exists(source) && !hasRow(folder, file.name)
+                        ? quarantine(run, source, path)
+                        : "skipped");
+            } else if (order > 0) {
+                FileRepository.ReconcileFile row = rows.get(j++);
+                consistent = false;
+                Path target = directory.resolve(fileName(row));
+                ReconciliationIssue issue = fileIssue(IssueKind.MISSING_FILE, folder, row);
+                record(run, issue, () -> Files.exists(target) ? "skipped" : relink(row, target));
+            } else {
+                DiskFile file = files.get(i++);
+                FileRepository.ReconcileFile row = rows.get(j++);
+                run.filesChecked.increment();
+                if (row.getSize() != null && row.getSize() != file.size) {
+                    consistent = false;
+                    Path target = directory.resolve(file.name);
+                    ReconciliationIssue issue = fileIssue(IssueKind.SIZE_MISMATCH, folder, row);
+                    issue.setActualSize(file.size);
+                    record(run, issue, () -> relink(row, target));
+                }
+            }
+        }
+        return consistent;
+    }
+
+    private void missingDirectory(Run run, FolderEntry folder) {
+        Path directory = resolve(folder.path);
+        ReconciliationIssue issue = issue(IssueKind.MISSING_DIRECTORY, folder.path);
+        issue.setFolderId(folder.id);
+        record(run, issue, () -> {
+            Files.createDirectories(directory);
+            return "repaired";
+        });
+        // Every file of the folder is missing with it
+        compare(run, folder, Collections.emptyList());
+    }
+
+    // Puts the stored content back; rows without a blob, or with one of the wrong size, cannot be repaired
+    private String relink(FileRepository.ReconcileFile row, Path target) throws IOException {
+        if (row.getContentHash() == null) {
+            throw new IOException("No stored content to restore from");
+        }
+        Path blob = blobStore.resolve(row.getContentHash());
+        throttle.acquire();
+        if (!Files.exists(blob) || row.getSize() != null && Files.size(blob) != row.getSize()) {
+            throw new IOException("Stored content is missing or has the wrong size");
+        }
+        if (!fileRepository.existsById(row.getId())) {
+            return "skipped";
+        }
+        storageService.link(blob, target);
+        return "repaired";
+    }
+
+    private boolean hasRow(FolderEntry folder, String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 && fileRepository.existsInFolder(
+                folder.id, fileName.substring(0, dot), fileName.substring(dot + 1));
+    }
+
+    // Hard links carry the blob's mtime and renames keep it, but both set the entry's ctime
+    private long lastChange(Path entry, long modified) {
+        throttle.acquire();
+        try {
+            FileTime changed = (FileTime) Files.getAttribute(entry, "unix:ctime", LinkOption.NOFOLLOW_LINKS);
+            return Math.max(modified, changed.toMillis());
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            return modified;
+        }
+    }
+
+    // Orphans are moved aside rather than deleted; an entry whose row commits later is re-linked by the next scan
+    private String quarantine(Run run, Path source, String path) throws IOException {
+        Path target = storageService.getTrashRoot().resolve("orphans").resolve(run.id.toString()).resolve(path);
+        storageService.move(source, target);
+        return "repaired";
+    }
+
+    private void record(Run run, ReconciliationIssue issue, Repair repair) {
+        run.count(issue.getKind());
+        if (run.repair) {
+            try {
+                issue.setAction(repair.apply());
+                if ("repaired".equals(issue.getAction())) {
+                    run.repaired.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                issue.setAction("failed");
+                issue.setDetail(e.getMessage());
+                run.repairsFailed.increment();
+            }
+        } else {
+            issue.setAction("reported");
+        }
+        run.addIssue(issue);
+    }
+
+    private Path resolve(String path) {
+        return path.isEmpty() ? storageService.getPublicRoot() : storageService.getPublicRoot().resolve(path);
+    }
+
+    private static ReconciliationIssue issue(IssueKind kind, String path) {
+        ReconciliationIssue issue = new ReconciliationIssue();
+        issue.setKind(kind.name().toLowerCase(Locale.ROOT));
+        issue.setPath(path);
+        return issue;
+    }
+
+    private static ReconciliationIssue fileIssue(IssueKind kind, FolderEntry folder, FileRepository.ReconcileFile row) {
+        ReconciliationIssue issue = issue(kind, child(folder.path, fileName(row)));
+        issue.setFolderId(folder.id);
+        issue.setFileId(row.getId());
+        issue.setExpectedSize(row.getSize());
+        return issue;
+    }
+
+    private static String fileName(FileRepository.ReconcileFile row) {
+        return row.getName() + "." + row.getFileType();
+    }
+
+    private static String child(String path, String name) {
+        return path.isEmpty() ? name : path + "/" + name;
+    }
+
+    private interface Repair {
+        String apply() throws IOException;
+    }
+
+    private static final class FolderEntry {
+        final UUID id;
+        final String path;
+        final long fileCount;
+        final boolean changed;
+        volatile boolean visited;
+
+        FolderEntry(UUID id, String path, long fileCount, boolean changed) {
+            this.id = id;
+            this.path = path;
+            this.fileCount = fileCount;
+            this.changed = changed;
+        }
+    }
+
+    private static final class DirectoryState {
+        final long modified;
+        final long fileCount;
+        final List<String> subdirectories;
+
+        DirectoryState(long modified, long fileCount, List<String> subdirectories) {
+            this.modified = modified;
+            this.fileCount = fileCount;
+            this.subdirectories = subdirectories;
+        }
+    }
+
+    private static final class Listing {
+        final List<DiskFile> files = new ArrayList<>();
+        final List<String> subdirectories = new ArrayList<>();
+    }
+
+    private static final class DiskFile {
+        final String name;
+        final long size;
+        final long modified;
+
+        DiskFile(String name, long size, long modified) {
+            this.name = name;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+    // Spaces calls evenly at the configured rate across all walker threads; 0 means no limit
+    private static final class Throttle {
+        private final long intervalNanos;
+        private long next;
+
+        Throttle(int opsPerSecond) {
+            this.intervalNanos = opsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / opsPerSecond : 0;
+        }
+
+        void acquire() {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(next, now);
+                next = slot + intervalNanos;
+                wait = slot - now;
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    private static final class Run {
+        final UUID id = UUID.randomUUID();
+        final boolean repair;
+        final boolean full;
+        final long startedAt = System.currentTimeMillis();
+        final Map<String, DirectoryState> nextStates = new ConcurrentHashMap<>();
+        final Queue<String> unreadable = new ConcurrentLinkedQueue<>();
+        final LongAdder directoriesScanned = new LongAdder();
+        final LongAdder directoriesSkipped = new LongAdder();
+        final LongAdder filesChecked = new LongAdder();
+        final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        final LongAdder issueCount = new LongAdder();
+        final LongAdder repaired = new LongAdder();
+        final LongAdder repairsFailed = new LongAdder();
+        final Queue<ReconciliationIssue> issues = new ConcurrentLinkedQueue<>();
+        volatile String status = "running";
+        volatile String lastError;
+        volatile Long completedAt;
+
+        Run(boolean repair, boolean full) {
+            this.repair = repair;
+            this.full = full;
+        }
+
+        void count(String kind) {
+            counts.computeIfAbsent(kind, key -> new LongAdder()).increment();
+        }
+
+        void addIssue(ReconciliationIssue issue) {
+            issueCount.increment();
+            if (issueCount.sum() <= MAX_REPORTED_ISSUES) {
+                issues.add(issue);
+            }
+        }
+
+        boolean isBelowUnreadable(String path) {
+            for (String directory : unreadable) {
+                if (directory.isEmpty() || path.startsWith(directory + "/")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void finish(String error) {
+            lastError = error;
+            status = error == null ? "completed" : "failed";
+            completedAt = System.currentTimeMillis();
+        }
+
+        private long count(IssueKind kind) {
+            LongAdder count = counts.get(kind.name().toLowerCase(Locale.ROOT));
+            return count != null ? count.sum() : 0;
+        }
+
+        ReconciliationReport toReport() {
+            ReconciliationReport report = new ReconciliationReport();
+            report.setId(id);
+            report.setStatus(status);
+            report.setRepair(repair);
+            report.setFull(full);
+            report.setDirectoriesScanned(directoriesScanned.sum());
+            report.setDirectoriesSkipped(directoriesSkipped.sum());
+            report.setFilesChecked(filesChecked.sum());
+            report.setOrphanFiles(count(IssueKind.ORPHAN_FILE));
+            report.setMissingFiles(count(IssueKind.MISSING_FILE));
+            report.setSizeMismatches(count(IssueKind.SIZE_MISMATCH));
+            report.setOrphanDirectories(count(IssueKind.ORPHAN_DIRECTORY));
+            report.setMissingDirectories(count(IssueKind.MISSING_DIRECTORY));
+            report.setRepaired(repaired.sum());
+            report.setRepairsFailed(repairsFailed.sum());
+            report.setIssues(new ArrayList<>(issues));
+            report.setLastError(lastError);
+            report.setStartedAt(new Timestamp(startedAt));
+            report.setCompletedAt(completedAt != null ? new Timestamp(completedAt) : null);
+            return report;
+        }
+    }
+}
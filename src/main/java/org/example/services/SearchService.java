@@ -0,0 +1,140 @@
+package org.example.services;
+
+import org.example.domain.model.FileMetadata;
+import org.example.domain.model.Folder;
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderRepository;
+import org.example.dto.request.FindFilesRequest;
+import org.example.dto.response.CursorPage;
+import org.example.dto.response.NameSearchResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Name search over the in-memory {@link NameIndex}. The index ranks the matches, only the
+ * requested page is read back from the database for paths and types.
+ */
+@Service
+public class SearchService {
+
+    private final NameIndex nameIndex;
+    private final FileRepository fileRepository;
+    private final FolderRepository folderRepository;
+    private final FolderHierarchyService folderHierarchyService;
+    private final FolderIndex folderIndex;
+    private final PageCursors pageCursors;
+
+    public SearchService(NameIndex nameIndex,
+                         FileRepository fileRepository,
+                         FolderRepository folderRepository,
+                         FolderHierarchyService folderHierarchyService,
+                         FolderIndex folderIndex,
+                         PageCursors pageCursors) {
+        this.nameIndex = nameIndex;
+        this.fileRepository = fileRepository;
+        this.folderRepository = folderRepository;
+        this.folderHierarchyService = folderHierarchyService;
+        this.folderIndex = folderIndex;
+        this.pageCursors = pageCursors;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<NameSearchResult> searchNames(FindFilesRequest request) {
+        if (request.getQ() == null || request.getQ().trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        NameIndex.Kind kind = parseKind(request.getKind());
+        int limit = pageCursors.limit(request.getLimit());
+        int offset = pageCursors.parseOffset(request.getCursor());
+
+        Predicate<UUID> scope = null;
+        UUID scopeId = request.getFolderId();
+        if (scopeId != null) {
+            if (!folderRepository.existsById(scopeId) || folderHierarchyService.isDeleted(scopeId)) {
+                throw new IllegalArgumentException("Folder not found");
+            }
+            // The folder itself and everything below it, from the in-memory tree; hits share parents
+            Map<UUID, Boolean> within = new HashMap<>();
+            scope = containerId -> within.computeIfAbsent(containerId, id -> folderIndex.isWithin(id, scopeId));
+        }
+
+        List<NameIndex.Hit> hits = nameIndex.search(request.getQ(), kind, scope, request.isFuzzy(), offset + limit + 1);
+        if (hits.size() <= offset) {
+            return new CursorPage<>(new ArrayList<>(), null, limit);
+        }
+        boolean hasMore = hits.size() > offset + limit;
+        List<NameIndex.Hit> page = hits.subList(offset, Math.min(hits.size(), offset + limit));
+        return new CursorPage<>(hydrate(page), hasMore ? pageCursors.offsetCursor(offset + limit) : null, limit);
+    }
+
+    private List<NameSearchResult> hydrate(List<NameIndex.Hit> hits) {
+        Set<UUID> fileIds = new HashSet<>();
+        Set<UUID> folderIds = new HashSet<>();
+        for (NameIndex.Hit hit : hits) {
+            (hit.getKind() == NameIndex.Kind.FILE ? fileIds : folderIds).add(hit.getId());
+        }
+
+        Map<UUID, FileMetadata> files = new HashMap<>();
+        if (!fileIds.isEmpty()) {
+            fileRepository.findAllWithFolderAndTypeByIdIn(fileIds).forEach(file -> files.put(file.getId(), file));
+        }
+        Map<UUID, Folder> folders = new HashMap<>();
+        if (!folderIds.isEmpty()) {
+            folderRepository.findAllById(folderIds).forEach(folder -> folders.put(folder.getId(), folder));
+        }
+
+        // Rows deleted since the index was last updated simply drop out of the page
+        List<NameSearchResult> results = new ArrayList<>(hits.size());
+        for (NameIndex.Hit hit : hits) {
+            NameSearchResult result = new NameSearchResult();
+            result.setId(hit.getId());
+            result.setMatch(hit.getMatchType().name().toLowerCase(Locale.ROOT));
+            result.setScore(hit.getScore());
+            if (hit.getKind() == NameIndex.Kind.FILE) {
+                FileMetadata file = files.get(hit.getId());
+                if (file == null) {
+                    continue;
+                }
+                result.setKind("file");
+                result.setName(file.getName());
+                result.setFileType(file.getFileType().getType());
+                result.setPath(file.getPath());
+                result.setParentFolderId(file.getFolder().getId());
+            } else {
+                Folder folder = folders.get(hit.getId());
+                if (folder == null || folder.getDeletedAt() != null) {
+                    continue;
+                }
+                result.setKind("folder");
+                result.setName(folder.getName());
+                result.setPath(folder.getPath());
+                result.setParentFolderId(folder.getParent() != null ? folder.getParent().getId() : null);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static NameIndex.Kind parseKind(String kind) {
+        if (kind == null || kind.isEmpty()) {
+            return null;
+        }
+        if ("file".equalsIgnoreCase(kind)) {
+            return NameIndex.Kind.FILE;
+        }
+        if ("folder".equalsIgnoreCase(kind)) {
+            return NameIndex.Kind.FOLDER;
+        }
+        throw new IllegalArgumentException("Kind must be file or folder");
+    }
+}
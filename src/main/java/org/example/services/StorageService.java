@@ -0,0 +1,197 @@
+package org.example.services;
+
+import org.example.domain.model.Folder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class StorageService {
+
+    private static final String TEMP_PREFIX = ".upload-";
+
+    private final Path publicRoot = Paths.get("public").toAbsolutePath().normalize();
+    // Deleted directories wait here for the purger; a sibling of public/ so moving in is a rename
+    private final Path trashRoot = Paths.get("trash").toAbsolutePath().normalize();
+
+    public Path getPublicRoot() {
+        return publicRoot;
+    }
+
+    public Path getTrashRoot() {
+        return trashRoot;
+    }
+
+    // Half-written entries of link(), never files of their own
+    public boolean isTemporary(String fileName) {
+        return fileName.startsWith(TEMP_PREFIX);
+    }
+
+    public Path resolveFolderDirectory(Folder folder) {
+        if (folder.getPath() != null) {
+            return folder.getPath().isEmpty() ? publicRoot : publicRoot.resolve(folder.getPath());
+        }
+
+        List<String> folderNames = new ArrayList<>();
+        Folder current = folder;
+        while (current != null && !isRootFolder(current)) {
+            folderNames.add(current.getName());
+            current = current.getParent();
+        }
+        Collections.reverse(folderNames);
+
+        Path dirPath = publicRoot;
+        for (String name : folderNames) {
+            dirPath = dirPath.resolve(name);
+        }
+        return dirPath;
+    }
+
+    public Path resolveFilePath(Folder folder, String name, String fileType) {
+        return resolveFolderDirectory(folder).resolve(name + "." + fileType);
+    }
+
+    /**
+     * Publishes a blob under its folder path. The entry is a hard link to the blob, so the
+     * public tree costs no extra space; filesystems without link support get a copy instead.
+     */
+    public void link(Path blob, Path target) throws IOException {
+        Path directory = target.getParent();
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(TEMP_PREFIX + UUID.randomUUID() + ".tmp");
+        try {
+            try {
+                Files.createLink(temp, blob);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(blob, temp);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Links the entry of a file row inserted in the current transaction. Call it once the insert
+     * has flushed, so the unique name check has passed before the public tree changes; on rollback
+     * the entry goes again, unless it has been replaced in the meantime.
+     */
+    public void linkInserted(Path blob, Path target) throws IOException {
+        link(blob, target);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Object placed = fileKey(target);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        deleteIfUnchanged(target, blob, placed);
+                    }
+                }
+            });
+        }
+    }
+
+    /** Identity of the entry at path, to tell it apart from a later replacement; null if the filesystem has none. */
+    public Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).fileKey();
+    }
+
+    // Removes an entry this process placed, if it is still the one there
+    public void deleteIfUnchanged(Path target, Path blob, Object placed) {
+        try {
+            if (isUnchanged(target, blob, placed)) {
+                Files.delete(target);
+            }
+        } catch (IOException ignored) {
+            // Already gone or replaced, either way not ours to remove
+        }
+    }
+
+    /**
+     * Points an existing entry at a new blob. On rollback the entry is linked back to the
+     * previous blob, unless it has been replaced in the meantime.
+     */
+    public void relink(Path blob, Path target, Path previousBlob) throws IOException {
+        link(blob, target);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Object placed = fileKey(target);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        try {
+                            if (isUnchanged(target, blob, placed)) {
+                                link(previousBlob, target);
+                            }
+                        } catch (IOException ignored) {
+                            // Best effort, the reconciler re-links entries that went missing
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the entry of a file row that moved away in the current transaction, once that has
+     * committed; a rollback leaves it in place. Outside a transaction it goes right away.
+     */
+    public void deleteAfterCommit(Path target, Path blob) throws IOException {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Files.deleteIfExists(target);
+            return;
+        }
+        Object placed = Files.exists(target, LinkOption.NOFOLLOW_LINKS) ? fileKey(target) : null;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteIfUnchanged(target, blob, placed);
+            }
+        });
+    }
+
+    private boolean isUnchanged(Path target, Path blob, Object placed) throws IOException {
+        return placed != null ? placed.equals(fileKey(target)) : Files.isSameFile(target, blob);
+    }
+
+    /**
+     * Renames a file or directory in place. Inside a transaction the rename is reversed if the
+     * transaction rolls back, so the public tree follows the committed folder rows.
+     */
+    public void move(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        try {
+                            Files.move(target, source, StandardCopyOption.ATOMIC_MOVE);
+                        } catch (IOException ignored) {
+                            // Best effort, the rows already point back at the source
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private boolean isRootFolder(Folder folder) {
+        return "root".equals(folder.getName()) && folder.getParent() == null;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.services;
+
+import lombok.Getter;
+
+@Getter
+public class StoredBlob {
+    private final String hash;
+    private final long size;
+
+    public StoredBlob(String hash, long size) {
+        this.hash = hash;
+        this.size = size;
+    }
+}
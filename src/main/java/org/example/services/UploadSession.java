@@ -0,0 +1,105 @@
+package org.example.services;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.example.dto.request.UploadFileRequest;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+public class UploadSession {
+    private final UUID id;
+    private final UploadFileRequest target;
+    private final long totalSize;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final Path tempFile;
+
+    // Guarded by this
+    @Getter(AccessLevel.NONE)
+    private final BitSet received;
+    private Instant expiresAt;
+    private boolean committing;
+    @Getter(AccessLevel.NONE)
+    private int writesInFlight;
+
+    public UploadSession(UUID id, UploadFileRequest target, long totalSize, int chunkSize,
+                         Path tempFile, Instant expiresAt) {
+        this.id = id;
+        this.target = target;
+        this.totalSize = totalSize;
+        this.chunkSize = chunkSize;
+        this.chunkCount = totalSize == 0 ? 0 : (int) ((totalSize + chunkSize - 1) / chunkSize);
+        this.tempFile = tempFile;
+        this.received = new BitSet(chunkCount);
+        this.expiresAt = expiresAt;
+    }
+
+    public long chunkOffset(int index) {
+        return (long) index * chunkSize;
+    }
+
+    public long chunkLength(int index) {
+        return Math.min(chunkSize, totalSize - chunkOffset(index));
+    }
+
+    public synchronized void markReceived(int index, Instant newExpiry) {
+        received.set(index);
+        expiresAt = newExpiry;
+    }
+
+    public synchronized void touch(Instant newExpiry) {
+        expiresAt = newExpiry;
+    }
+
+    public synchronized boolean isComplete() {
+        return received.cardinality() == chunkCount;
+    }
+
+    public synchronized List<Integer> receivedChunks() {
+        List<Integer> chunks = new ArrayList<>(received.cardinality());
+        for (int i = received.nextSetBit(0); i >= 0; i = received.nextSetBit(i + 1)) {
+            chunks.add(i);
+        }
+        return chunks;
+    }
+
+    public synchronized Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public synchronized boolean isCommitting() {
+        return committing;
+    }
+
+    // Returns false once a commit holds the session; a commit only reads a file no chunk is writing to
+    public synchronized boolean beginWrite() {
+        if (committing) {
+            return false;
+        }
+        writesInFlight++;
+        return true;
+    }
+
+    public synchronized void endWrite() {
+        writesInFlight--;
+    }
+
+    // Returns false when another commit already holds the session or chunks are still being written
+    public synchronized boolean beginCommit() {
+        if (committing || writesInFlight > 0) {
+            return false;
+        }
+        committing = true;
+        return true;
+    }
+
+    public synchronized void abortCommit() {
+        committing = false;
+    }
+}
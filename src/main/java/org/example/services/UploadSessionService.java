@@ -0,0 +1,263 @@
+package org.example.services;
+
+import org.example.dto.request.OpenUploadSessionRequest;
+import org.example.dto.request.UploadFileRequest;
+import org.example.dto.response.FileResponse;
+import org.example.dto.response.UploadSessionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads. A session owns a temp file preallocated to the announced size; chunks are
+ * written at their offset so they can arrive in any order and in parallel. Commit waits for no
+ * chunk, hashes the temp file into the blob store outside any transaction and then inserts the
+ * metadata row in a short one.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_SUFFIX = ".part";
+
+    private final FileService fileService;
+    private final BlobStore blobStore;
+    private final Path uploadDir;
+    private final Duration sessionTtl;
+    private final Map<UUID, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadSessionService(FileService fileService,
+                                BlobStore blobStore,
+                                @Value("${uploads.session-ttl-minutes:1440}") long sessionTtlMinutes) {
+        this.fileService = fileService;
+        this.blobStore = blobStore;
+        // Same filesystem as the blob store, so commit is a rename
+        this.uploadDir = blobStore.getRoot().resolve("uploads");
+        this.sessionTtl = Duration.ofMinutes(sessionTtlMinutes);
+    }
+
+    public UploadSessionResponse open(OpenUploadSessionRequest request) throws IOException {
+        int chunkSize = request.getChunkSize() != null ? request.getChunkSize() : DEFAULT_CHUNK_SIZE;
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException(
+                    "Chunk size must be between " + MIN_CHUNK_SIZE + " and " + MAX_CHUNK_SIZE + " bytes");
+        }
+
+        UploadFileRequest target = new UploadFileRequest();
+        target.setName(request.getName());
+        target.setFolderPath(request.getFolderPath());
+        target.setFileType(request.getFileType());
+
+        // Fail early on a bad folder, type or name clash; commit checks again
+        fileService.validateNewFile(target);
+
+        UUID id = UUID.randomUUID();
+        Files.createDirectories(uploadDir);
+        Path tempFile = uploadDir.resolve(id + TEMP_SUFFIX);
+        try (RandomAccessFile file = new RandomAccessFile(tempFile.toFile(), "rw")) {
+            file.setLength(request.getTotalSize());
+        }
+
+        UploadSession session = new UploadSession(id, target, request.getTotalSize(), chunkSize,
+                tempFile, Instant.now().plus(sessionTtl));
+        sessions.put(id, session);
+        return mapToResponse(session);
+    }
+
+    public UploadSessionResponse getStatus(UUID sessionId) {
+        return mapToResponse(getSession(sessionId));
+    }
+
+    public UploadSessionResponse writeChunk(UUID sessionId, int index, InputStream content) throws IOException {
+        UploadSession session = getSession(sessionId);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk index out of range: " + index);
+        }
+        if (!session.beginWrite()) {
+            throw new IllegalStateException("Upload session is being committed");
+        }
+        try {
+            writeChunk(session, index, content);
+        } finally {
+            session.endWrite();
+        }
+        return mapToResponse(session);
+    }
+
+    private void writeChunk(UploadSession session, int index, InputStream content) throws IOException {
+        long offset = session.chunkOffset(index);
+        long expected = session.chunkLength(index);
+        long written = 0;
+
+        // Positional writes, parallel chunks never share a file pointer
+        try (FileChannel channel = FileChannel.open(session.getTempFile(), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                if (written + read > expected) {
+                    throw new IllegalArgumentException("Chunk " + index + " is larger than " + expected + " bytes");
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    written += channel.write(byteBuffer, offset + written);
+                }
+            }
+        }
+        if (written != expected) {
+            throw new IllegalArgumentException(
+                    "Chunk " + index + " has " + written + " bytes, expected " + expected);
+        }
+
+        session.markReceived(index, Instant.now().plus(sessionTtl));
+    }
+
+    // A single-request upload takes the same three steps as a commit: the body streams into the
+    // blob store between the read-only checks and the insert, with no connection held meanwhile
+    public FileResponse upload(UploadFileRequest target, InputStream content) throws IOException {
+        fileService.validateNewFile(target);
+        StoredBlob blob = blobStore.write(content);
+        try {
+            return fileService.createFromUpload(target, blob);
+        } catch (IOException | RuntimeException e) {
+            blobStore.discard(blob.getHash());
+            throw e;
+        }
+    }
+
+    public FileResponse commit(UUID sessionId) throws IOException {
+        UploadSession session = getSession(sessionId);
+        if (!session.isComplete()) {
+            throw new IllegalStateException("Upload is missing " +
+                    (session.getChunkCount() - session.receivedChunks().size()) + " chunk(s)");
+        }
+        if (!session.beginCommit()) {
+            throw new IllegalStateException("Upload session is already being committed or still receiving chunks");
+        }
+
+        try {
+            // A conflict found here keeps the session, the client can resolve it and commit again
+            fileService.validateNewFile(session.getTarget());
+        } catch (RuntimeException e) {
+            session.abortCommit();
+            session.touch(Instant.now().plus(sessionTtl));
+            throw e;
+        }
+
+        // Hashing a large upload takes a while, so it happens before any connection is held.
+        // From here on the temp file belongs to the blob store and the session cannot be retried.
+        sessions.remove(sessionId);
+        StoredBlob blob;
+        try {
+            blob = blobStore.adopt(session.getTempFile());
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(session.getTempFile());
+            throw e;
+        }
+        try {
+            return fileService.createFromUpload(session.getTarget(), blob);
+        } catch (IOException | RuntimeException e) {
+            blobStore.discard(blob.getHash());
+            throw e;
+        }
+    }
+
+    public void abort(UUID sessionId) throws IOException {
+        UploadSession session = getSession(sessionId);
+        if (session.isCommitting()) {
+            throw new IllegalStateException("Upload session is being committed");
+        }
+        sessions.remove(sessionId);
+        Files.deleteIfExists(session.getTempFile());
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.reaper-interval-ms:600000}")
+    public void reapExpiredSessions() {
+        Instant now = Instant.now();
+        sessions.values().removeIf(session -> {
+            if (session.isCommitting() || session.getExpiresAt().isAfter(now)) {
+                return false;
+            }
+            deleteQuietly(session.getTempFile());
+            return true;
+        });
+
+        // Temp files left behind by sessions from an earlier run
+        if (!Files.isDirectory(uploadDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadDir, "*" + TEMP_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (isLiveSession(name.substring(0, name.length() - TEMP_SUFFIX.length()))) {
+                    continue;
+                }
+                Instant modified = Files.getLastModifiedTime(file).toInstant();
+                if (modified.plus(sessionTtl).isBefore(now)) {
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to scan upload directory {}", uploadDir, e);
+        }
+    }
+
+    private boolean isLiveSession(String id) {
+        try {
+            return sessions.containsKey(UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private UploadSession getSession(UUID sessionId) {
+        UploadSession session = sessions.get(sessionId);
+        if (session == null || session.getExpiresAt().isBefore(Instant.now())) {
+            throw new IllegalArgumentException("Upload session not found: " + sessionId);
+        }
+        return session;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete upload temp file {}", path, e);
+        }
+    }
+
+    private UploadSessionResponse mapToResponse(UploadSession session) {
+        UploadSessionResponse response = new UploadSessionResponse();
+        response.setId(session.getId());
+        response.setName(session.getTarget().getName());
+        response.setFolderPath(session.getTarget().getFolderPath());
+        response.setFileType(session.getTarget().getFileType());
+        response.setTotalSize(session.getTotalSize());
+        response.setChunkSize(session.getChunkSize());
+        response.setChunkCount(session.getChunkCount());
+        response.setReceivedChunks(session.receivedChunks());
+        response.setExpiresAt(session.getExpiresAt());
+        return response;
+    }
+}
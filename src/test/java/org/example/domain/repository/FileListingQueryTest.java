@@ -0,0 +1,125 @@
+package org.example.domain.repository;
+
+import org.example.domain.model.FileType;
+import org.example.domain.model.Folder;
+import org.example.dto.response.FileResponse;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Listings must stay one projection statement however many files a folder holds, and never read file.data
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "org.example.domain.repository.RecordingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FileListingQueryTest extends PostgresRepositoryTest {
+
+    private static final int FILE_COUNT = 10_000;
+    private static final Pattern DATA_COLUMN = Pattern.compile("\\bdata\\b", Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UUID folderId;
+    private UUID fileTypeId;
+
+    @BeforeEach
+    void seed() {
+        Folder folder = new Folder();
+        folder.setName("listing");
+        folder.setPath("listing");
+        folderId = entityManager.persistAndFlush(folder).getId();
+
+        FileType fileType = new FileType();
+        fileType.setType("bin");
+        fileTypeId = entityManager.persistAndFlush(fileType).getId();
+
+        // Databases migrated from the old schema still carry the content column; give every row bytes in it
+        jdbcTemplate.execute("ALTER TABLE file ADD COLUMN IF NOT EXISTS data bytea");
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        byte[] content = new byte[1024];
+        List<Object[]> rows = new ArrayList<>(FILE_COUNT);
+        for (int i = 0; i < FILE_COUNT; i++) {
+            String name = String.format("file-%05d", i);
+            rows.add(new Object[]{UUID.randomUUID(), name, folderId, fileTypeId, (long) content.length,
+                    "root/listing/" + name, now, now, content});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO file (id, name, folder_id, file_type_id, size, path, " +
+                "created_at, updated_at, data) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        entityManager.clear();
+    }
+
+    @Test
+    void listingIsOneStatementRegardlessOfPageSize() {
+        long smallPage = statementsFor(new KeysetPage(KeysetPage.SortKey.NAME, true, 10, null, null), 11);
+        long fullListing = statementsFor(new KeysetPage(KeysetPage.SortKey.NAME, true, FILE_COUNT, null, null),
+                FILE_COUNT);
+
+        assertThat(smallPage).isEqualTo(1);
+        assertThat(fullListing).isEqualTo(smallPage);
+    }
+
+    @Test
+    void listingNeverSelectsTheContentColumn() {
+        RecordingStatementInspector.clear();
+        List<FileResponse> files = fileRepository.findResponsePage(FileListFilter.inFolder(folderId).withFileTypeId(fileTypeId),
+                new KeysetPage(KeysetPage.SortKey.SIZE, false, FILE_COUNT, null, null));
+
+        assertThat(files).hasSize(FILE_COUNT);
+        assertThat(files.get(0).getFileType()).isEqualTo("bin");
+        assertThat(RecordingStatementInspector.statements())
+                .isNotEmpty()
+                .noneMatch(sql -> DATA_COLUMN.matcher(sql).find());
+    }
+
+    @Test
+    void unfilteredListingIsOneStatement() {
+        RecordingStatementInspector.clear();
+        Statistics statistics = statistics();
+        long before = statistics.getPrepareStatementCount();
+
+        List<FileResponse> files = fileRepository.findResponsePage(FileListFilter.all(),
+                new KeysetPage(KeysetPage.SortKey.CREATED_AT, true, FILE_COUNT, null, null));
+
+        assertThat(files).hasSize(FILE_COUNT);
+        assertThat(statistics.getPrepareStatementCount() - before).isEqualTo(1);
+        assertThat(RecordingStatementInspector.statements()).noneMatch(sql -> DATA_COLUMN.matcher(sql).find());
+    }
+
+    private long statementsFor(KeysetPage page, int expectedRows) {
+        Statistics statistics = statistics();
+        long before = statistics.getPrepareStatementCount();
+        List<FileResponse> files = fileRepository.findResponsePage(FileListFilter.inFolder(folderId), page);
+        assertThat(files).hasSize(Math.min(expectedRows, FILE_COUNT));
+        return statistics.getPrepareStatementCount() - before;
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertThat(statistics.isStatisticsEnabled()).isTrue();
+        return statistics;
+    }
+}
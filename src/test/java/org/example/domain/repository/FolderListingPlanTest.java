@@ -0,0 +1,108 @@
+package org.example.domain.repository;
+
+import org.example.dto.response.FileResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A folder listing page, first or later, must be a folder_id range on one of the listing indexes
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "org.example.domain.repository.RecordingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FolderListingPlanTest extends PostgresRepositoryTest {
+
+    private static final int FOLDERS = 100;
+    private static final int FILES_PER_FOLDER = 200;
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID folderId;
+    private UUID pdfId;
+
+    @BeforeEach
+    void seed() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        pdfId = UUID.randomUUID();
+        UUID txtId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO file_type (id, type) VALUES (?, 'plan-pdf'), (?, 'plan-txt')", pdfId, txtId);
+
+        List<Object[]> folders = new ArrayList<>();
+        List<Object[]> files = new ArrayList<>();
+        for (int f = 0; f < FOLDERS; f++) {
+            UUID id = UUID.randomUUID();
+            folders.add(new Object[]{id, "folder-" + f, "folder-" + f, now, now});
+            for (int i = 0; i < FILES_PER_FOLDER; i++) {
+                String name = String.format("file-%04d", i);
+                files.add(new Object[]{UUID.randomUUID(), name, id, i % 2 == 0 ? pdfId : txtId, 100L,
+                        "root/folder-" + f + "/" + name, now, now});
+            }
+            if (f == FOLDERS / 2) {
+                folderId = id;
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO folder (id, name, path, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?)", folders);
+        jdbcTemplate.batchUpdate("INSERT INTO file (id, name, folder_id, file_type_id, size, path, " +
+                "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", files);
+        jdbcTemplate.execute("ANALYZE file");
+    }
+
+    @Test
+    void firstPageIsAFolderRange() {
+        String plan = explainListing(FileListFilter.inFolder(folderId),
+                new KeysetPage(KeysetPage.SortKey.NAME, true, PAGE_SIZE, null, null),
+                folderId, PAGE_SIZE + 1);
+
+        assertThat(plan).contains("idx_file_folder_name_id").containsPattern("Index Cond: \\(.*folder_id = ");
+        assertThat(plan).doesNotContain("Seq Scan on file ");
+    }
+
+    @Test
+    void laterPageSeeksWithinTheFolderRange() {
+        // Largest uuid, so the page starts at the name after the cursor's
+        UUID afterId = UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff");
+        KeysetPage page = new KeysetPage(KeysetPage.SortKey.NAME, true, PAGE_SIZE, "file-0100", afterId);
+        String plan = explainListing(FileListFilter.inFolder(folderId), page,
+                folderId, "file-0100", afterId, PAGE_SIZE + 1);
+
+        List<FileResponse> files = fileRepository.findResponsePage(FileListFilter.inFolder(folderId), page);
+        assertThat(files).hasSize(PAGE_SIZE + 1);
+        assertThat(files.get(0).getName()).isEqualTo("file-0101");
+        assertThat(plan).contains("idx_file_folder_name_id").containsPattern("Index Cond: \\(.*folder_id = ");
+        assertThat(plan).doesNotContain("Seq Scan on file ");
+    }
+
+    @Test
+    void typeFilteredPageUsesTheFolderTypeIndex() {
+        String plan = explainListing(FileListFilter.inFolder(folderId).withFileTypeId(pdfId),
+                new KeysetPage(KeysetPage.SortKey.NAME, true, PAGE_SIZE, null, null),
+                folderId, pdfId, PAGE_SIZE + 1);
+
+        assertThat(plan).contains("idx_file_folder_type_name_id").containsPattern("Index Cond: \\(.*folder_id = ");
+        assertThat(plan).doesNotContain("Seq Scan on file ");
+    }
+
+    // Runs the listing to capture the SQL Hibernate sends, then explains that SQL with the same arguments
+    private String explainListing(FileListFilter filter, KeysetPage page, Object... arguments) {
+        RecordingStatementInspector.clear();
+        fileRepository.findResponsePage(filter, page);
+        List<String> statements = RecordingStatementInspector.statements();
+        assertThat(statements).hasSize(1);
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + statements.get(0), String.class, arguments));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.domain.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The subtree path rewrite must find its rows through the pattern_ops index, not by scanning every folder
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FolderPathIndexTest extends PostgresRepositoryTest {
+
+    private static final int TOP_FOLDERS = 200;
+    private static final int CHILDREN = 100;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<>();
+        List<Object[]> closure = new ArrayList<>();
+        for (int i = 0; i < TOP_FOLDERS; i++) {
+            UUID topId = UUID.randomUUID();
+            String topPath = "top-" + i;
+            rows.add(new Object[]{topId, topPath, null, topPath, now, now});
+            closure.add(new Object[]{topId, topId, 0});
+            for (int j = 0; j < CHILDREN; j++) {
+                UUID childId = UUID.randomUUID();
+                String name = "child-" + j;
+                rows.add(new Object[]{childId, name, topId, topPath + "/" + name, now, now});
+                closure.add(new Object[]{childId, childId, 0});
+                closure.add(new Object[]{childId, topId, 1});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO folder (id, name, parent_id, path, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.batchUpdate("INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) VALUES (?, ?, ?)",
+                closure);
+        folderRepository.createPathPatternIndex();
+        folderRepository.dropPlainPathIndex();
+        folderRepository.createTombstoneIndex();
+        jdbcTemplate.execute("ANALYZE folder");
+        jdbcTemplate.execute("ANALYZE folder_hierarchy");
+    }
+
+    @Test
+    void subtreeRewriteUsesThePatternIndex() {
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN UPDATE folder SET path = ? || substring(path FROM ? + 1) " +
+                        "WHERE (path = ? OR path LIKE ?) " +
+                        "AND NOT EXISTS (SELECT 1 FROM folder_hierarchy h JOIN folder a ON a.id = h.ancestor_id " +
+                        "                WHERE h.folder_id = folder.id AND a.deleted_at IS NOT NULL)",
+                String.class, "moved", "top-7".length(), "top-7", "top-7/%"));
+
+        assertThat(plan).contains("idx_folder_path_pattern");
+        assertThat(plan).doesNotContain("Seq Scan on folder ");
+    }
+
+    @Test
+    void rewriteReplacesOnlyTheSubtreePrefix() {
+        int updated = folderRepository.replacePathPrefix("top-7", "top-7".length(), "top-7/%", "renamed");
+
+        assertThat(updated).isEqualTo(1 + CHILDREN);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM folder WHERE path LIKE 'renamed/%'", Long.class))
+                .isEqualTo(CHILDREN);
+        // top-70 shares the text prefix but is not below top-7
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM folder WHERE path LIKE 'top-70/%'", Long.class))
+                .isEqualTo(CHILDREN);
+    }
+
+    @Test
+    void rewriteLeavesTombstonedSubtreesAlone() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        UUID topId = jdbcTemplate.queryForObject("SELECT id FROM folder WHERE path = 'top-7'", UUID.class);
+        UUID deadId = UUID.randomUUID();
+        UUID deadChildId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO folder (id, name, parent_id, path, created_at, updated_at, deleted_at) " +
+                "VALUES (?, 'old', ?, 'top-7/old', ?, ?, ?)", deadId, topId, now, now, now);
+        jdbcTemplate.update("INSERT INTO folder (id, name, parent_id, path, created_at, updated_at) " +
+                "VALUES (?, 'inner', ?, 'top-7/old/inner', ?, ?)", deadChildId, deadId, now, now);
+        jdbcTemplate.update("INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) VALUES (?, ?, 0)",
+                deadId, deadId);
+        jdbcTemplate.update("INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) VALUES (?, ?, 1)",
+                deadChildId, deadId);
+
+        int updated = folderRepository.replacePathPrefix("top-7", "top-7".length(), "top-7/%", "renamed");
+
+        assertThat(updated).isEqualTo(1 + CHILDREN);
+        assertThat(jdbcTemplate.queryForList("SELECT path FROM folder WHERE id IN (?, ?) ORDER BY path",
+                String.class, deadId, deadChildId)).containsExactly("top-7/old", "top-7/old/inner");
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.domain.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Deltas for several folders under one root land on every ancestor once, summed
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FolderStatsDeltaTest extends PostgresRepositoryTest {
+
+    @Autowired
+    private FolderStatsRepository folderStatsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID rootId = UUID.randomUUID();
+    private final UUID childId = UUID.randomUUID();
+    private final UUID grandchildId = UUID.randomUUID();
+    private final UUID pdfId = UUID.randomUUID();
+    private final UUID txtId = UUID.randomUUID();
+
+    @BeforeEach
+    void seed() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        String insertFolder = "INSERT INTO folder (id, name, parent_id, path, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.update(insertFolder, rootId, "root", null, "", now, now);
+        jdbcTemplate.update(insertFolder, childId, "a", rootId, "a", now, now);
+        jdbcTemplate.update(insertFolder, grandchildId, "b", childId, "a/b", now, now);
+        String insertClosure = "INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) VALUES (?, ?, ?)";
+        jdbcTemplate.update(insertClosure, rootId, rootId, 0);
+        jdbcTemplate.update(insertClosure, childId, childId, 0);
+        jdbcTemplate.update(insertClosure, childId, rootId, 1);
+        jdbcTemplate.update(insertClosure, grandchildId, grandchildId, 0);
+        jdbcTemplate.update(insertClosure, grandchildId, childId, 1);
+        jdbcTemplate.update(insertClosure, grandchildId, rootId, 2);
+        jdbcTemplate.update("INSERT INTO file_type (id, type) VALUES (?, 'delta-pdf'), (?, 'delta-txt')", pdfId, txtId);
+    }
+
+    @Test
+    void deltasAreSummedOntoEveryAncestor() {
+        folderStatsRepository.applyDeltas(Arrays.asList(
+                new FolderStatsDelta(grandchildId, pdfId, 2, 20),
+                new FolderStatsDelta(grandchildId, txtId, 1, 3),
+                new FolderStatsDelta(childId, pdfId, 1, 5)));
+
+        assertThat(folderTotals(grandchildId)).containsEntry("direct_file_count", 3L).containsEntry("total_size", 23L);
+        assertThat(folderTotals(childId)).containsEntry("direct_file_count", 1L).containsEntry("total_file_count", 4L);
+        assertThat(folderTotals(rootId)).containsEntry("direct_file_count", 0L).containsEntry("total_size", 28L);
+        assertThat(typeTotal(rootId, pdfId)).isEqualTo(3);
+        assertThat(typeTotal(childId, txtId)).isEqualTo(1);
+    }
+
+    @Test
+    void sizeOnlyDeltasLeaveTypeCountsAlone() {
+        folderStatsRepository.applyDeltas(Arrays.asList(new FolderStatsDelta(grandchildId, pdfId, 1, 10)));
+        folderStatsRepository.applyDeltas(Arrays.asList(new FolderStatsDelta(grandchildId, pdfId, 0, 7)));
+
+        assertThat(folderTotals(rootId)).containsEntry("total_file_count", 1L).containsEntry("total_size", 17L);
+        assertThat(typeTotal(rootId, pdfId)).isEqualTo(1);
+    }
+
+    private Map<String, Object> folderTotals(UUID folderId) {
+        return jdbcTemplate.queryForMap("SELECT direct_file_count, total_file_count, total_size " +
+                "FROM folder_stats WHERE folder_id = ?", folderId);
+    }
+
+    private long typeTotal(UUID folderId, UUID fileTypeId) {
+        return jdbcTemplate.queryForObject("SELECT total_count FROM folder_type_stats " +
+                "WHERE folder_id = ? AND file_type_id = ?", Long.class, folderId, fileTypeId);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.domain.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Id-only queries come back as UUIDs; native results of the uuid column type have no scalar mapping
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class IdQueryTest extends PostgresRepositoryTest {
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FolderHierarchyRepository folderHierarchyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID rootId = UUID.randomUUID();
+    private final UUID childId = UUID.randomUUID();
+    private final UUID targetId = UUID.randomUUID();
+    private final UUID typeId = UUID.randomUUID();
+    private final UUID firstFileId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private final UUID secondFileId = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @BeforeEach
+    void seed() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        String insertFolder = "INSERT INTO folder (id, name, parent_id, path, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.update(insertFolder, rootId, "ids", null, "ids", now, now);
+        jdbcTemplate.update(insertFolder, childId, "child", rootId, "ids/child", now, now);
+        jdbcTemplate.update(insertFolder, targetId, "target", null, "target", now, now);
+        String insertClosure = "INSERT INTO folder_hierarchy (folder_id, ancestor_id, depth) VALUES (?, ?, ?)";
+        jdbcTemplate.update(insertClosure, rootId, rootId, 0);
+        jdbcTemplate.update(insertClosure, childId, childId, 0);
+        jdbcTemplate.update(insertClosure, childId, rootId, 1);
+        jdbcTemplate.update(insertClosure, targetId, targetId, 0);
+        jdbcTemplate.update("INSERT INTO file_type (id, type) VALUES (?, 'ids-txt')", typeId);
+        String insertFile = "INSERT INTO file (id, name, folder_id, file_type_id, size, path, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, 1, ?, ?, ?)";
+        jdbcTemplate.update(insertFile, firstFileId, "first", rootId, typeId, "root/ids/first", now, now);
+        jdbcTemplate.update(insertFile, secondFileId, "second", childId, typeId, "root/ids/child/second", now, now);
+    }
+
+    @Test
+    void subtreeIdsForThePurger() {
+        List<UUID> files = fileRepository.findIdsInSubtree(rootId, PageRequest.of(0, 10));
+        List<UUID> folders = folderHierarchyRepository.findDeepestInSubtree(rootId, PageRequest.of(0, 10));
+
+        assertThat(files).containsExactlyInAnyOrder(firstFileId, secondFileId);
+        assertThat(folders).containsExactly(childId, rootId);
+    }
+
+    @Test
+    void keysetWalkByType() {
+        List<UUID> ids = fileRepository.findIdsByFileTypeAfter(
+                Collections.singletonList("ids-txt"), new UUID(0, 0), PageRequest.of(0, 10));
+
+        assertThat(ids).containsExactly(firstFileId, secondFileId);
+        assertThat(fileRepository.findIdsByFileTypeAfter(Collections.singletonList("ids-txt"), firstFileId, PageRequest.of(0, 10)))
+                .containsExactly(secondFileId);
+    }
+
+    @Test
+    void moveReturnsTheMovedIds() {
+        List<String> moved = fileRepository.moveWithoutCollisions(Arrays.asList(firstFileId, secondFileId),
+                targetId, "root/target/", new Timestamp(System.currentTimeMillis()));
+
+        assertThat(moved).containsExactlyInAnyOrder(firstFileId.toString(), secondFileId.toString());
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM file WHERE folder_id = ?", Long.class, targetId))
+                .isEqualTo(2);
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.domain.repository;
+
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.TypedQuery;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class KeysetPageTest {
+
+    @Test
+    void firstPageHasNoPredicate() {
+        KeysetPage page = new KeysetPage(KeysetPage.SortKey.NAME, true, 50, null, null);
+
+        assertThat(page.predicate("f")).isEmpty();
+    }
+
+    @Test
+    void ascendingPageSeeksPastTheLastRow() {
+        KeysetPage page = new KeysetPage(KeysetPage.SortKey.SIZE, true, 50, 10L, UUID.randomUUID());
+
+        assertThat(page.predicate("f"))
+                .isEqualTo("(f.size, f.id) > (:afterValue, :afterId)");
+        assertThat(page.orderBy("f")).isEqualTo(" ORDER BY f.size ASC, f.id ASC");
+    }
+
+    @Test
+    void descendingPageSeeksBackwards() {
+        KeysetPage page = new KeysetPage(KeysetPage.SortKey.UPDATED_AT, false, 50, "x", UUID.randomUUID());
+
+        assertThat(page.predicate("d"))
+                .isEqualTo("(d.updatedAt, d.id) < (:afterValue, :afterId)");
+        assertThat(page.orderBy("d")).isEqualTo(" ORDER BY d.updatedAt DESC, d.id DESC");
+    }
+
+    @Test
+    void bindAsksForOneRowPastTheLimit() {
+        UUID afterId = UUID.randomUUID();
+        TypedQuery<?> query = mock(TypedQuery.class);
+
+        new KeysetPage(KeysetPage.SortKey.NAME, true, 50, "b", afterId).bind(query);
+
+        verify(query).setParameter("afterValue", "b");
+        verify(query).setParameter("afterId", afterId);
+        verify(query).setMaxResults(51);
+    }
+
+    @Test
+    void firstPageBindsNoPosition() {
+        TypedQuery<?> query = mock(TypedQuery.class);
+
+        new KeysetPage(KeysetPage.SortKey.NAME, true, 50, null, null).bind(query);
+
+        verify(query, never()).setParameter(anyString(), any());
+        verify(query).setMaxResults(51);
+    }
+}
@@ -0,0 +1,310 @@
+package org.example.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArchiveReaderTest {
+
+    private static final int BLOCK = 512;
+
+    @Test
+    void readsUstarEntriesWithPrefixAndDirectories() throws IOException {
+        Tar tar = new Tar()
+                .entry("docs", '5', new byte[0])
+                .entry("report.txt", '0', bytes("quarterly"), "docs/2024")
+                .entry("notes.txt", '\0', bytes("old style"))
+                .end();
+
+        try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+            ArchiveReader.Entry directory = reader.next();
+            assertThat(directory.name).isEqualTo("docs/");
+            assertThat(directory.directory).isTrue();
+
+            ArchiveReader.Entry report = reader.next();
+            assertThat(report.name).isEqualTo("docs/2024/report.txt");
+            assertThat(report.directory).isFalse();
+            assertThat(text(reader)).isEqualTo("quarterly");
+
+            assertThat(reader.next().name).isEqualTo("notes.txt");
+            assertThat(text(reader)).isEqualTo("old style");
+            assertThat(reader.next()).isNull();
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void longNamesReplaceTheHeaderName() throws IOException {
+        String gnuName = "a/" + "long-directory-name/".repeat(8) + "file.txt";
+        String paxName = "b/" + "ünïcode-".repeat(20) + "file.txt";
+        Tar tar = new Tar()
+                .entry("././@LongLink", 'L', bytes(gnuName + "\0"))
+                .entry(gnuName.substring(0, 99), '0', bytes("gnu"))
+                .entry("PaxHeaders/file", 'x', bytes(paxRecord("mtime", "1700000000") + paxRecord("path", paxName)))
+                .entry("truncated-name", '0', bytes("pax"))
+                .entry("short.txt", '0', bytes("plain"))
+                .end();
+
+        try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+            assertThat(reader.next().name).isEqualTo(gnuName);
+            assertThat(text(reader)).isEqualTo("gnu");
+            assertThat(reader.next().name).isEqualTo(paxName);
+            assertThat(text(reader)).isEqualTo("pax");
+            // A long name only applies to the entry right after it
+            assertThat(reader.next().name).isEqualTo("short.txt");
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void skipsLinksAndUnreadContent() throws IOException {
+        byte[] large = new byte[3 * BLOCK + 17];
+        Arrays.fill(large, (byte) 'x');
+        Tar tar = new Tar()
+                .entry("large.bin", '0', large)
+                .entry("symlink", '2', new byte[0])
+                .entry("hardlink", '1', new byte[0])
+                .entry("global", 'g', bytes(paxRecord("comment", "ignored")))
+                .entry("after.txt", '0', bytes("after"))
+                .end();
+
+        try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+            assertThat(reader.next().name).isEqualTo("large.bin");
+            assertThat(reader.content().read()).isEqualTo('x');
+            ArchiveReader.Entry after = reader.next();
+            assertThat(after.name).isEqualTo("after.txt");
+            assertThat(text(reader)).isEqualTo("after");
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void readsGnuBase256Sizes() throws IOException {
+        byte[] content = new byte[BLOCK + 1];
+        Arrays.fill(content, (byte) 'y');
+        Tar tar = new Tar().entry("big.bin", '0', content).end();
+        byte[] header = tar.header(0);
+        Arrays.fill(header, 124, 136, (byte) 0);
+        header[124] = (byte) 0x80;
+        header[134] = (byte) (content.length >> 8);
+        header[135] = (byte) content.length;
+        tar.sign(0);
+
+        try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+            assertThat(reader.next().name).isEqualTo("big.bin");
+            assertThat(reader.content().readAllBytes()).isEqualTo(content);
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void checksumMismatchOnTheFirstHeaderIsNotAnArchive() throws IOException {
+        Tar tar = new Tar().entry("file.txt", '0', bytes("content")).end();
+        tar.header(0)[0] = 'g';
+
+        try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+            assertThatThrownBy(reader::next).isInstanceOf(IOException.class).hasMessage("Not a ZIP or TAR archive");
+        }
+    }
+
+    @Test
+    void checksumMismatchAfterTheFirstHeaderIsCorrupt() throws IOException {
+        Tar tar = new Tar()
+                .entry("first.txt", '0', bytes("first"))
+                .entry("second.txt", '0', bytes("second"))
+                .end();
+        tar.header(1)[0] = 'z';
+
+        try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+            assertThat(reader.next().name).isEqualTo("first.txt");
+            assertThatThrownBy(reader::next).isInstanceOf(IOException.class).hasMessage("Corrupt TAR header");
+        }
+    }
+
+    @Test
+    void truncatedEntryFailsWhileReading() throws IOException {
+        byte[] archive = new Tar().entry("file.txt", '0', new byte[2 * BLOCK]).bytes();
+        byte[] truncated = Arrays.copyOf(archive, BLOCK + 100);
+
+        try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(truncated))) {
+            assertThat(reader.next().name).isEqualTo("file.txt");
+            assertThatThrownBy(() -> reader.content().readAllBytes())
+                    .isInstanceOf(EOFException.class)
+                    .hasMessage("Truncated TAR entry");
+        }
+        try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(truncated))) {
+            reader.next();
+            assertThatThrownBy(reader::next).isInstanceOf(EOFException.class).hasMessage("Truncated TAR entry");
+        }
+    }
+
+    @Test
+    void truncatedHeaderFails() throws IOException {
+        byte[] archive = new Tar()
+                .entry("first.txt", '0', bytes("first"))
+                .entry("second.txt", '0', bytes("second"))
+                .bytes();
+        byte[] truncated = Arrays.copyOf(archive, 2 * BLOCK + 200);
+
+        try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(truncated))) {
+            assertThat(reader.next().name).isEqualTo("first.txt");
+            assertThatThrownBy(reader::next).isInstanceOf(EOFException.class).hasMessage("Truncated TAR header");
+        }
+        try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(Arrays.copyOf(archive, 200)))) {
+            assertThatThrownBy(reader::next).isInstanceOf(EOFException.class).hasMessage("Not a ZIP or TAR archive");
+        }
+    }
+
+    @Test
+    void endsWithoutTheZeroBlocks() throws IOException {
+        Tar tar = new Tar().entry("file.txt", '0', bytes("content"));
+
+        try (ArchiveReader reader = ArchiveReader.open(tar.stream())) {
+            assertThat(reader.next().name).isEqualTo("file.txt");
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void rejectsAnEmptyStream() {
+        assertThatThrownBy(() -> ArchiveReader.open(new ByteArrayInputStream(new byte[0])))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Archive is empty");
+    }
+
+    @Test
+    void detectsGzippedTar() throws IOException {
+        byte[] archive = new Tar().entry("inside.txt", '0', bytes("gzipped")).end().bytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(archive);
+        }
+
+        try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThat(reader.next().name).isEqualTo("inside.txt");
+            assertThat(text(reader)).isEqualTo("gzipped");
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void detectsZip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("folder/"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("folder/file.txt"));
+            zip.write(bytes("zipped"));
+            zip.closeEntry();
+        }
+
+        try (ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(out.toByteArray()))) {
+            ArchiveReader.Entry folder = reader.next();
+            assertThat(folder.name).isEqualTo("folder/");
+            assertThat(folder.directory).isTrue();
+            assertThat(reader.next().name).isEqualTo("folder/file.txt");
+            assertThat(text(reader)).isEqualTo("zipped");
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    private static String text(ArchiveReader reader) throws IOException {
+        return new String(reader.content().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // "<length> <key>=<value>\n", where the length counts its own digits
+    private static String paxRecord(String key, String value) {
+        int body = bytes(" " + key + "=" + value + "\n").length;
+        int length = body + String.valueOf(body).length();
+        length = body + String.valueOf(length).length();
+        return length + " " + key + "=" + value + "\n";
+    }
+
+    // Builds ustar blocks by hand; headers stay separate arrays so a field can be broken after the fact
+    private static final class Tar {
+
+        private final List<byte[]> parts = new ArrayList<>();
+        private final List<byte[]> headers = new ArrayList<>();
+
+        Tar entry(String name, char type, byte[] content) {
+            return entry(name, type, content, null);
+        }
+
+        Tar entry(String name, char type, byte[] content, String prefix) {
+            byte[] header = new byte[BLOCK];
+            put(header, 0, name, 100);
+            put(header, 100, "0000644", 8);
+            put(header, 108, "0000000", 8);
+            put(header, 116, "0000000", 8);
+            put(header, 124, String.format("%011o", content.length), 12);
+            put(header, 136, "14540000000", 12);
+            header[156] = (byte) type;
+            put(header, 257, "ustar", 6);
+            put(header, 263, "00", 2);
+            if (prefix != null) {
+                put(header, 345, prefix, 155);
+            }
+            checksum(header);
+            headers.add(header);
+            parts.add(header);
+            parts.add(content);
+            parts.add(new byte[(BLOCK - content.length % BLOCK) % BLOCK]);
+            return this;
+        }
+
+        Tar end() {
+            parts.add(new byte[2 * BLOCK]);
+            return this;
+        }
+
+        byte[] header(int index) {
+            return headers.get(index);
+        }
+
+        Tar sign(int index) {
+            checksum(headers.get(index));
+            return this;
+        }
+
+        byte[] bytes() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            parts.forEach(out::writeBytes);
+            return out.toByteArray();
+        }
+
+        ByteArrayInputStream stream() {
+            return new ByteArrayInputStream(bytes());
+        }
+
+        private static void checksum(byte[] header) {
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            long sum = 0;
+            for (byte b : header) {
+                sum += b & 0xff;
+            }
+            put(header, 148, String.format("%06o", sum), 7);
+        }
+
+        private static void put(byte[] header, int offset, String value, int length) {
+            byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(raw, 0, header, offset, Math.min(raw.length, length));
+        }
+    }
+}
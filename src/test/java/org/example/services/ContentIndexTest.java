@@ -0,0 +1,149 @@
+package org.example.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentIndexTest {
+
+    @TempDir
+    Path indexDir;
+
+    private ContentIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Flushes every two documents and merges pairs once there are more than two segments
+        index = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.close();
+    }
+
+    @Test
+    void findsDocumentsWithEveryTerm() {
+        UUID both = add("quick brown fox");
+        add("quick red fox");
+        add("lazy dog");
+
+        assertThat(ids(search("brown", "fox"))).containsExactly(both);
+        assertThat(search("missing")).isEmpty();
+        assertThat(search("brown", "dog")).isEmpty();
+    }
+
+    @Test
+    void phrasesNeedConsecutivePositions() {
+        UUID phrase = add("the quick brown fox");
+        add("brown and quick");
+
+        List<ContentIndex.Hit> hits = index.search(List.of(List.of("quick", "brown")), 10);
+
+        assertThat(ids(hits)).containsExactly(phrase);
+    }
+
+    @Test
+    void moreOccurrencesRankHigher() {
+        UUID once = add("report draft");
+        UUID thrice = add("report report report");
+
+        assertThat(ids(search("report"))).containsExactly(thrice, once);
+        assertThat(ids(index.search(List.of(List.of("report")), 1))).containsExactly(thrice);
+    }
+
+    @Test
+    void reindexingReplacesTheOldCopy() {
+        UUID id = UUID.randomUUID();
+        index.index(id, ContentTokenizer.terms("first version"));
+        index.commit();
+        index.index(id, ContentTokenizer.terms("second version"));
+
+        assertThat(search("first")).isEmpty();
+        assertThat(ids(search("version"))).containsExactly(id);
+    }
+
+    @Test
+    void deletesHoldAcrossFlushesAndReopen() throws IOException {
+        UUID kept = add("alpha beta");
+        UUID buffered = add("alpha gamma");
+        index.commit();
+        UUID flushed = add("alpha delta");
+        index.delete(buffered);
+        index.commit();
+        index.delete(flushed);
+        index.commit();
+
+        assertThat(ids(search("alpha"))).containsExactly(kept);
+
+        index.close();
+        index = open();
+        assertThat(ids(search("alpha"))).containsExactly(kept);
+        assertThat(index.contains(flushed)).isFalse();
+        assertThat(index.getCommittedAt()).isNotNull();
+    }
+
+    @Test
+    void mergesKeepLiveDocumentsAndDropDeletedOnes() {
+        List<UUID> live = new ArrayList<>();
+        List<UUID> deleted = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UUID id = add("common term" + i);
+            (i % 4 == 0 ? deleted : live).add(id);
+            index.commit();
+        }
+        deleted.forEach(index::delete);
+        for (int i = 0; i < 4; i++) {
+            add("filler");
+            index.commit();
+        }
+
+        assertThat((Integer) index.getStats().get("segments")).isLessThanOrEqualTo(2);
+        assertThat(ids(index.search(List.of(List.of("common")), 100))).containsExactlyInAnyOrderElementsOf(live);
+        assertThat(search("term0")).isEmpty();
+        assertThat(ids(search("term1"))).containsExactly(live.get(0));
+    }
+
+    @Test
+    void clearDropsEverything() {
+        add("alpha");
+        index.commit();
+        index.clear();
+
+        assertThat(search("alpha")).isEmpty();
+        assertThat(index.getStats().get("documents")).isEqualTo(0);
+    }
+
+    private ContentIndex open() throws IOException {
+        ContentIndex opened = new ContentIndex(indexDir.toString(), 2, 2, 2);
+        opened.open();
+        return opened;
+    }
+
+    private UUID add(String text) {
+        UUID id = UUID.randomUUID();
+        index.index(id, ContentTokenizer.terms(text));
+        return id;
+    }
+
+    private List<ContentIndex.Hit> search(String... terms) {
+        List<List<String>> clauses = Arrays.stream(terms).map(Collections::singletonList).collect(Collectors.toList());
+        return index.search(clauses, 10);
+    }
+
+    private static List<UUID> ids(List<ContentIndex.Hit> hits) {
+        return hits.stream().map(ContentIndex.Hit::getFileId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void postingsRoundTripAcrossVarIntBoundaries() throws IOException {
+        List<UUID> docIds = docIds(16_385);
+        int[] docs = {0, 127, 128, 16_383, 16_384};
+        int[][] positions = {
+                {0},
+                {1, 128},
+                {127, 16_511},
+                {0, 2_097_151, 2_097_152},
+                {Integer.MAX_VALUE}
+        };
+        Path file = directory.resolve("segment-1.seg");
+        try (ContentSegment.Writer writer = new ContentSegment.Writer(file)) {
+            writer.addTerm("alpha", new ContentSegment.Postings(docs, positions));
+            writer.addTerm("beta", new ContentSegment.Postings(new int[]{5}, new int[][]{{3}}));
+            writer.finish(docIds);
+        }
+
+        try (ContentSegment segment = ContentSegment.open(file, 1, new BitSet())) {
+            assertThat(segment.docCount()).isEqualTo(docIds.size());
+            assertThat(segment.docId(16_384)).isEqualTo(docIds.get(16_384));
+            assertThat(segment.docFreq("alpha")).isEqualTo(5);
+            ContentSegment.Postings alpha = segment.postings("alpha");
+            assertThat(alpha.docs).containsExactly(docs);
+            assertThat(alpha.positions).isDeepEqualTo(positions);
+            assertThat(segment.postings("beta").docs).containsExactly(5);
+            assertThat(segment.postings("gamma")).isNull();
+            assertThat(segment.docFreq("gamma")).isZero();
+        }
+    }
+
+    @Test
+    void decodesDeltaEncodedVarInts() {
+        // Doc 5 at position 16383, then doc 5 + 128 at positions 0 and 1
+        ByteBuffer bytes = ByteBuffer.wrap(new byte[]{
+                0x05, 0x01, (byte) 0xff, 0x7f,
+                (byte) 0x80, 0x01, 0x02, 0x00, 0x01});
+
+        ContentSegment.Postings postings = ContentSegment.Postings.decode(bytes, 2);
+
+        assertThat(postings.docs).containsExactly(5, 133);
+        assertThat(postings.positions).isDeepEqualTo(new int[][]{{16_383}, {0, 1}});
+        assertThat(bytes.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void truncatedPostingsFailToDecode() {
+        // Three positions announced, one present
+        ByteBuffer missingPositions = ByteBuffer.wrap(new byte[]{0x02, 0x03, 0x01});
+        // Continuation bit set on the last byte
+        ByteBuffer cutVarInt = ByteBuffer.wrap(new byte[]{(byte) 0x80});
+
+        assertThatThrownBy(() -> ContentSegment.Postings.decode(missingPositions, 1))
+                .isInstanceOf(BufferUnderflowException.class);
+        assertThatThrownBy(() -> ContentSegment.Postings.decode(cutVarInt, 1))
+                .isInstanceOf(BufferUnderflowException.class);
+    }
+
+    @Test
+    void termsMustArriveInOrder() throws IOException {
+        Path file = directory.resolve("segment-2.seg");
+        ContentSegment.Postings postings = new ContentSegment.Postings(new int[]{0}, new int[][]{{0}});
+        try (ContentSegment.Writer writer = new ContentSegment.Writer(file)) {
+            writer.addTerm("beta", postings);
+            assertThatThrownBy(() -> writer.addTerm("alpha", postings)).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> writer.addTerm("beta", postings)).isInstanceOf(IllegalStateException.class);
+        }
+
+        // An unfinished writer leaves nothing behind
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void openRejectsFilesThatAreNotSegments() throws IOException {
+        Path file = directory.resolve("segment-3.seg");
+        Files.write(file, new byte[64]);
+
+        assertThatThrownBy(() -> ContentSegment.open(file, 3, new BitSet()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a content index segment");
+    }
+
+    @Test
+    void deletesAreTrackedPerDocument() throws IOException {
+        Path file = directory.resolve("segment-4.seg");
+        try (ContentSegment.Writer writer = new ContentSegment.Writer(file)) {
+            writer.addTerm("alpha", new ContentSegment.Postings(new int[]{0, 1, 2}, new int[][]{{0}, {0}, {0}}));
+            writer.finish(docIds(3));
+        }
+        BitSet deleted = new BitSet();
+        deleted.set(0);
+
+        try (ContentSegment segment = ContentSegment.open(file, 4, deleted)) {
+            segment.delete(2);
+
+            assertThat(segment.isDeleted(0)).isTrue();
+            assertThat(segment.isDeleted(1)).isFalse();
+            assertThat(segment.liveCount()).isEqualTo(1);
+            // Postings keep deleted documents until a merge drops them
+            assertThat(segment.postings("alpha").docs).containsExactly(0, 1, 2);
+        }
+    }
+
+    private static List<UUID> docIds(int count) {
+        UUID[] ids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        return Arrays.asList(ids);
+    }
+}
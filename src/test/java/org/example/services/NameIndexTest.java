@@ -0,0 +1,154 @@
+package org.example.services;
+
+import org.example.domain.repository.FileRepository;
+import org.example.domain.repository.FolderRepository;
+import org.example.events.FileChangedEvent;
+import org.example.events.FolderChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class NameIndexTest {
+
+    private final UUID rootId = UUID.randomUUID();
+    private final UUID docsId = UUID.randomUUID();
+
+    @TempDir
+    Path indexDir;
+
+    private NameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // Starts empty: the mocked repositories have no rows
+        index = new NameIndex(mock(FileRepository.class), mock(FolderRepository.class),
+                mock(TransactionTemplate.class), indexDir.toString());
+        index.load();
+        index.onFolderChanged(FolderChangedEvent.created(docsId, rootId, "docs"));
+    }
+
+    @Test
+    void ranksExactBeforePrefixWordAndSubstring() {
+        addFile("report", "pdf", rootId);
+        addFile("reports-2023", "pdf", rootId);
+        addFile("annual report", "txt", rootId);
+        addFile("misreport", "txt", rootId);
+
+        List<NameIndex.Hit> hits = index.search("report", null, null, false, 10);
+
+        assertThat(hits).extracting(NameIndex.Hit::getName)
+                .containsExactly("report.pdf", "reports-2023.pdf", "annual report.txt", "misreport.txt");
+        assertThat(hits).extracting(NameIndex.Hit::getMatchType).containsExactly(
+                NameIndex.MatchType.EXACT, NameIndex.MatchType.PREFIX,
+                NameIndex.MatchType.WORD, NameIndex.MatchType.SUBSTRING);
+    }
+
+    @Test
+    void shortQueriesMatchPrefixesOnly() {
+        addFile("ab", "txt", rootId);
+        addFile("xab", "txt", rootId);
+
+        assertThat(names(index.search("ab", null, null, false, 10))).containsExactly("ab.txt");
+        assertThat(names(index.search("a", null, null, false, 10))).containsExactly("ab.txt");
+    }
+
+    @Test
+    void maxResultsKeepsTheBestHits() {
+        for (int i = 0; i < 20; i++) {
+            addFile("invoice-" + i, "pdf", rootId);
+        }
+        addFile("invoice", "pdf", rootId);
+
+        List<NameIndex.Hit> hits = index.search("invoice", NameIndex.Kind.FILE, null, false, 3);
+
+        assertThat(hits).hasSize(3);
+        assertThat(hits.get(0).getName()).isEqualTo("invoice.pdf");
+    }
+
+    @Test
+    void largeMaxResultsOnASmallIndexIsCheap() {
+        addFile("notes", "txt", rootId);
+
+        assertThat(names(index.search("notes", null, null, false, Integer.MAX_VALUE))).containsExactly("notes.txt");
+    }
+
+    @Test
+    void kindAndScopeFilter() {
+        addFile("docs-index", "txt", docsId);
+        addFile("docs-readme", "txt", rootId);
+
+        assertThat(names(index.search("docs", NameIndex.Kind.FOLDER, null, false, 10))).containsExactly("docs");
+        assertThat(names(index.search("docs", NameIndex.Kind.FILE, Set.of(docsId)::contains, false, 10)))
+                .containsExactly("docs-index.txt");
+    }
+
+    @Test
+    void fuzzyFindsNearMissesBelowLiteralMatches() {
+        addFile("quarterly", "xlsx", rootId);
+        addFile("quaterly-summary", "xlsx", rootId);
+
+        List<NameIndex.Hit> literal = index.search("quarterly", null, null, false, 10);
+        List<NameIndex.Hit> fuzzy = index.search("quarterly", null, null, true, 10);
+
+        assertThat(names(literal)).containsExactly("quarterly.xlsx");
+        assertThat(fuzzy).extracting(NameIndex.Hit::getMatchType)
+                .containsExactly(NameIndex.MatchType.EXACT, NameIndex.MatchType.FUZZY);
+        assertThat(fuzzy.get(1).getName()).isEqualTo("quaterly-summary.xlsx");
+    }
+
+    @Test
+    void fuzzyNeedsSixCharacters() {
+        addFile("budget", "csv", rootId);
+
+        assertThat(index.search("budgt", null, null, true, 10)).isEmpty();
+        assertThat(names(index.search("bodget", null, null, true, 10))).containsExactly("budget.csv");
+    }
+
+    @Test
+    void fuzzyRejectsNamesTooManyEditsAway() {
+        addFile("specification", "doc", rootId);
+
+        // Long queries allow two edits, three are too many
+        assertThat(names(index.search("spesificatin", null, null, true, 10))).containsExactly("specification.doc");
+        assertThat(index.search("spesificatoin", null, null, true, 10)).isEmpty();
+    }
+
+    @Test
+    void removedAndRenamedEntriesLeaveResults() {
+        UUID fileId = addFile("draft", "md", rootId);
+        index.onFileChanged(FileChangedEvent.updated(fileId, rootId, "final", "md"));
+
+        assertThat(index.search("draft", null, null, false, 10)).isEmpty();
+        assertThat(names(index.search("final", null, null, false, 10))).containsExactly("final.md");
+
+        index.onFileChanged(FileChangedEvent.deleted(fileId, rootId));
+        assertThat(index.search("final", null, null, false, 10)).isEmpty();
+    }
+
+    @Test
+    void blankQueryIsRejected() {
+        assertThatThrownBy(() -> index.search("   ", null, null, false, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private UUID addFile(String name, String type, UUID folderId) {
+        UUID id = UUID.randomUUID();
+        index.onFileChanged(FileChangedEvent.created(id, folderId, name, type));
+        return id;
+    }
+
+    private static List<String> names(List<NameIndex.Hit> hits) {
+        return hits.stream().map(NameIndex.Hit::getName).collect(Collectors.toList());
+    }
+}
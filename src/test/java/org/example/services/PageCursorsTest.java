@@ -0,0 +1,178 @@
+package org.example.services;
+
+import org.example.domain.repository.KeysetPage;
+import org.example.dto.request.PageQuery;
+import org.example.dto.response.CursorPage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorsTest {
+
+    private final PageCursors cursors = new PageCursors(100, 1000);
+
+    @Test
+    void firstPageUsesDefaults() {
+        KeysetPage page = cursors.parse(new PageQuery());
+
+        assertThat(page.getSortKey()).isEqualTo(KeysetPage.SortKey.NAME);
+        assertThat(page.isAscending()).isTrue();
+        assertThat(page.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void limitIsCappedAndMustBePositive() {
+        assertThat(cursors.limit(5000)).isEqualTo(1000);
+        assertThat(cursors.limit(1)).isEqualTo(1);
+        assertThatThrownBy(() -> cursors.limit(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sortAndDirectionAreValidated() {
+        assertThatThrownBy(() -> cursors.parse(query(null, "color", null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> cursors.parse(query(null, "name", "sideways")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> cursors.parse(query(null, "size", null), EnumSet.of(KeysetPage.SortKey.NAME)))
+                .hasMessageContaining("Cannot sort by");
+    }
+
+    @Test
+    void nameCursorRoundTrips() {
+        List<Row> rows = rows(3);
+        KeysetPage first = cursors.parse(query(null, "name", "desc"));
+        CursorPage<Row> page = toPage(rows, new KeysetPage(first.getSortKey(), false, 2, null, null));
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getNextCursor()).isNotNull();
+        KeysetPage next = cursors.parse(query(page.getNextCursor(), "name", "desc"));
+        assertThat(next.getSortKey()).isEqualTo(KeysetPage.SortKey.NAME);
+        assertThat(next.isAscending()).isFalse();
+        assertThat(next.getAfterId()).isEqualTo(rows.get(1).id);
+        assertThat(next.getAfterValue()).isEqualTo("file-1");
+    }
+
+    @Test
+    void timestampAndSizeCursorsRoundTrip() {
+        List<Row> rows = rows(2);
+        CursorPage<Row> byDate = toPage(rows, new KeysetPage(KeysetPage.SortKey.CREATED_AT, true, 1, null, null));
+        CursorPage<Row> bySize = toPage(rows, new KeysetPage(KeysetPage.SortKey.SIZE, true, 1, null, null));
+
+        KeysetPage afterDate = cursors.parse(query(byDate.getNextCursor(), "createdAt", "asc"));
+        KeysetPage afterSize = cursors.parse(query(bySize.getNextCursor(), "size", "asc"));
+
+        assertThat(afterDate.getAfterValue()).isEqualTo(rows.get(0).createdAt);
+        assertThat(afterDate.getAfterId()).isEqualTo(rows.get(0).id);
+        assertThat(afterSize.getAfterValue()).isEqualTo(0L);
+        assertThat(afterSize.getAfterId()).isEqualTo(rows.get(0).id);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPage<Row> page = toPage(rows(2), new KeysetPage(KeysetPage.SortKey.NAME, true, 2, null, null));
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorMustMatchTheRequestedSort() {
+        CursorPage<Row> page = toPage(rows(2), new KeysetPage(KeysetPage.SortKey.NAME, true, 1, null, null));
+
+        assertThatThrownBy(() -> cursors.parse(query(page.getNextCursor(), "name", "desc")))
+                .hasMessage("Cursor does not match the requested sort");
+        assertThatThrownBy(() -> cursors.parse(query(page.getNextCursor(), "size", "asc")))
+                .hasMessage("Cursor does not match the requested sort");
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        assertThatThrownBy(() -> cursors.parse(query("not base64!", "name", null)))
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> cursors.parse(query(encode("NAME\nasc\nnot-a-uuid\nx"), "name", null)))
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> cursors.parse(query(encode("SIZE\nasc\n" + UUID.randomUUID() + "\nbig"), "size", null)))
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> cursors.parse(query(encode("CREATED_AT\nasc\n" + UUID.randomUUID() + "\nyesterday"),
+                "createdAt", null)))
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> cursors.parse(query(encode("NAME\nasc"), "name", null)))
+                .hasMessage("Cursor does not match the requested sort");
+    }
+
+    @Test
+    void offsetCursorRoundTrips() {
+        assertThat(cursors.parseOffset(null)).isZero();
+        assertThat(cursors.parseOffset("")).isZero();
+        assertThat(cursors.parseOffset(cursors.offsetCursor(250))).isEqualTo(250);
+    }
+
+    @Test
+    void malformedOffsetCursorsAreRejected() {
+        assertThatThrownBy(() -> cursors.parseOffset("%%%")).hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> cursors.parseOffset(encode("OFFSET\n-1"))).hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> cursors.parseOffset(encode("OFFSET\nten"))).hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> cursors.parseOffset(encode("NAME\nasc\n1\nx"))).hasMessage("Invalid cursor");
+    }
+
+    private CursorPage<Row> toPage(List<Row> rows, KeysetPage page) {
+        return cursors.toPage(rows, page, row -> row.id, Row::value, Function.identity());
+    }
+
+    private static PageQuery query(String cursor, String sort, String direction) {
+        PageQuery query = new PageQuery();
+        query.setCursor(cursor);
+        query.setSort(sort);
+        query.setDirection(direction);
+        return query;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Row(UUID.randomUUID(), "file-" + i, 10L * i, new Timestamp(1_700_000_000_000L + i)));
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    private static final class Row {
+        final UUID id;
+        final String name;
+        final long size;
+        final Timestamp createdAt;
+
+        Row(UUID id, String name, long size, Timestamp createdAt) {
+            this.id = id;
+            this.name = name;
+            this.size = size;
+            this.createdAt = createdAt;
+        }
+
+        Object value(KeysetPage.SortKey sortKey) {
+            switch (sortKey) {
+                case SIZE:
+                    return size;
+                case CREATED_AT:
+                case UPDATED_AT:
+                    return createdAt;
+                default:
+                    return name;
+            }
+        }
+    }
+}